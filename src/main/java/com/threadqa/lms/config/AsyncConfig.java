@@ -1,11 +1,13 @@
 package com.threadqa.lms.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
 
 @Configuration
 @EnableAsync
@@ -21,4 +23,47 @@ public class AsyncConfig {
         executor.initialize();
         return executor;
     }
+
+    /**
+     * Отдельный ограниченный пул для проверки и хэширования паролей (bcrypt),
+     * чтобы всплеск входов не занимал потоки сервлет-контейнера.
+     * При заполненной очереди задачи сразу отклоняются.
+     */
+    @Bean(name = "passwordHashingExecutor")
+    public ThreadPoolTaskExecutor passwordHashingExecutor(
+            @Value("${app.auth.hashing.pool-size:4}") int poolSize,
+            @Value("${app.auth.hashing.queue-capacity:50}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("LmsPasswordHashing-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Ограниченный пул для параллельного выполнения независимых запросов аналитики.
+     * Каждый поток держит соединение, поэтому пул не больше трети пула соединений
+     * (и не больше половины при явной настройке), чтобы аналитика не вытесняла остальные запросы.
+     * При заполненной очереди задачи сразу отклоняются и заменяются значением по умолчанию.
+     */
+    @Bean(name = "analyticsQueryExecutor")
+    public ThreadPoolTaskExecutor analyticsQueryExecutor(
+            @Value("${app.analytics.query.pool-size:0}") int configuredPoolSize,
+            @Value("${app.analytics.query.queue-capacity:100}") int queueCapacity,
+            @Value("${spring.datasource.hikari.maximum-pool-size:10}") int connectionPoolSize) {
+        int poolSize = configuredPoolSize > 0
+                ? Math.min(configuredPoolSize, Math.max(1, connectionPoolSize / 2))
+                : Math.max(1, connectionPoolSize / 3);
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("LmsAnalytics-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.initialize();
+        return executor;
+    }
 }
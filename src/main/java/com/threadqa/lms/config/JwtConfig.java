@@ -13,4 +13,5 @@ public class JwtConfig {
     private long accessTokenExpirationMs;
     private long refreshTokenExpirationMs;
     private String issuer;
+    private int verifiedTokenCacheSize = 10000;
 }
@@ -0,0 +1,54 @@
+package com.threadqa.lms.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+
+/**
+ * Фоновые задачи выполняются на пуле потоков вместо одного потока по умолчанию,
+ * чтобы долгие пересчеты не задерживали остальные задачи.
+ * Частые сбросы буферов и очередей идут на отдельном пуле {@link #DRAIN_SCHEDULER}.
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig implements SchedulingConfigurer {
+
+    /**
+     * Планировщик для частых сбросов буферов, чувствительных к задержке
+     */
+    public static final String DRAIN_SCHEDULER = "drainTaskScheduler";
+
+    @Value("${app.scheduling.pool-size:4}")
+    private int poolSize;
+
+    @Value("${app.scheduling.drain-pool-size:4}")
+    private int drainPoolSize;
+
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar registrar) {
+        registrar.setTaskScheduler(taskScheduler());
+    }
+
+    @Bean(name = "taskScheduler")
+    public ThreadPoolTaskScheduler taskScheduler() {
+        return scheduler(poolSize, "LmsScheduler-");
+    }
+
+    @Bean(name = DRAIN_SCHEDULER)
+    public ThreadPoolTaskScheduler drainTaskScheduler() {
+        return scheduler(drainPoolSize, "LmsDrain-");
+    }
+
+    private static ThreadPoolTaskScheduler scheduler(int poolSize, String threadNamePrefix) {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(poolSize);
+        scheduler.setThreadNamePrefix(threadNamePrefix);
+        scheduler.setWaitForTasksToCompleteOnShutdown(true);
+        scheduler.setAwaitTerminationSeconds(30);
+        return scheduler;
+    }
+}
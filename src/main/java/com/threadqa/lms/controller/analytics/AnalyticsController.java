@@ -4,6 +4,7 @@ import com.threadqa.lms.dto.analytics.CourseAnalyticsResponse;
 import com.threadqa.lms.dto.analytics.SystemAnalyticsResponse;
 import com.threadqa.lms.dto.analytics.UserAnalyticsResponse;
 import com.threadqa.lms.service.analytics.AnalyticsService;
+import com.threadqa.lms.service.analytics.SystemAnalyticsSnapshot;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -20,11 +21,12 @@ import org.springframework.web.bind.annotation.RestController;
 public class AnalyticsController {
 
     private final AnalyticsService analyticsService;
+    private final SystemAnalyticsSnapshot systemAnalyticsSnapshot;
 
     @GetMapping("/system")
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<SystemAnalyticsResponse> getSystemAnalytics() {
-        SystemAnalyticsResponse analytics = analyticsService.getSystemAnalytics();
+        SystemAnalyticsResponse analytics = systemAnalyticsSnapshot.get();
         return ResponseEntity.ok(analytics);
     }
 
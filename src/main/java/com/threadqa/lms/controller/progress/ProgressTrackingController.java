@@ -2,6 +2,7 @@ package com.threadqa.lms.controller.progress;
 
 import com.threadqa.lms.dto.progress.*;
 import com.threadqa.lms.model.progress.UserActivity;
+import com.threadqa.lms.service.progress.LessonEngagementIngestor;
 import com.threadqa.lms.service.progress.ProgressTrackingService;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
@@ -20,6 +21,7 @@ import org.springframework.web.bind.annotation.*;
 public class ProgressTrackingController {
 
     private final ProgressTrackingService progressTrackingService;
+    private final LessonEngagementIngestor lessonEngagementIngestor;
 
     @PostMapping("/track")
     @PreAuthorize("isAuthenticated()")
@@ -50,6 +52,16 @@ public class ProgressTrackingController {
         return ResponseEntity.ok(response);
     }
 
+    @PostMapping("/engagement/events")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<LessonEngagementBatchResponse> trackLessonEngagement(
+            @Valid @RequestBody LessonEngagementBatchRequest request,
+            @AuthenticationPrincipal UserDetails userDetails) {
+        Long userId = Long.parseLong(userDetails.getUsername());
+        LessonEngagementBatchResponse response = lessonEngagementIngestor.submit(userId, request.getEvents());
+        return ResponseEntity.accepted().body(response);
+    }
+
     @PostMapping("/engagement")
     @PreAuthorize("isAuthenticated()")
     public ResponseEntity<UserEngagementResponse> trackEngagement(
@@ -22,11 +22,19 @@ public class CourseAnalyticsResponse {
     private Double averageProgress;
     private Double averageRating;
     private Integer reviewCount;
+    /**
+     * Примерное количество уникальных посетителей курса за последние дни
+     */
     private Long visitorCount;
     private Map<String, Long> enrollmentsByMonth;
     private Map<String, Double> averageProgressByMonth;
     private Map<String, Integer> completionsByMonth;
     private List<LessonEngagementDTO> lessonEngagement;
+
+    /**
+     * true, если часть показателей не успела рассчитаться и заменена значениями по умолчанию
+     */
+    private Boolean partial;
     
     @Data
     @Builder
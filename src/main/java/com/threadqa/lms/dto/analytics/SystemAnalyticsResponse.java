@@ -5,17 +5,22 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.time.ZonedDateTime;
 import java.util.List;
 import java.util.Map;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 public class SystemAnalyticsResponse {
     
     private Integer totalUsers;
+    /**
+     * Уникальные активные пользователи за 30 дней и за сегодня
+     */
     private Integer activeUsers;
+    private Integer dailyActiveUsers;
     private Integer studentCount;
     private Integer instructorCount;
     private Integer totalCourses;
@@ -28,6 +33,12 @@ public class SystemAnalyticsResponse {
     private Map<String, Integer> coursesByMonth;
     private Map<String, Integer> enrollmentsByMonth;
     private List<CategoryStatsDTO> categoryStats;
+
+    /**
+     * Момент расчета данных и их возраст на момент ответа
+     */
+    private ZonedDateTime generatedAt;
+    private Long snapshotAgeSeconds;
     
     @Data
     @Builder
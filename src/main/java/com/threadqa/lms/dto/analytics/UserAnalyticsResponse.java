@@ -27,6 +27,11 @@ public class UserAnalyticsResponse {
     private Map<String, Integer> courseEnrollmentsByMonth;
     private Map<String, Integer> courseCompletionsByMonth;
     private List<CourseProgressDTO> courseProgress;
+
+    /**
+     * true, если часть показателей не успела рассчитаться и заменена значениями по умолчанию
+     */
+    private Boolean partial;
     
     @Data
     @Builder
@@ -0,0 +1,53 @@
+package com.threadqa.lms.dto.progress;
+
+import com.threadqa.lms.model.progress.LessonEngagementEvent;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.PositiveOrZero;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.ZonedDateTime;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LessonEngagementBatchRequest {
+
+    @NotEmpty
+    @Size(max = 500)
+    private List<@Valid @NotNull Event> events;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Event {
+
+        @NotNull
+        private Long topicId;
+
+        @NotNull
+        private LessonEngagementEvent.EventType type;
+
+        /**
+         * Не больше суток: большие значения искажали бы среднее время прохождения урока
+         */
+        @PositiveOrZero
+        @Max(86400)
+        private Integer positionSeconds;
+
+        @PositiveOrZero
+        @Max(86400)
+        private Integer elapsedSeconds;
+
+        private ZonedDateTime occurredAt;
+    }
+}
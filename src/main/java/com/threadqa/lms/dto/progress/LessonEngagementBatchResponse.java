@@ -0,0 +1,20 @@
+package com.threadqa.lms.dto.progress;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LessonEngagementBatchResponse {
+
+    /**
+     * Количество принятых событий. Принимается начало пакета, остаток клиент отправляет повторно.
+     */
+    private Integer accepted;
+
+    private Integer rejected;
+}
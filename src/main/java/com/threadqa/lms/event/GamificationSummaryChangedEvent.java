@@ -0,0 +1,7 @@
+package com.threadqa.lms.event;
+
+/**
+ * Событие об изменении данных, входящих в сводку геймификации пользователя (очки, уровень, значки, серии)
+ */
+public record GamificationSummaryChangedEvent(Long userId) {
+}
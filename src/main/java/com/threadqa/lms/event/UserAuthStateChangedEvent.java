@@ -0,0 +1,7 @@
+package com.threadqa.lms.event;
+
+/**
+ * Событие об изменении данных пользователя, влияющих на авторизацию (блокировка, разблокировка, роли)
+ */
+public record UserAuthStateChangedEvent(Long userId) {
+}
@@ -0,0 +1,19 @@
+package com.threadqa.lms.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Исключение, выбрасываемое при превышении допустимой частоты запросов или перегрузке сервиса
+ */
+@ResponseStatus(HttpStatus.TOO_MANY_REQUESTS)
+public class TooManyRequestsException extends RuntimeException {
+    
+    public TooManyRequestsException(String message) {
+        super(message);
+    }
+    
+    public TooManyRequestsException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,35 @@
+package com.threadqa.lms.model.analytics;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * HyperLogLog-скетч уникальных пользователей за один день: активных в системе или посетивших курс
+ */
+@Entity
+@Table(name = "activity_sketches", indexes = @Index(name = "idx_activity_sketches_day", columnList = "day"))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ActivitySketch {
+
+    @EmbeddedId
+    private ActivitySketchId id;
+
+    /**
+     * Регистры скетча, см. {@link com.threadqa.lms.util.HyperLogLog}
+     */
+    @Column(name = "registers", nullable = false, columnDefinition = "bytea")
+    private byte[] registers;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    public enum Scope {
+        GLOBAL, COURSE
+    }
+}
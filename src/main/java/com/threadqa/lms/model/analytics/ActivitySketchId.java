@@ -0,0 +1,34 @@
+package com.threadqa.lms.model.analytics;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+@Embeddable
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode
+public class ActivitySketchId implements Serializable {
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "scope", length = 16)
+    private ActivitySketch.Scope scope;
+
+    /**
+     * Идентификатор курса, 0 для всей системы
+     */
+    @Column(name = "scope_id")
+    private Long scopeId;
+
+    @Column(name = "day")
+    private LocalDate day;
+}
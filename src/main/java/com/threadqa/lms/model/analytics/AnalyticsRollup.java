@@ -0,0 +1,54 @@
+package com.threadqa.lms.model.analytics;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * Предрасчитанные показатели за день или месяц по всей системе, курсу или пользователю.
+ * Зачисления и сумма прогресса относятся к периоду зачисления, завершения — к периоду завершения.
+ */
+@Entity
+@Table(name = "analytics_rollups")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AnalyticsRollup {
+
+    @EmbeddedId
+    private AnalyticsRollupId id;
+
+    @Column(name = "signups", nullable = false)
+    private Long signups;
+
+    @Column(name = "courses_created", nullable = false)
+    private Long coursesCreated;
+
+    @Column(name = "enrollments", nullable = false)
+    private Long enrollments;
+
+    @Column(name = "completions", nullable = false)
+    private Long completions;
+
+    /**
+     * Сумма текущего прогресса зачислений периода, в процентах
+     */
+    @Column(name = "progress_sum", nullable = false)
+    private Double progressSum;
+
+    /**
+     * Средний прогресс зачислений периода
+     */
+    public double getAverageProgress() {
+        return enrollments > 0 ? progressSum / enrollments : 0.0;
+    }
+
+    public enum Scope {
+        SYSTEM, COURSE, USER
+    }
+
+    public enum Granularity {
+        DAY, MONTH
+    }
+}
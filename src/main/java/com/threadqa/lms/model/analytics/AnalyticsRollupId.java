@@ -0,0 +1,41 @@
+package com.threadqa.lms.model.analytics;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+@Embeddable
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode
+public class AnalyticsRollupId implements Serializable {
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "scope", length = 16)
+    private AnalyticsRollup.Scope scope;
+
+    /**
+     * Идентификатор курса или пользователя, 0 для системы
+     */
+    @Column(name = "scope_id")
+    private Long scopeId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "granularity", length = 8)
+    private AnalyticsRollup.Granularity granularity;
+
+    /**
+     * Первый день периода
+     */
+    @Column(name = "bucket")
+    private LocalDate bucket;
+}
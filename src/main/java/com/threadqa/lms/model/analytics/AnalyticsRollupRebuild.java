@@ -0,0 +1,51 @@
+package com.threadqa.lms.model.analytics;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDate;
+import java.time.ZonedDateTime;
+
+/**
+ * Выполненный пересчет показателей. Номер пересчета служит эпохой: изменения из буферов узлов,
+ * зафиксированные до пересчета, уже учтены в нем и при сбросе отбрасываются для пересчитанных периодов.
+ */
+@Entity
+@Table(name = "analytics_rollup_rebuilds")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AnalyticsRollupRebuild {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "day_from", nullable = false)
+    private LocalDate dayFrom;
+
+    @Column(name = "day_until", nullable = false)
+    private LocalDate dayUntil;
+
+    @Column(name = "month_from", nullable = false)
+    private LocalDate monthFrom;
+
+    @Column(name = "month_until", nullable = false)
+    private LocalDate monthUntil;
+
+    @Column(name = "rebuilt_at", nullable = false)
+    private ZonedDateTime rebuiltAt;
+
+    /**
+     * Входит ли период в пересчитанный диапазон
+     */
+    public boolean covers(AnalyticsRollupId id) {
+        LocalDate bucket = id.getBucket();
+        return switch (id.getGranularity()) {
+            case DAY -> !bucket.isBefore(dayFrom) && bucket.isBefore(dayUntil);
+            case MONTH -> !bucket.isBefore(monthFrom) && bucket.isBefore(monthUntil);
+        };
+    }
+}
@@ -0,0 +1,72 @@
+package com.threadqa.lms.model.gamification;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.ZonedDateTime;
+
+/**
+ * Событие для асинхронной обработки геймификацией (outbox).
+ * Записывается в транзакции источника, обрабатывается по порядку id для каждого пользователя.
+ * После неудачной попытки событие откладывается до next_attempt_at, после исчерпания попыток
+ * переводится в dead letter (dead_lettered_at) и больше не обрабатывается автоматически.
+ */
+@Entity
+@Table(name = "gamification_events",
+        uniqueConstraints = @UniqueConstraint(name = "uk_gamification_events_key", columnNames = "idempotency_key"),
+        indexes = @Index(name = "idx_gamification_events_pending", columnList = "processed_at, user_id"))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class GamificationEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "event_type", nullable = false)
+    @Enumerated(EnumType.STRING)
+    private EventType eventType;
+
+    /**
+     * Ключ идемпотентности: повторная публикация события с тем же ключом игнорируется
+     */
+    @Column(name = "idempotency_key", nullable = false)
+    private String idempotencyKey;
+
+    @Column(name = "entity_id")
+    private Long entityId;
+
+    /**
+     * Числовое значение события: баллы за тест, день входа, длина серии, награда за значок
+     */
+    @Column(name = "event_value")
+    private Integer value;
+
+    @Column(name = "attempts", nullable = false)
+    private Integer attempts;
+
+    @Column(name = "last_error", columnDefinition = "TEXT")
+    private String lastError;
+
+    @Column(name = "next_attempt_at")
+    private ZonedDateTime nextAttemptAt;
+
+    @Column(name = "dead_lettered_at")
+    private ZonedDateTime deadLetteredAt;
+
+    @Column(name = "created_at", nullable = false)
+    private ZonedDateTime createdAt;
+
+    @Column(name = "processed_at")
+    private ZonedDateTime processedAt;
+
+    public enum EventType {
+        QUIZ_SUBMITTED, HOMEWORK_REVIEWED, LOGIN_RECORDED, LOGIN_STREAK_ADVANCED, BADGE_AWARDED
+    }
+}
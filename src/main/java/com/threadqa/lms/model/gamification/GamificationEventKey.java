@@ -0,0 +1,28 @@
+package com.threadqa.lms.model.gamification;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.ZonedDateTime;
+
+/**
+ * Ключ идемпотентности опубликованного события геймификации. Хранится бессрочно:
+ * сами события удаляются после обработки, а повторная публикация с тем же ключом
+ * (пересдача теста, повторная проверка задания) не должна снова начислять очки.
+ */
+@Entity
+@Table(name = "gamification_event_keys")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class GamificationEventKey {
+
+    @Id
+    @Column(name = "idempotency_key")
+    private String idempotencyKey;
+
+    @Column(name = "created_at", nullable = false)
+    private ZonedDateTime createdAt;
+}
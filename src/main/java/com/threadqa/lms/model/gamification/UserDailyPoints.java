@@ -0,0 +1,24 @@
+package com.threadqa.lms.model.gamification;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * Сумма очков пользователя за один день. Используется для таблиц лидеров
+ * за день, неделю и месяц; старые дни периодически удаляются.
+ */
+@Entity
+@Table(name = "user_daily_points", indexes = @Index(name = "idx_user_daily_points_day", columnList = "day"))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class UserDailyPoints {
+
+    @EmbeddedId
+    private UserDailyPointsId id;
+
+    @Column(name = "points", nullable = false)
+    private Integer points;
+}
@@ -0,0 +1,30 @@
+package com.threadqa.lms.model.gamification;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.ZonedDateTime;
+
+/**
+ * Накопленная сумма очков пользователя. Обновляется в той же транзакции,
+ * что и запись в таблицу points, и периодически сверяется с ней.
+ */
+@Entity
+@Table(name = "user_point_totals")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class UserPointTotal {
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(name = "total_points", nullable = false)
+    private Integer totalPoints;
+
+    @Column(name = "updated_at", nullable = false)
+    private ZonedDateTime updatedAt;
+}
@@ -0,0 +1,62 @@
+package com.threadqa.lms.model.progress;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Событие взаимодействия пользователя с уроком, присланное клиентом (просмотр, воспроизведение, перемотка и т.д.).
+ * Записывается пакетами через {@link com.threadqa.lms.service.progress.LessonEngagementIngestor}.
+ */
+@Entity
+@Table(name = "lesson_engagement_events", indexes = {
+        @Index(name = "idx_lesson_engagement_events_topic", columnList = "topic_id, occurred_at"),
+        @Index(name = "idx_lesson_engagement_events_user", columnList = "user_id, occurred_at")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class LessonEngagementEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "course_id", nullable = false)
+    private Long courseId;
+
+    @Column(name = "topic_id", nullable = false)
+    private Long topicId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "event_type", nullable = false, length = 16)
+    private EventType eventType;
+
+    /**
+     * Позиция воспроизведения в секундах на момент события
+     */
+    @Column(name = "position_seconds")
+    private Integer positionSeconds;
+
+    /**
+     * Время, проведенное в уроке с начала просмотра, в секундах
+     */
+    @Column(name = "elapsed_seconds")
+    private Integer elapsedSeconds;
+
+    @Column(name = "occurred_at", nullable = false)
+    private LocalDateTime occurredAt;
+
+    @Column(name = "received_at", nullable = false)
+    private LocalDateTime receivedAt;
+
+    public enum EventType {
+        VIEW, PLAY, PAUSE, SEEK, COMPLETE
+    }
+}
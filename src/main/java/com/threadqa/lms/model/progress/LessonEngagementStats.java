@@ -0,0 +1,54 @@
+package com.threadqa.lms.model.progress;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Накопленные показатели взаимодействия с уроком. Обновляются приращениями
+ * при каждой записи пакета событий, поэтому аналитика курса не сканирует сами события.
+ */
+@Entity
+@Table(name = "lesson_engagement_stats", indexes = @Index(name = "idx_lesson_engagement_stats_course", columnList = "course_id"))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class LessonEngagementStats {
+
+    @Id
+    @Column(name = "topic_id")
+    private Long topicId;
+
+    @Column(name = "course_id", nullable = false)
+    private Long courseId;
+
+    @Column(name = "views", nullable = false)
+    private long views;
+
+    @Column(name = "plays", nullable = false)
+    private long plays;
+
+    @Column(name = "pauses", nullable = false)
+    private long pauses;
+
+    @Column(name = "seeks", nullable = false)
+    private long seeks;
+
+    @Column(name = "completions", nullable = false)
+    private long completions;
+
+    /**
+     * Сумма времени до завершения урока по событиям COMPLETE, в которых оно указано
+     */
+    @Column(name = "completion_time_seconds", nullable = false)
+    private long completionTimeSeconds;
+
+    @Column(name = "completion_time_samples", nullable = false)
+    private long completionTimeSamples;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,10 @@
+package com.threadqa.lms.model.user;
+
+import java.util.Set;
+
+/**
+ * Компактное представление пользователя для авторизации запросов.
+ * Содержит только то, что нужно фильтру, без загрузки сущности {@link User} и ее связей.
+ */
+public record UserAuthSnapshot(Long id, boolean active, String blockReason, Set<String> roleNames) {
+}
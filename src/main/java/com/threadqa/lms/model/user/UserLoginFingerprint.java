@@ -0,0 +1,34 @@
+package com.threadqa.lms.model.user;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Известные отпечатки входов пользователя (город, тип устройства, браузер) в виде 64-битных хэшей
+ */
+@Data
+@Entity
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "user_login_fingerprints")
+public class UserLoginFingerprint {
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    /**
+     * Хэши, упакованные по 8 байт в порядке добавления
+     */
+    @Column(name = "hashes", nullable = false, columnDefinition = "bytea")
+    private byte[] hashes;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
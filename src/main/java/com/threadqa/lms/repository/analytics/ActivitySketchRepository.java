@@ -0,0 +1,27 @@
+package com.threadqa.lms.repository.analytics;
+
+import com.threadqa.lms.model.analytics.ActivitySketch;
+import com.threadqa.lms.model.analytics.ActivitySketchId;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface ActivitySketchRepository extends JpaRepository<ActivitySketch, ActivitySketchId>,
+        ActivitySketchRepositoryExtensions {
+
+    @Query("SELECT s.registers FROM ActivitySketch s WHERE s.id.scope = :scope AND s.id.scopeId = :scopeId " +
+            "AND s.id.day >= :from")
+    List<byte[]> findRegistersSince(@Param("scope") ActivitySketch.Scope scope,
+                                    @Param("scopeId") Long scopeId,
+                                    @Param("from") LocalDate from);
+
+    @Modifying
+    @Query("DELETE FROM ActivitySketch s WHERE s.id.day < :day")
+    int deleteOlderThan(@Param("day") LocalDate day);
+}
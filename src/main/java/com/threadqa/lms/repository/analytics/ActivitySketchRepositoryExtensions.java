@@ -0,0 +1,14 @@
+package com.threadqa.lms.repository.analytics;
+
+import com.threadqa.lms.model.analytics.ActivitySketchId;
+
+import java.util.Map;
+
+public interface ActivitySketchRepositoryExtensions {
+
+    /**
+     * Объединяет переданные регистры с сохраненными скетчами (поэлементный максимум).
+     * Повторное объединение тех же регистров ничего не меняет. Вызывать внутри транзакции.
+     */
+    void mergeSketches(Map<ActivitySketchId, byte[]> sketches);
+}
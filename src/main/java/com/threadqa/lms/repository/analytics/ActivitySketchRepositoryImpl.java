@@ -0,0 +1,77 @@
+package com.threadqa.lms.repository.analytics;
+
+import com.threadqa.lms.model.analytics.ActivitySketchId;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+@Repository
+@RequiredArgsConstructor
+public class ActivitySketchRepositoryImpl implements ActivitySketchRepositoryExtensions {
+
+    private static final Comparator<ActivitySketchId> LOCK_ORDER = Comparator
+            .comparing(ActivitySketchId::getScope)
+            .thenComparing(ActivitySketchId::getScopeId)
+            .thenComparing(ActivitySketchId::getDay);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void mergeSketches(Map<ActivitySketchId, byte[]> sketches) {
+        List<ActivitySketchId> keys = new ArrayList<>(sketches.keySet());
+        keys.sort(LOCK_ORDER);
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+
+        for (ActivitySketchId key : keys) {
+            byte[] registers = sketches.get(key);
+            Object[] id = {key.getScope().name(), key.getScopeId(), Date.valueOf(key.getDay())};
+
+            int inserted = jdbcTemplate.update(
+                    "INSERT INTO activity_sketches (scope, scope_id, day, registers, updated_at) " +
+                    "VALUES (?, ?, ?, ?, ?) ON CONFLICT (scope, scope_id, day) DO NOTHING",
+                    id[0], id[1], id[2], registers, now);
+            if (inserted > 0) {
+                continue;
+            }
+
+            // Скетч уже есть: объединяем под блокировкой строки, чтобы не потерять регистры другого узла
+            byte[] stored = jdbcTemplate.queryForObject(
+                    "SELECT registers FROM activity_sketches WHERE scope = ? AND scope_id = ? AND day = ? FOR UPDATE",
+                    byte[].class, id);
+            byte[] merged = max(stored, registers);
+            if (merged != stored) {
+                jdbcTemplate.update(
+                        "UPDATE activity_sketches SET registers = ?, updated_at = ? " +
+                        "WHERE scope = ? AND scope_id = ? AND day = ?",
+                        merged, now, id[0], id[1], id[2]);
+            }
+        }
+    }
+
+    /**
+     * Поэлементный максимум регистров; возвращает stored, если он не изменился
+     */
+    private static byte[] max(byte[] stored, byte[] registers) {
+        if (stored == null || stored.length != registers.length) {
+            return registers;
+        }
+        byte[] merged = stored;
+        for (int i = 0; i < registers.length; i++) {
+            if (registers[i] > merged[i]) {
+                if (merged == stored) {
+                    merged = stored.clone();
+                }
+                merged[i] = registers[i];
+            }
+        }
+        return merged;
+    }
+}
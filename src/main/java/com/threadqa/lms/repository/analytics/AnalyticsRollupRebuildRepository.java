@@ -0,0 +1,21 @@
+package com.threadqa.lms.repository.analytics;
+
+import com.threadqa.lms.model.analytics.AnalyticsRollupRebuild;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.ZonedDateTime;
+import java.util.List;
+
+@Repository
+public interface AnalyticsRollupRebuildRepository extends JpaRepository<AnalyticsRollupRebuild, Long> {
+
+    List<AnalyticsRollupRebuild> findByIdGreaterThanOrderById(Long epoch);
+
+    @Modifying
+    @Query("DELETE FROM AnalyticsRollupRebuild r WHERE r.rebuiltAt < :before")
+    int deleteRebuiltBefore(@Param("before") ZonedDateTime before);
+}
@@ -0,0 +1,29 @@
+package com.threadqa.lms.repository.analytics;
+
+import com.threadqa.lms.model.analytics.AnalyticsRollup;
+import com.threadqa.lms.model.analytics.AnalyticsRollupId;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface AnalyticsRollupRepository extends JpaRepository<AnalyticsRollup, AnalyticsRollupId>,
+        AnalyticsRollupRepositoryExtensions {
+
+    @Query("SELECT r FROM AnalyticsRollup r WHERE r.id.scope = :scope AND r.id.scopeId = :scopeId " +
+            "AND r.id.granularity = :granularity AND r.id.bucket >= :from ORDER BY r.id.bucket")
+    List<AnalyticsRollup> findSeries(@Param("scope") AnalyticsRollup.Scope scope,
+                                     @Param("scopeId") Long scopeId,
+                                     @Param("granularity") AnalyticsRollup.Granularity granularity,
+                                     @Param("from") LocalDate from);
+
+    @Modifying
+    @Query("DELETE FROM AnalyticsRollup r WHERE r.id.granularity = :granularity AND r.id.bucket < :before")
+    int deleteOlderThan(@Param("granularity") AnalyticsRollup.Granularity granularity,
+                        @Param("before") LocalDate before);
+}
@@ -0,0 +1,59 @@
+package com.threadqa.lms.repository.analytics;
+
+import com.threadqa.lms.model.analytics.AnalyticsRollupId;
+
+import java.time.LocalDate;
+import java.time.ZonedDateTime;
+import java.util.Map;
+
+public interface AnalyticsRollupRepositoryExtensions {
+
+    /**
+     * Прибавляет приращения к показателям одним пакетным upsert.
+     * Строки обновляются в фиксированном порядке, чтобы параллельные сбросы не блокировали друг друга.
+     */
+    void applyDeltas(Map<AnalyticsRollupId, RollupDelta> deltas);
+
+    /**
+     * Пытается стать единственным узлом, выполняющим пересчет, до конца текущей транзакции
+     */
+    boolean tryLockRollups();
+
+    /**
+     * Берет разделяемую блокировку пересчета до конца текущей транзакции и возвращает номер
+     * последнего пересчета. Вызывается перед фиксацией транзакций, меняющих показатели, и при сбросе буфера:
+     * пересчет ждет их завершения, а они — завершения пересчета.
+     */
+    long lockForDeltas();
+
+    /**
+     * Пересчитывает по исходным таблицам дневные показатели за [dayFrom, dayUntil)
+     * и месячные за [monthFrom, monthUntil). Учитываются только факты раньше watermark,
+     * дни и месяцы считаются в часовом поясе watermark. Вызывать внутри транзакции:
+     * берет исключительную блокировку пересчета и держит ее до фиксации.
+     *
+     * @return количество записанных строк
+     */
+    int rebuild(LocalDate dayFrom, LocalDate dayUntil, LocalDate monthFrom, LocalDate monthUntil,
+                ZonedDateTime watermark);
+
+    /**
+     * Приращение показателей одного периода
+     */
+    record RollupDelta(long signups, long coursesCreated, long enrollments, long completions, double progressSum) {
+
+        public RollupDelta plus(RollupDelta other) {
+            return new RollupDelta(signups + other.signups, coursesCreated + other.coursesCreated,
+                    enrollments + other.enrollments, completions + other.completions,
+                    progressSum + other.progressSum);
+        }
+
+        public RollupDelta negate() {
+            return new RollupDelta(-signups, -coursesCreated, -enrollments, -completions, -progressSum);
+        }
+
+        public boolean isZero() {
+            return signups == 0 && coursesCreated == 0 && enrollments == 0 && completions == 0 && progressSum == 0;
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.threadqa.lms.repository.analytics;
+
+import com.threadqa.lms.model.analytics.AnalyticsRollupId;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+@Repository
+@RequiredArgsConstructor
+public class AnalyticsRollupRepositoryImpl implements AnalyticsRollupRepositoryExtensions {
+
+    /**
+     * Ключ advisory-блокировки пересчета показателей
+     */
+    private static final long ROLLUP_REBUILD_LOCK = 0xA7A1_0001L;
+
+    /**
+     * Ключ advisory-блокировки выбора узла, выполняющего пересчет
+     */
+    private static final long ROLLUP_RECONCILE_LOCK = 0xA7A1_0002L;
+
+    private static final Comparator<AnalyticsRollupId> LOCK_ORDER = Comparator
+            .comparing(AnalyticsRollupId::getScope)
+            .thenComparing(AnalyticsRollupId::getScopeId)
+            .thenComparing(AnalyticsRollupId::getGranularity)
+            .thenComparing(AnalyticsRollupId::getBucket);
+
+    /**
+     * Все факты для пересчета в интервале [?, ?): регистрации и новые курсы идут в системные показатели,
+     * зачисления и завершения — одновременно в системные, курса и пользователя
+     */
+    private static final String FACTS_SQL =
+            "WITH facts AS (" +
+            "SELECT u.created_at AS at, 'SYSTEM' AS scope, CAST(0 AS bigint) AS scope_id, " +
+            "1 AS signups, 0 AS courses_created, 0 AS enrollments, 0 AS completions, " +
+            "CAST(0 AS double precision) AS progress FROM users u WHERE u.created_at >= ? AND u.created_at < ? " +
+            "UNION ALL SELECT c.created_at, 'SYSTEM', 0, 0, 1, 0, 0, 0 FROM courses c WHERE c.created_at >= ? AND c.created_at < ? " +
+            "UNION ALL SELECT e.enrolled_at, s.scope, s.scope_id, 0, 0, 1, 0, COALESCE(e.progress, 0) " +
+            "FROM course_enrollments e CROSS JOIN LATERAL " +
+            "(VALUES ('SYSTEM', CAST(0 AS bigint)), ('COURSE', e.course_id), ('USER', e.user_id)) s(scope, scope_id) " +
+            "WHERE e.enrolled_at >= ? AND e.enrolled_at < ? " +
+            "UNION ALL SELECT e.completed_at, s.scope, s.scope_id, 0, 0, 0, 1, 0 " +
+            "FROM course_enrollments e CROSS JOIN LATERAL " +
+            "(VALUES ('SYSTEM', CAST(0 AS bigint)), ('COURSE', e.course_id), ('USER', e.user_id)) s(scope, scope_id) " +
+            "WHERE e.completed_at >= ? AND e.completed_at < ?) ";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public void applyDeltas(Map<AnalyticsRollupId, RollupDelta> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+
+        List<AnalyticsRollupId> keys = new ArrayList<>(deltas.keySet());
+        keys.sort(LOCK_ORDER);
+
+        List<Object[]> args = new ArrayList<>(keys.size());
+        for (AnalyticsRollupId key : keys) {
+            RollupDelta delta = deltas.get(key);
+            args.add(new Object[]{
+                    key.getScope().name(), key.getScopeId(), key.getGranularity().name(), Date.valueOf(key.getBucket()),
+                    delta.signups(), delta.coursesCreated(), delta.enrollments(), delta.completions(),
+                    delta.progressSum()
+            });
+        }
+
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO analytics_rollups (scope, scope_id, granularity, bucket, " +
+                "signups, courses_created, enrollments, completions, progress_sum) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?) " +
+                "ON CONFLICT (scope, scope_id, granularity, bucket) DO UPDATE SET " +
+                "signups = analytics_rollups.signups + EXCLUDED.signups, " +
+                "courses_created = analytics_rollups.courses_created + EXCLUDED.courses_created, " +
+                "enrollments = analytics_rollups.enrollments + EXCLUDED.enrollments, " +
+                "completions = analytics_rollups.completions + EXCLUDED.completions, " +
+                "progress_sum = analytics_rollups.progress_sum + EXCLUDED.progress_sum",
+                args);
+    }
+
+    @Override
+    public boolean tryLockRollups() {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT pg_try_advisory_xact_lock(?)", Boolean.class, ROLLUP_RECONCILE_LOCK));
+    }
+
+    @Override
+    public long lockForDeltas() {
+        // Изменения сущностей записываются до блокировки: пока она удерживается, транзакция
+        // не ждет блокировок строк, и пересчет не может оказаться в цикле ожидания
+        entityManager.flush();
+        jdbcTemplate.queryForList("SELECT pg_advisory_xact_lock_shared(?)", ROLLUP_REBUILD_LOCK);
+        Long epoch = jdbcTemplate.queryForObject(
+                "SELECT COALESCE(MAX(id), 0) FROM analytics_rollup_rebuilds", Long.class);
+        return epoch != null ? epoch : 0L;
+    }
+
+    @Override
+    public int rebuild(LocalDate dayFrom, LocalDate dayUntil, LocalDate monthFrom, LocalDate monthUntil,
+                       ZonedDateTime watermark) {
+        Date day = Date.valueOf(dayFrom);
+        Date dayEnd = Date.valueOf(dayUntil);
+        Date month = Date.valueOf(monthFrom);
+        Date monthEnd = Date.valueOf(monthUntil);
+        Timestamp since = Timestamp.from(monthFrom.atStartOfDay(watermark.getZone()).toInstant());
+        Timestamp until = Timestamp.from(watermark.toInstant());
+
+        // Ждем завершения сбросов буферов и транзакций, уже взявших эпоху, новые ждут конца пересчета
+        jdbcTemplate.queryForList("SELECT pg_advisory_xact_lock(?)", ROLLUP_REBUILD_LOCK);
+        jdbcTemplate.update(
+                "DELETE FROM analytics_rollups " +
+                "WHERE (granularity = 'DAY' AND bucket >= ? AND bucket < ?) " +
+                "OR (granularity = 'MONTH' AND bucket >= ? AND bucket < ?)",
+                day, dayEnd, month, monthEnd);
+
+        return jdbcTemplate.update(
+                FACTS_SQL +
+                "INSERT INTO analytics_rollups (scope, scope_id, granularity, bucket, " +
+                "signups, courses_created, enrollments, completions, progress_sum) " +
+                "SELECT f.scope, f.scope_id, g.granularity, g.bucket, SUM(f.signups), SUM(f.courses_created), " +
+                "SUM(f.enrollments), SUM(f.completions), SUM(f.progress) " +
+                "FROM facts f CROSS JOIN LATERAL " +
+                "(SELECT f.at AT TIME ZONE ?) l(local_at) CROSS JOIN LATERAL " +
+                "(VALUES ('DAY', CAST(l.local_at AS date)), " +
+                "('MONTH', CAST(date_trunc('month', l.local_at) AS date))) g(granularity, bucket) " +
+                "WHERE g.bucket >= CASE g.granularity WHEN 'DAY' THEN CAST(? AS date) ELSE CAST(? AS date) END " +
+                "AND g.bucket < CASE g.granularity WHEN 'DAY' THEN CAST(? AS date) ELSE CAST(? AS date) END " +
+                "GROUP BY f.scope, f.scope_id, g.granularity, g.bucket " +
+                "ON CONFLICT (scope, scope_id, granularity, bucket) DO UPDATE SET " +
+                "signups = EXCLUDED.signups, courses_created = EXCLUDED.courses_created, " +
+                "enrollments = EXCLUDED.enrollments, completions = EXCLUDED.completions, " +
+                "progress_sum = EXCLUDED.progress_sum",
+                since, until, since, until, since, until, since, until,
+                watermark.getZone().getId(), day, month, dayEnd, monthEnd);
+    }
+}
@@ -0,0 +1,82 @@
+package com.threadqa.lms.repository.gamification;
+
+import com.threadqa.lms.model.gamification.GamificationEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.ZonedDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface GamificationEventRepository extends JpaRepository<GamificationEvent, Long>, GamificationEventRepositoryExtensions {
+
+    /**
+     * Добавляет событие, если такой ключ еще не публиковался. Ключ сохраняется в gamification_event_keys,
+     * которая не очищается, поэтому повтор отбрасывается и после удаления обработанного события.
+     */
+    @Modifying
+    @Query(value = "WITH k AS (INSERT INTO gamification_event_keys (idempotency_key, created_at) " +
+            "VALUES (:idempotencyKey, now()) ON CONFLICT (idempotency_key) DO NOTHING RETURNING idempotency_key) " +
+            "INSERT INTO gamification_events " +
+            "(user_id, event_type, idempotency_key, entity_id, event_value, attempts, created_at) " +
+            "SELECT :userId, :eventType, k.idempotency_key, :entityId, :value, 0, now() FROM k " +
+            "ON CONFLICT (idempotency_key) DO NOTHING", nativeQuery = true)
+    int enqueue(@Param("userId") Long userId,
+                @Param("eventType") String eventType,
+                @Param("idempotencyKey") String idempotencyKey,
+                @Param("entityId") Long entityId,
+                @Param("value") Integer value);
+
+    /**
+     * Пользователи с необработанными событиями, начиная с самых давних.
+     * Пользователь пропускается, пока одно из его событий ожидает повторной попытки,
+     * чтобы события обрабатывались строго по порядку.
+     */
+    @Query(value = "SELECT user_id FROM gamification_events " +
+            "WHERE processed_at IS NULL AND dead_lettered_at IS NULL " +
+            "GROUP BY user_id HAVING bool_and(next_attempt_at IS NULL OR next_attempt_at <= now()) " +
+            "ORDER BY MIN(id) LIMIT :limit", nativeQuery = true)
+    List<Long> findUsersWithPendingEvents(@Param("limit") int limit);
+
+    @Query("SELECT e FROM GamificationEvent e WHERE e.userId = :userId " +
+            "AND e.processedAt IS NULL AND e.deadLetteredAt IS NULL ORDER BY e.id")
+    List<GamificationEvent> findPendingEvents(@Param("userId") Long userId, Pageable pageable);
+
+    @Modifying
+    @Query("UPDATE GamificationEvent e SET e.processedAt = :processedAt WHERE e.id IN :ids")
+    int markProcessed(@Param("ids") Collection<Long> ids, @Param("processedAt") ZonedDateTime processedAt);
+
+    /**
+     * Фиксирует ошибку обработки и откладывает следующую попытку до nextAttemptAt.
+     * После maxAttempts попыток событие переводится в dead letter,
+     * чтобы не блокировать остальные события пользователя.
+     */
+    @Modifying
+    @Query(value = "UPDATE gamification_events SET attempts = attempts + 1, last_error = :error, " +
+            "next_attempt_at = :nextAttemptAt, " +
+            "dead_lettered_at = CASE WHEN attempts + 1 >= :maxAttempts THEN now() END " +
+            "WHERE id = :id AND processed_at IS NULL", nativeQuery = true)
+    int recordFailure(@Param("id") Long id,
+                      @Param("error") String error,
+                      @Param("nextAttemptAt") ZonedDateTime nextAttemptAt,
+                      @Param("maxAttempts") int maxAttempts);
+
+    /**
+     * Переносит ключи обработанных событий в gamification_event_keys перед их удалением.
+     * Нужно для событий, опубликованных до появления этой таблицы.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO gamification_event_keys (idempotency_key, created_at) " +
+            "SELECT e.idempotency_key, e.created_at FROM gamification_events e WHERE e.processed_at < :before " +
+            "ON CONFLICT (idempotency_key) DO NOTHING", nativeQuery = true)
+    int retainKeysProcessedBefore(@Param("before") ZonedDateTime before);
+
+    @Modifying
+    @Query("DELETE FROM GamificationEvent e WHERE e.processedAt < :before")
+    int deleteProcessedBefore(@Param("before") ZonedDateTime before);
+}
@@ -0,0 +1,9 @@
+package com.threadqa.lms.repository.gamification;
+
+public interface GamificationEventRepositoryExtensions {
+
+    /**
+     * Advisory-блокировка обработки событий пользователя до конца транзакции
+     */
+    boolean tryLockUser(Long userId);
+}
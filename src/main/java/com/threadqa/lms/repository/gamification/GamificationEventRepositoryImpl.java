@@ -0,0 +1,25 @@
+package com.threadqa.lms.repository.gamification;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+@Repository
+@RequiredArgsConstructor
+public class GamificationEventRepositoryImpl implements GamificationEventRepositoryExtensions {
+
+    /**
+     * Пространство ключей advisory-блокировок обработки событий геймификации
+     */
+    private static final int EVENT_LOCK_SPACE = 0x6A3E;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public boolean tryLockUser(Long userId) {
+        Boolean locked = jdbcTemplate.queryForObject(
+                "SELECT pg_try_advisory_xact_lock(?, ?)", Boolean.class,
+                EVENT_LOCK_SPACE, (int) (userId % Integer.MAX_VALUE));
+        return Boolean.TRUE.equals(locked);
+    }
+}
@@ -14,7 +14,7 @@ import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface LeaderboardEntryRepository extends JpaRepository<LeaderboardEntry, Long> {
+public interface LeaderboardEntryRepository extends JpaRepository<LeaderboardEntry, Long>, LeaderboardEntryRepositoryExtensions {
 
     List<LeaderboardEntry> findByLeaderboard(Leaderboard leaderboard);
 
@@ -0,0 +1,34 @@
+package com.threadqa.lms.repository.gamification;
+
+import com.threadqa.lms.model.gamification.Leaderboard;
+import com.threadqa.lms.util.RankedScoreIndex;
+
+import java.time.ZonedDateTime;
+import java.util.List;
+
+public interface LeaderboardEntryRepositoryExtensions {
+
+    /**
+     * Пытается получить advisory-блокировку таблицы лидеров до конца текущей транзакции
+     */
+    boolean tryLockLeaderboard(Long leaderboardId);
+
+    /**
+     * Заменяет все записи таблицы лидеров. Вставка выполняется JDBC-пакетами не больше batchSize строк.
+     * Должен вызываться внутри транзакции.
+     */
+    void replaceEntries(Long leaderboardId, ZonedDateTime periodStart, ZonedDateTime periodEnd,
+                        List<RankedScoreIndex.Entry> entries, int batchSize);
+
+    /**
+     * Пересобирает таблицу лидеров одним INSERT ... SELECT с RANK() OVER.
+     * Очки за все время берутся из user_point_totals (или из points, пока суммы не заполнены),
+     * за период - из дневных сумм user_daily_points. Должен вызываться внутри транзакции.
+     *
+     * @param totalsBackfilled заполнены ли суммы user_point_totals для всех пользователей
+     *
+     * @return количество записей в таблице
+     */
+    int rebuild(Long leaderboardId, Leaderboard.TimePeriod timePeriod, ZonedDateTime periodStart, ZonedDateTime periodEnd,
+                boolean totalsBackfilled);
+}
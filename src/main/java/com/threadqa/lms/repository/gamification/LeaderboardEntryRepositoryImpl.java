@@ -0,0 +1,89 @@
+package com.threadqa.lms.repository.gamification;
+
+import com.threadqa.lms.model.gamification.Leaderboard;
+import com.threadqa.lms.util.RankedScoreIndex;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.ZonedDateTime;
+import java.util.List;
+
+@Repository
+@RequiredArgsConstructor
+public class LeaderboardEntryRepositoryImpl implements LeaderboardEntryRepositoryExtensions {
+
+    /**
+     * Пространство ключей advisory-блокировок таблиц лидеров
+     */
+    private static final int LEADERBOARD_LOCK_SPACE = 0x1EAD;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public boolean tryLockLeaderboard(Long leaderboardId) {
+        Boolean locked = jdbcTemplate.queryForObject(
+                "SELECT pg_try_advisory_xact_lock(?, ?)", Boolean.class,
+                LEADERBOARD_LOCK_SPACE, leaderboardId.intValue());
+        return Boolean.TRUE.equals(locked);
+    }
+
+    @Override
+    public void replaceEntries(Long leaderboardId, ZonedDateTime periodStart, ZonedDateTime periodEnd,
+                               List<RankedScoreIndex.Entry> entries, int batchSize) {
+        jdbcTemplate.update("DELETE FROM leaderboard_entries WHERE leaderboard_id = ?", leaderboardId);
+
+        Timestamp start = Timestamp.from(periodStart.toInstant());
+        Timestamp end = Timestamp.from(periodEnd.toInstant());
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO leaderboard_entries " +
+                "(leaderboard_id, user_id, score, rank, period_start, period_end, created_at, updated_at) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?, ?)",
+                entries, batchSize, (statement, entry) -> {
+                    statement.setLong(1, leaderboardId);
+                    statement.setLong(2, entry.id());
+                    statement.setInt(3, entry.score());
+                    statement.setInt(4, entry.rank());
+                    statement.setTimestamp(5, start);
+                    statement.setTimestamp(6, end);
+                    statement.setTimestamp(7, now);
+                    statement.setTimestamp(8, now);
+                });
+    }
+
+    @Override
+    public int rebuild(Long leaderboardId, Leaderboard.TimePeriod timePeriod,
+                       ZonedDateTime periodStart, ZonedDateTime periodEnd, boolean totalsBackfilled) {
+        jdbcTemplate.update("DELETE FROM leaderboard_entries WHERE leaderboard_id = ?", leaderboardId);
+
+        String insert = "INSERT INTO leaderboard_entries " +
+                "(leaderboard_id, user_id, score, rank, period_start, period_end, created_at, updated_at) ";
+        Timestamp start = Timestamp.from(periodStart.toInstant());
+        Timestamp end = Timestamp.from(periodEnd.toInstant());
+
+        if (timePeriod == Leaderboard.TimePeriod.ALL_TIME && !totalsBackfilled) {
+            return jdbcTemplate.update(insert +
+                    "SELECT ?, p.user_id, CAST(SUM(p.amount) AS integer), " +
+                    "CAST(RANK() OVER (ORDER BY SUM(p.amount) DESC) AS integer), ?, ?, now(), now() " +
+                    "FROM points p GROUP BY p.user_id",
+                    leaderboardId, start, end);
+        }
+        if (timePeriod == Leaderboard.TimePeriod.ALL_TIME) {
+            return jdbcTemplate.update(insert +
+                    "SELECT ?, t.user_id, t.total_points, " +
+                    "CAST(RANK() OVER (ORDER BY t.total_points DESC) AS integer), ?, ?, now(), now() " +
+                    "FROM user_point_totals t",
+                    leaderboardId, start, end);
+        }
+
+        return jdbcTemplate.update(insert +
+                "SELECT ?, d.user_id, CAST(SUM(d.points) AS integer), " +
+                "CAST(RANK() OVER (ORDER BY SUM(d.points) DESC) AS integer), ?, ?, now(), now() " +
+                "FROM user_daily_points d WHERE d.day >= ? GROUP BY d.user_id",
+                leaderboardId, start, end, Date.valueOf(periodStart.toLocalDate()));
+    }
+}
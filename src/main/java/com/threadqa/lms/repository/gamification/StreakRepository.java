@@ -3,6 +3,7 @@ package com.threadqa.lms.repository.gamification;
 import com.threadqa.lms.model.gamification.Streak;
 import com.threadqa.lms.model.user.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
@@ -17,9 +18,24 @@ public interface StreakRepository extends JpaRepository<Streak, Long> {
 
     List<Streak> findByUser(User user);
 
+    @Query("SELECT s FROM Streak s WHERE s.user.id = :userId AND s.streakType = :streakType")
+    Optional<Streak> findByUserIdAndStreakType(Long userId, Streak.StreakType streakType);
+
     @Query("SELECT s FROM Streak s WHERE s.lastActivityDate < :cutoffDate")
     List<Streak> findStreaksToReset(ZonedDateTime cutoffDate);
 
+    /**
+     * Обнуляет серии без активности с cutoffDate. Пользователи с необработанными
+     * событиями входа пропускаются: их серию продолжит обработчик outbox.
+     */
+    @Modifying
+    @Query(value = "UPDATE streaks s SET current_streak = 0, updated_at = :now " +
+            "WHERE s.last_activity_date < :cutoffDate AND s.current_streak <> 0 " +
+            "AND NOT EXISTS (SELECT 1 FROM gamification_events e WHERE e.user_id = s.user_id " +
+            "AND e.event_type = 'LOGIN_RECORDED' AND e.processed_at IS NULL AND e.dead_lettered_at IS NULL)",
+            nativeQuery = true)
+    int resetStreaksBefore(ZonedDateTime cutoffDate, ZonedDateTime now);
+
     @Query("SELECT s FROM Streak s WHERE s.currentStreak >= :minStreak ORDER BY s.currentStreak DESC")
     List<Streak> findTopStreaks(Integer minStreak);
 
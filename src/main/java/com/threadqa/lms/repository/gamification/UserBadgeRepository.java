@@ -13,7 +13,7 @@ import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface UserBadgeRepository extends JpaRepository<UserBadge, Long> {
+public interface UserBadgeRepository extends JpaRepository<UserBadge, Long>, UserBadgeRepositoryExtensions {
 
     List<UserBadge> findByUser(User user);
 
@@ -23,6 +23,13 @@ public interface UserBadgeRepository extends JpaRepository<UserBadge, Long> {
 
     Optional<UserBadge> findByUserAndBadge(User user, Badge badge);
 
+    @Query("SELECT ub FROM UserBadge ub JOIN FETCH ub.badge JOIN FETCH ub.user " +
+            "WHERE ub.user.id = :userId ORDER BY ub.awardedAt DESC")
+    List<UserBadge> findRecentByUserId(Long userId, Pageable pageable);
+
+    @Query("SELECT ub.badge.id FROM UserBadge ub WHERE ub.user.id = :userId")
+    List<Long> findBadgeIdsByUser(Long userId);
+
     @Query("SELECT COUNT(ub) FROM UserBadge ub WHERE ub.user.id = :userId")
     Long countBadgesByUser(Long userId);
 
@@ -31,7 +38,4 @@ public interface UserBadgeRepository extends JpaRepository<UserBadge, Long> {
 
     @Query("SELECT u.id, COUNT(ub) FROM UserBadge ub JOIN ub.user u GROUP BY u.id ORDER BY COUNT(ub) DESC")
     List<Object[]> getUsersWithBadgeCounts();
-
-    @Query("SELECT ub FROM UserBadge ub WHERE ub.notificationSent = false")
-    List<UserBadge> findByNotificationSentFalse();
 }
@@ -0,0 +1,34 @@
+package com.threadqa.lms.repository.gamification;
+
+import java.time.ZonedDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface UserBadgeRepositoryExtensions {
+
+    /**
+     * Выдает пользователю набор значков одним запросом.
+     * Значки, которые у пользователя уже есть, пропускаются.
+     *
+     * @return идентификаторы фактически выданных значков
+     */
+    List<Long> insertUserBadges(Long userId, Collection<Long> badgeIds, ZonedDateTime awardedAt);
+
+    /**
+     * Захватывает следующую пачку значков, по которым не отправлены уведомления.
+     * Строки выбираются по возрастанию id после afterId и блокируются с SKIP LOCKED,
+     * поэтому несколько узлов разбирают очередь без пересечений. Вызывать внутри транзакции.
+     */
+    List<PendingBadgeNotification> claimPendingNotifications(long afterId, int limit);
+
+    /**
+     * Отмечает уведомления по значкам отправленными одним запросом
+     */
+    int markNotificationsSent(Collection<Long> userBadgeIds);
+
+    /**
+     * Значок, по которому нужно отправить уведомление
+     */
+    record PendingBadgeNotification(Long userBadgeId, Long userId, String badgeName, String badgeDescription) {
+    }
+}
@@ -0,0 +1,65 @@
+package com.threadqa.lms.repository.gamification;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.ZonedDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+@RequiredArgsConstructor
+public class UserBadgeRepositoryImpl implements UserBadgeRepositoryExtensions {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public List<Long> insertUserBadges(Long userId, Collection<Long> badgeIds, ZonedDateTime awardedAt) {
+        if (badgeIds.isEmpty()) {
+            return List.of();
+        }
+
+        return jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(
+                    "INSERT INTO user_badges (user_id, badge_id, awarded_at, is_displayed, notification_sent) " +
+                    "SELECT ?, b.badge_id, ?, true, false FROM unnest(?) AS b(badge_id) " +
+                    "WHERE NOT EXISTS (SELECT 1 FROM user_badges ub WHERE ub.user_id = ? AND ub.badge_id = b.badge_id) " +
+                    "RETURNING badge_id");
+            statement.setLong(1, userId);
+            statement.setTimestamp(2, Timestamp.from(awardedAt.toInstant()));
+            statement.setArray(3, connection.createArrayOf("bigint", badgeIds.toArray()));
+            statement.setLong(4, userId);
+            return statement;
+        }, (rs, rowNum) -> rs.getLong(1));
+    }
+
+    @Override
+    public List<PendingBadgeNotification> claimPendingNotifications(long afterId, int limit) {
+        return jdbcTemplate.query(
+                "SELECT ub.id, ub.user_id, b.name, b.description FROM user_badges ub " +
+                "JOIN badges b ON b.id = ub.badge_id " +
+                "WHERE ub.notification_sent = false AND ub.id > ? " +
+                "ORDER BY ub.id LIMIT ? " +
+                "FOR UPDATE OF ub SKIP LOCKED",
+                (rs, rowNum) -> new PendingBadgeNotification(
+                        rs.getLong(1), rs.getLong(2), rs.getString(3), rs.getString(4)),
+                afterId, limit);
+    }
+
+    @Override
+    public int markNotificationsSent(Collection<Long> userBadgeIds) {
+        if (userBadgeIds.isEmpty()) {
+            return 0;
+        }
+
+        return jdbcTemplate.update(connection -> {
+            PreparedStatement statement = connection.prepareStatement(
+                    "UPDATE user_badges SET notification_sent = true WHERE id = ANY(?)");
+            statement.setArray(1, connection.createArrayOf("bigint", userBadgeIds.toArray()));
+            return statement;
+        });
+    }
+}
@@ -0,0 +1,53 @@
+package com.threadqa.lms.repository.gamification;
+
+import com.threadqa.lms.model.gamification.UserDailyPoints;
+import com.threadqa.lms.model.gamification.UserDailyPointsId;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.time.ZonedDateTime;
+import java.util.List;
+
+@Repository
+public interface UserDailyPointsRepository extends JpaRepository<UserDailyPoints, UserDailyPointsId> {
+
+    /**
+     * Атомарно прибавляет очки к дневной сумме пользователя
+     */
+    @Modifying
+    @Query(value = "INSERT INTO user_daily_points (user_id, day, points) VALUES (:userId, :day, :amount) " +
+            "ON CONFLICT (user_id, day) DO UPDATE SET points = user_daily_points.points + EXCLUDED.points",
+            nativeQuery = true)
+    int addPoints(@Param("userId") Long userId, @Param("day") LocalDate day, @Param("amount") Integer amount);
+
+    @Query("SELECT d.id.userId, SUM(d.points) as total FROM UserDailyPoints d WHERE d.id.day >= :startDay " +
+            "GROUP BY d.id.userId ORDER BY total DESC")
+    List<Object[]> getUsersWithTotalPointsSince(@Param("startDay") LocalDate startDay);
+
+    @Modifying
+    @Query("DELETE FROM UserDailyPoints d WHERE d.id.day < :day")
+    int deleteOlderThan(@Param("day") LocalDate day);
+
+    @Query(value = "SELECT DISTINCT p.user_id FROM points p WHERE p.created_at >= :since ORDER BY p.user_id",
+            nativeQuery = true)
+    List<Long> findUserIdsWithPointsSince(@Param("since") ZonedDateTime since);
+
+    /**
+     * Пересчитывает дневные суммы пользователей по таблице points, начиная с указанного момента.
+     * Существующие суммы перезаписываются. Дни считаются в часовом поясе zone.
+     * Суммы пользователей должны быть заблокированы, чтобы не потерять параллельные начисления.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO user_daily_points (user_id, day, points) " +
+            "SELECT p.user_id, CAST(p.created_at AT TIME ZONE :zone AS date), SUM(p.amount) FROM points p " +
+            "WHERE p.user_id IN (:userIds) AND p.created_at >= :since " +
+            "GROUP BY p.user_id, CAST(p.created_at AT TIME ZONE :zone AS date) " +
+            "ON CONFLICT (user_id, day) DO UPDATE SET points = EXCLUDED.points", nativeQuery = true)
+    int rebuildSince(@Param("userIds") List<Long> userIds,
+                     @Param("since") ZonedDateTime since,
+                     @Param("zone") String zone);
+}
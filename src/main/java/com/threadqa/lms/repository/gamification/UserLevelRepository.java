@@ -6,6 +6,7 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -16,6 +17,9 @@ public interface UserLevelRepository extends JpaRepository<UserLevel, Long> {
     @Query("SELECT ul FROM UserLevel ul WHERE ul.user.id = :userId")
     Optional<UserLevel> findByUserId(Long userId);
 
+    @Query("SELECT ul FROM UserLevel ul JOIN FETCH ul.level WHERE ul.user.id = :userId")
+    Optional<UserLevel> findWithLevelByUserId(Long userId);
+
     @Query("SELECT AVG(ul.level.levelNumber) FROM UserLevel ul")
     Double getAverageUserLevel();
 
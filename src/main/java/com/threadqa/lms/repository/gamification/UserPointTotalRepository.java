@@ -0,0 +1,69 @@
+package com.threadqa.lms.repository.gamification;
+
+import com.threadqa.lms.model.gamification.UserPointTotal;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface UserPointTotalRepository extends JpaRepository<UserPointTotal, Long> {
+
+    /**
+     * Атомарно прибавляет очки к сумме пользователя и возвращает новое значение.
+     * Если записи еще нет, она создается из суммы по таблице points,
+     * которая уже включает только что добавленную запись.
+     */
+    @Query(value = "INSERT INTO user_point_totals (user_id, total_points, updated_at) " +
+            "SELECT :userId, COALESCE(SUM(p.amount), 0), now() FROM points p WHERE p.user_id = :userId " +
+            "ON CONFLICT (user_id) DO UPDATE " +
+            "SET total_points = user_point_totals.total_points + :amount, updated_at = EXCLUDED.updated_at " +
+            "RETURNING total_points", nativeQuery = true)
+    Integer addPoints(@Param("userId") Long userId, @Param("amount") Integer amount);
+
+    /**
+     * Пользователи, у которых сохраненная сумма расходится с суммой по таблице points
+     * или отсутствует
+     */
+    @Query(value = "SELECT COALESCE(s.user_id, t.user_id) FROM " +
+            "(SELECT p.user_id, SUM(p.amount) AS total FROM points p GROUP BY p.user_id) s " +
+            "FULL OUTER JOIN user_point_totals t ON t.user_id = s.user_id " +
+            "WHERE t.user_id IS NULL OR COALESCE(s.total, 0) <> t.total_points", nativeQuery = true)
+    List<Long> findDriftedUserIds();
+
+    @Query(value = "SELECT total_points FROM user_point_totals WHERE user_id = :userId FOR UPDATE", nativeQuery = true)
+    Integer lockTotal(@Param("userId") Long userId);
+
+    /**
+     * Блокирует суммы пользователей в порядке id. Начисление блокирует ту же строку,
+     * поэтому до конца транзакции очки этим пользователям не начисляются.
+     */
+    @Query(value = "SELECT user_id FROM user_point_totals WHERE user_id IN (:userIds) ORDER BY user_id FOR UPDATE",
+            nativeQuery = true)
+    List<Long> lockTotals(@Param("userIds") List<Long> userIds);
+
+    @Modifying
+    @Query(value = "UPDATE user_point_totals SET total_points = :total, updated_at = now() WHERE user_id = :userId",
+            nativeQuery = true)
+    int setTotal(@Param("userId") Long userId, @Param("total") Integer total);
+
+    @Modifying
+    @Query(value = "INSERT INTO user_point_totals (user_id, total_points, updated_at) VALUES (:userId, :total, now()) " +
+            "ON CONFLICT (user_id) DO NOTHING", nativeQuery = true)
+    int insertIfAbsent(@Param("userId") Long userId, @Param("total") Integer total);
+
+    /**
+     * Создает суммы для всех пользователей с очками, у которых суммы еще нет
+     */
+    @Modifying
+    @Query(value = "INSERT INTO user_point_totals (user_id, total_points, updated_at) " +
+            "SELECT p.user_id, SUM(p.amount), now() FROM points p GROUP BY p.user_id " +
+            "ON CONFLICT (user_id) DO NOTHING", nativeQuery = true)
+    int backfillMissing();
+
+    @Query("SELECT t.userId, t.totalPoints FROM UserPointTotal t ORDER BY t.totalPoints DESC")
+    List<Object[]> getUsersWithTotalPoints();
+}
@@ -12,7 +12,7 @@ import org.springframework.stereotype.Repository;
 import java.time.ZonedDateTime;
 
 @Repository
-public interface NotificationRepository extends JpaRepository<Notification, Long> {
+public interface NotificationRepository extends JpaRepository<Notification, Long>, NotificationRepositoryExtensions {
 
     Page<Notification> findByUserOrderByCreatedAtDesc(User user, Pageable pageable);
 
@@ -0,0 +1,20 @@
+package com.threadqa.lms.repository.notification;
+
+import java.time.ZonedDateTime;
+import java.util.List;
+
+public interface NotificationRepositoryExtensions {
+
+    /**
+     * Сохраняет пачку уведомлений одним пакетным запросом
+     *
+     * @return идентификаторы созданных уведомлений в порядке переданного списка
+     */
+    List<Long> insertNotifications(List<NewNotification> notifications, ZonedDateTime createdAt);
+
+    /**
+     * Новое непрочитанное уведомление
+     */
+    record NewNotification(Long userId, String title, String message, String type, String link) {
+    }
+}
@@ -0,0 +1,62 @@
+package com.threadqa.lms.repository.notification;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+@Repository
+@RequiredArgsConstructor
+public class NotificationRepositoryImpl implements NotificationRepositoryExtensions {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public List<Long> insertNotifications(List<NewNotification> notifications, ZonedDateTime createdAt) {
+        if (notifications.isEmpty()) {
+            return List.of();
+        }
+
+        Timestamp timestamp = Timestamp.from(createdAt.toInstant());
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(
+                connection -> connection.prepareStatement(
+                        "INSERT INTO notifications (user_id, title, message, type, link, is_read, created_at) " +
+                        "VALUES (?, ?, ?, ?, ?, false, ?)",
+                        new String[]{"id"}),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement statement, int i) throws SQLException {
+                        NewNotification notification = notifications.get(i);
+                        statement.setLong(1, notification.userId());
+                        statement.setString(2, notification.title());
+                        statement.setString(3, notification.message());
+                        statement.setString(4, notification.type());
+                        statement.setString(5, notification.link());
+                        statement.setTimestamp(6, timestamp);
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return notifications.size();
+                    }
+                },
+                keyHolder);
+
+        List<Long> ids = new ArrayList<>(notifications.size());
+        for (Map<String, Object> keys : keyHolder.getKeyList()) {
+            ids.add(((Number) keys.get("id")).longValue());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,10 @@
+package com.threadqa.lms.repository.progress;
+
+import com.threadqa.lms.model.progress.LessonEngagementEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface LessonEngagementEventRepository extends JpaRepository<LessonEngagementEvent, Long>,
+        LessonEngagementEventRepositoryExtensions {
+}
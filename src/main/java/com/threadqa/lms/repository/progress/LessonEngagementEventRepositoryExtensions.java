@@ -0,0 +1,34 @@
+package com.threadqa.lms.repository.progress;
+
+import com.threadqa.lms.model.progress.LessonEngagementEvent.EventType;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+public interface LessonEngagementEventRepositoryExtensions {
+
+    /**
+     * Сохраняет события одним многострочным INSERT. События по несуществующим урокам отбрасываются,
+     * курс определяется по уроку.
+     *
+     * @return количество сохраненных событий
+     */
+    int insertEvents(List<EngagementEvent> events);
+
+    /**
+     * Пары пользователь-урок из событий, для которых пользователь зачислен на курс урока
+     */
+    Set<UserTopic> findEnrolledTopics(List<EngagementEvent> events);
+
+    record EngagementEvent(long userId, long topicId, EventType type, Integer positionSeconds,
+                           Integer elapsedSeconds, LocalDateTime occurredAt, LocalDateTime receivedAt) {
+
+        public UserTopic userTopic() {
+            return new UserTopic(userId, topicId);
+        }
+    }
+
+    record UserTopic(long userId, long topicId) {
+    }
+}
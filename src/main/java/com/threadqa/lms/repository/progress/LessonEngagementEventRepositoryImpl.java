@@ -0,0 +1,99 @@
+package com.threadqa.lms.repository.progress;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+@Repository
+@RequiredArgsConstructor
+public class LessonEngagementEventRepositoryImpl implements LessonEngagementEventRepositoryExtensions {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public int insertEvents(List<EngagementEvent> events) {
+        if (events.isEmpty()) {
+            return 0;
+        }
+
+        int size = events.size();
+        Long[] userIds = new Long[size];
+        Long[] topicIds = new Long[size];
+        String[] types = new String[size];
+        Integer[] positions = new Integer[size];
+        Integer[] elapsed = new Integer[size];
+        Timestamp[] occurredAt = new Timestamp[size];
+        Timestamp[] receivedAt = new Timestamp[size];
+        for (int i = 0; i < size; i++) {
+            EngagementEvent event = events.get(i);
+            userIds[i] = event.userId();
+            topicIds[i] = event.topicId();
+            types[i] = event.type().name();
+            positions[i] = event.positionSeconds();
+            elapsed[i] = event.elapsedSeconds();
+            occurredAt[i] = Timestamp.valueOf(event.occurredAt());
+            receivedAt[i] = Timestamp.valueOf(event.receivedAt());
+        }
+
+        // Весь пакет передается массивами в одном запросе вместо отдельной строки VALUES на событие
+        return jdbcTemplate.update(connection -> {
+            PreparedStatement statement = connection.prepareStatement(
+                    "INSERT INTO lesson_engagement_events (user_id, course_id, topic_id, event_type, " +
+                    "position_seconds, elapsed_seconds, occurred_at, received_at) " +
+                    "SELECT e.user_id, t.course_id, e.topic_id, e.event_type, " +
+                    "e.position_seconds, e.elapsed_seconds, e.occurred_at, e.received_at " +
+                    "FROM unnest(?, ?, ?, ?, ?, ?, ?) " +
+                    "AS e(user_id, topic_id, event_type, position_seconds, elapsed_seconds, occurred_at, received_at) " +
+                    "JOIN topics t ON t.id = e.topic_id");
+            statement.setArray(1, connection.createArrayOf("bigint", userIds));
+            statement.setArray(2, connection.createArrayOf("bigint", topicIds));
+            statement.setArray(3, connection.createArrayOf("varchar", types));
+            statement.setArray(4, connection.createArrayOf("integer", positions));
+            statement.setArray(5, connection.createArrayOf("integer", elapsed));
+            statement.setArray(6, connection.createArrayOf("timestamp", occurredAt));
+            statement.setArray(7, connection.createArrayOf("timestamp", receivedAt));
+            return statement;
+        });
+    }
+
+    @Override
+    public Set<UserTopic> findEnrolledTopics(List<EngagementEvent> events) {
+        Set<UserTopic> pairs = new LinkedHashSet<>();
+        for (EngagementEvent event : events) {
+            pairs.add(event.userTopic());
+        }
+        if (pairs.isEmpty()) {
+            return Set.of();
+        }
+
+        Long[] userIds = new Long[pairs.size()];
+        Long[] topicIds = new Long[pairs.size()];
+        int i = 0;
+        for (UserTopic pair : pairs) {
+            userIds[i] = pair.userId();
+            topicIds[i] = pair.topicId();
+            i++;
+        }
+
+        Set<UserTopic> enrolled = new HashSet<>();
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(
+                    "SELECT p.user_id, p.topic_id FROM unnest(?, ?) AS p(user_id, topic_id) " +
+                    "WHERE EXISTS (SELECT 1 FROM topics t JOIN course_enrollments ce ON ce.course_id = t.course_id " +
+                    "WHERE t.id = p.topic_id AND ce.user_id = p.user_id)");
+            statement.setArray(1, connection.createArrayOf("bigint", userIds));
+            statement.setArray(2, connection.createArrayOf("bigint", topicIds));
+            return statement;
+        }, rs -> {
+            enrolled.add(new UserTopic(rs.getLong("user_id"), rs.getLong("topic_id")));
+        });
+        return enrolled;
+    }
+}
@@ -0,0 +1,39 @@
+package com.threadqa.lms.repository.progress;
+
+import com.threadqa.lms.model.progress.LessonEngagementStats;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface LessonEngagementStatsRepository extends JpaRepository<LessonEngagementStats, Long>,
+        LessonEngagementStatsRepositoryExtensions {
+
+    /**
+     * Показатели по всем урокам курса в порядке уроков, включая уроки без событий
+     */
+    @Query("SELECT t.id AS topicId, t.title AS topicTitle, COALESCE(s.views, 0) AS views, " +
+            "COALESCE(s.completions, 0) AS completions, " +
+            "COALESCE(s.completionTimeSeconds, 0) AS completionTimeSeconds, " +
+            "COALESCE(s.completionTimeSamples, 0) AS completionTimeSamples " +
+            "FROM Topic t LEFT JOIN LessonEngagementStats s ON s.topicId = t.id " +
+            "WHERE t.course.id = :courseId ORDER BY t.orderIndex")
+    List<TopicEngagement> findTopicEngagementByCourseId(@Param("courseId") Long courseId);
+
+    interface TopicEngagement {
+        Long getTopicId();
+
+        String getTopicTitle();
+
+        Long getViews();
+
+        Long getCompletions();
+
+        Long getCompletionTimeSeconds();
+
+        Long getCompletionTimeSamples();
+    }
+}
@@ -0,0 +1,23 @@
+package com.threadqa.lms.repository.progress;
+
+import java.util.Map;
+
+public interface LessonEngagementStatsRepositoryExtensions {
+
+    /**
+     * Прибавляет приращения к показателям уроков (topicId -> приращение).
+     * Приращения по несуществующим урокам отбрасываются.
+     */
+    void applyDeltas(Map<Long, StatsDelta> deltasByTopicId);
+
+    record StatsDelta(long views, long plays, long pauses, long seeks, long completions,
+                      long completionTimeSeconds, long completionTimeSamples) {
+
+        public StatsDelta plus(StatsDelta other) {
+            return new StatsDelta(views + other.views, plays + other.plays, pauses + other.pauses,
+                    seeks + other.seeks, completions + other.completions,
+                    completionTimeSeconds + other.completionTimeSeconds,
+                    completionTimeSamples + other.completionTimeSamples);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.threadqa.lms.repository.progress;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.util.Map;
+import java.util.TreeMap;
+
+@Repository
+@RequiredArgsConstructor
+public class LessonEngagementStatsRepositoryImpl implements LessonEngagementStatsRepositoryExtensions {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void applyDeltas(Map<Long, StatsDelta> deltasByTopicId) {
+        if (deltasByTopicId.isEmpty()) {
+            return;
+        }
+
+        // Строки обновляются в порядке id урока, чтобы параллельные записи не блокировали друг друга крест-накрест
+        Map<Long, StatsDelta> sorted = new TreeMap<>(deltasByTopicId);
+        int size = sorted.size();
+        Long[] topicIds = new Long[size];
+        Long[][] columns = new Long[7][size];
+        int i = 0;
+        for (Map.Entry<Long, StatsDelta> entry : sorted.entrySet()) {
+            StatsDelta delta = entry.getValue();
+            topicIds[i] = entry.getKey();
+            columns[0][i] = delta.views();
+            columns[1][i] = delta.plays();
+            columns[2][i] = delta.pauses();
+            columns[3][i] = delta.seeks();
+            columns[4][i] = delta.completions();
+            columns[5][i] = delta.completionTimeSeconds();
+            columns[6][i] = delta.completionTimeSamples();
+            i++;
+        }
+
+        jdbcTemplate.update(connection -> {
+            PreparedStatement statement = connection.prepareStatement(
+                    "INSERT INTO lesson_engagement_stats (topic_id, course_id, views, plays, pauses, seeks, " +
+                    "completions, completion_time_seconds, completion_time_samples, updated_at) " +
+                    "SELECT d.topic_id, t.course_id, d.views, d.plays, d.pauses, d.seeks, " +
+                    "d.completions, d.completion_time_seconds, d.completion_time_samples, CURRENT_TIMESTAMP " +
+                    "FROM unnest(?, ?, ?, ?, ?, ?, ?, ?) AS d(topic_id, views, plays, pauses, seeks, " +
+                    "completions, completion_time_seconds, completion_time_samples) " +
+                    "JOIN topics t ON t.id = d.topic_id ORDER BY d.topic_id " +
+                    "ON CONFLICT (topic_id) DO UPDATE SET " +
+                    "views = lesson_engagement_stats.views + EXCLUDED.views, " +
+                    "plays = lesson_engagement_stats.plays + EXCLUDED.plays, " +
+                    "pauses = lesson_engagement_stats.pauses + EXCLUDED.pauses, " +
+                    "seeks = lesson_engagement_stats.seeks + EXCLUDED.seeks, " +
+                    "completions = lesson_engagement_stats.completions + EXCLUDED.completions, " +
+                    "completion_time_seconds = lesson_engagement_stats.completion_time_seconds " +
+                    "+ EXCLUDED.completion_time_seconds, " +
+                    "completion_time_samples = lesson_engagement_stats.completion_time_samples " +
+                    "+ EXCLUDED.completion_time_samples, " +
+                    "updated_at = EXCLUDED.updated_at");
+            statement.setArray(1, connection.createArrayOf("bigint", topicIds));
+            for (int column = 0; column < columns.length; column++) {
+                statement.setArray(column + 2, connection.createArrayOf("bigint", columns[column]));
+            }
+            return statement;
+        });
+    }
+}
@@ -0,0 +1,9 @@
+package com.threadqa.lms.repository.user;
+
+import com.threadqa.lms.model.user.UserLoginFingerprint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface UserLoginFingerprintRepository extends JpaRepository<UserLoginFingerprint, Long> {
+}
@@ -5,8 +5,11 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -25,4 +28,16 @@ public interface UserRepository extends JpaRepository<User, Long>, UserRepositor
 
     @Query("SELECT COUNT(u) FROM User u JOIN u.roles r WHERE r.name = :roleName")
     Long countByRoleName(String roleName);
+
+    /**
+     * Блокирует строку пользователя до конца транзакции
+     */
+    @Query(value = "SELECT id FROM users WHERE id = :userId FOR UPDATE", nativeQuery = true)
+    Long lockById(@Param("userId") Long userId);
+
+    /**
+     * Идентификатор, имя, фамилия и фото пользователей без загрузки связей
+     */
+    @Query("SELECT u.id, u.firstName, u.lastName, u.profilePicture FROM User u WHERE u.id IN :userIds")
+    List<Object[]> findDisplayInfoByIds(@Param("userIds") Collection<Long> userIds);
 }
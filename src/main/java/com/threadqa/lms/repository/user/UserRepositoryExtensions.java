@@ -1,10 +1,12 @@
 package com.threadqa.lms.repository.user;
 
-import java.time.ZonedDateTime;
+import com.threadqa.lms.model.user.UserAuthSnapshot;
+
+import java.util.Optional;
 
 public interface UserRepositoryExtensions {
     
-    Long countActiveUsersSince(ZonedDateTime since);
-    
     String findFullNameById(Long userId);
+
+    Optional<UserAuthSnapshot> findAuthSnapshotById(Long userId);
 }
@@ -1,11 +1,15 @@
 package com.threadqa.lms.repository.user;
 
+import com.threadqa.lms.model.user.UserAuthSnapshot;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
 import jakarta.persistence.Query;
 import org.springframework.stereotype.Repository;
 
-import java.time.ZonedDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 
 @Repository
 public class UserRepositoryImpl implements UserRepositoryExtensions {
@@ -13,14 +17,6 @@ public class UserRepositoryImpl implements UserRepositoryExtensions {
     @PersistenceContext
     private EntityManager entityManager;
     
-    @Override
-    public Long countActiveUsersSince(ZonedDateTime since) {
-        Query query = entityManager.createQuery(
-                "SELECT COUNT(u) FROM User u WHERE u.lastLoginAt >= :since");
-        query.setParameter("since", since);
-        return (Long) query.getSingleResult();
-    }
-    
     @Override
     public String findFullNameById(Long userId) {
         Query query = entityManager.createQuery(
@@ -28,4 +24,31 @@ public class UserRepositoryImpl implements UserRepositoryExtensions {
         query.setParameter("userId", userId);
         return (String) query.getSingleResult();
     }
+    
+    @Override
+    public Optional<UserAuthSnapshot> findAuthSnapshotById(Long userId) {
+        List<Object[]> rows = entityManager.createQuery(
+                        "SELECT u.id, u.isActive, u.blockReason, r.name FROM User u LEFT JOIN u.roles r " +
+                        "WHERE u.id = :userId", Object[].class)
+                .setParameter("userId", userId)
+                .getResultList();
+
+        if (rows.isEmpty()) {
+            return Optional.empty();
+        }
+
+        Object[] first = rows.get(0);
+        Set<String> roleNames = new HashSet<>();
+        for (Object[] row : rows) {
+            if (row[3] != null) {
+                roleNames.add((String) row[3]);
+            }
+        }
+
+        return Optional.of(new UserAuthSnapshot(
+                (Long) first[0],
+                Boolean.TRUE.equals(first[1]),
+                (String) first[2],
+                Set.copyOf(roleNames)));
+    }
 }
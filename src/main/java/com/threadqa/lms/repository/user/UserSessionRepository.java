@@ -8,13 +8,14 @@ import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface UserSessionRepository extends JpaRepository<UserSession, Long> {
+public interface UserSessionRepository extends JpaRepository<UserSession, Long>, UserSessionRepositoryExtensions {
 
     /**
      * Находит все активные сессии пользователя
@@ -48,6 +49,14 @@ public interface UserSessionRepository extends JpaRepository<UserSession, Long>
     @Query("UPDATE UserSession s SET s.isActive = false, s.expiredAt = CURRENT_TIMESTAMP WHERE s.userId = :userId AND s.isActive = true")
     void deactivateAllUserSessions(@Param("userId") Long userId);
 
+    /**
+     * Деактивирует сессию по токену
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE UserSession s SET s.isActive = false, s.expiredAt = CURRENT_TIMESTAMP WHERE s.token = :token AND s.isActive = true")
+    int deactivateByToken(@Param("token") String token);
+
     /**
      * Деактивирует все сессии пользователя, кроме указанной
      */
@@ -75,4 +84,20 @@ public interface UserSessionRepository extends JpaRepository<UserSession, Long>
      * Находит все сессии пользователя с указанного устройства
      */
     List<UserSession> findByUserIdAndDeviceTypeAndIsActiveTrue(Long userId, String deviceType);
+
+    /**
+     * Находит различные сочетания города, типа устройства и браузера в сессиях пользователя,
+     * начиная с самых недавних
+     */
+    @Query("SELECT s.city AS city, s.deviceType AS deviceType, s.browser AS browser FROM UserSession s " +
+            "WHERE s.userId = :userId GROUP BY s.city, s.deviceType, s.browser ORDER BY MAX(s.createdAt) DESC")
+    List<LoginOrigin> findRecentLoginOrigins(@Param("userId") Long userId, Pageable pageable);
+
+    interface LoginOrigin {
+        String getCity();
+
+        String getDeviceType();
+
+        String getBrowser();
+    }
 }
@@ -0,0 +1,29 @@
+package com.threadqa.lms.repository.user;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+public interface UserSessionRepositoryExtensions {
+
+    /**
+     * Обновляет время последней активности для набора сессий одним пакетом
+     */
+    int batchUpdateLastActivity(Map<Long, LocalDateTime> lastActivityBySessionId);
+
+    /**
+     * Деактивирует сессии, неактивные с указанного времени, пакетами не больше batchSize строк.
+     * Каждый пакет фиксируется отдельно, после фиксации вызывается onBatch.
+     * Выполняется под advisory-блокировкой, поэтому одновременно работает только на одном узле.
+     *
+     * @return количество деактивированных сессий или -1, если блокировку удерживает другой узел
+     */
+    int deactivateIdleSessions(LocalDateTime idleBefore, int batchSize, Consumer<List<IdleSession>> onBatch);
+
+    /**
+     * Деактивированная по неактивности сессия
+     */
+    record IdleSession(Long id, Long userId, String token) {
+    }
+}
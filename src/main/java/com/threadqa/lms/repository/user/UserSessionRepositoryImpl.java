@@ -0,0 +1,116 @@
+package com.threadqa.lms.repository.user;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+@Repository
+@RequiredArgsConstructor
+public class UserSessionRepositoryImpl implements UserSessionRepositoryExtensions {
+
+    /**
+     * Ключ advisory-блокировки для очистки неактивных сессий
+     */
+    private static final long IDLE_SESSION_REAPER_LOCK = 0x5E55_1011L;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public int batchUpdateLastActivity(Map<Long, LocalDateTime> lastActivityBySessionId) {
+        if (lastActivityBySessionId.isEmpty()) {
+            return 0;
+        }
+
+        List<Object[]> args = new ArrayList<>(lastActivityBySessionId.size());
+        lastActivityBySessionId.forEach((sessionId, lastActivityAt) -> {
+            Timestamp timestamp = Timestamp.valueOf(lastActivityAt);
+            args.add(new Object[]{timestamp, sessionId, timestamp});
+        });
+
+        // Время активности только растет, поэтому более старое значение не перезапишет новое
+        int[] updated = jdbcTemplate.batchUpdate(
+                "UPDATE user_sessions SET last_activity_at = ? " +
+                "WHERE id = ? AND is_active = true AND last_activity_at < ?",
+                args);
+
+        int total = 0;
+        for (int count : updated) {
+            total += Math.max(count, 0);
+        }
+        return total;
+    }
+
+    @Override
+    public int deactivateIdleSessions(LocalDateTime idleBefore, int batchSize, Consumer<List<IdleSession>> onBatch) {
+        Integer result = jdbcTemplate.execute((ConnectionCallback<Integer>) connection -> {
+            if (!tryAdvisoryLock(connection)) {
+                return -1;
+            }
+            try {
+                int total = 0;
+                List<IdleSession> batch;
+                do {
+                    batch = deactivateIdleBatch(connection, idleBefore, batchSize);
+                    if (!batch.isEmpty()) {
+                        onBatch.accept(batch);
+                        total += batch.size();
+                    }
+                } while (batch.size() == batchSize);
+                return total;
+            } finally {
+                advisoryUnlock(connection);
+            }
+        });
+        return result != null ? result : 0;
+    }
+
+    private List<IdleSession> deactivateIdleBatch(Connection connection, LocalDateTime idleBefore, int batchSize)
+            throws SQLException {
+        // Пакет фиксируется сразу (auto-commit), поэтому строки блокируются ненадолго
+        String sql = "UPDATE user_sessions SET is_active = false, expired_at = CURRENT_TIMESTAMP " +
+                "WHERE id IN (SELECT id FROM user_sessions " +
+                "WHERE is_active = true AND last_activity_at < ? " +
+                "ORDER BY id LIMIT ? FOR UPDATE SKIP LOCKED) " +
+                "RETURNING id, user_id, token";
+
+        List<IdleSession> batch = new ArrayList<>(batchSize);
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setTimestamp(1, Timestamp.valueOf(idleBefore));
+            statement.setInt(2, batchSize);
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    batch.add(new IdleSession(rs.getLong("id"), rs.getLong("user_id"), rs.getString("token")));
+                }
+            }
+        }
+        return batch;
+    }
+
+    private boolean tryAdvisoryLock(Connection connection) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT pg_try_advisory_lock(?)")) {
+            statement.setLong(1, IDLE_SESSION_REAPER_LOCK);
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next() && rs.getBoolean(1);
+            }
+        }
+    }
+
+    private void advisoryUnlock(Connection connection) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT pg_advisory_unlock(?)")) {
+            statement.setLong(1, IDLE_SESSION_REAPER_LOCK);
+            statement.execute();
+        }
+    }
+}
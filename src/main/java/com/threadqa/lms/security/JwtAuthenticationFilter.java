@@ -1,9 +1,7 @@
 package com.threadqa.lms.security;
 
 import com.threadqa.lms.exception.AccountBlockedException;
-import com.threadqa.lms.model.user.User;
-import com.threadqa.lms.model.user.UserSession;
-import com.threadqa.lms.repository.user.UserRepository;
+import com.threadqa.lms.service.auth.SessionCache;
 import com.threadqa.lms.service.auth.SessionService;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
@@ -18,7 +16,6 @@ import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
-import java.util.Optional;
 
 @Slf4j
 @Component
@@ -27,7 +24,6 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtTokenProvider tokenProvider;
     private final SessionService sessionService;
-    private final UserRepository userRepository;
 
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
@@ -35,27 +31,24 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         try {
             String jwt = getJwtFromRequest(request);
 
-            if (StringUtils.hasText(jwt) && tokenProvider.validateToken(jwt)) {
+            // Подпись токена проверяется один раз, результат сразу превращается в аутентификацию
+            Authentication authentication = StringUtils.hasText(jwt) ? tokenProvider.parseAndAuthenticate(jwt) : null;
+
+            if (authentication != null) {
                 // Проверяем, существует ли активная сессия с этим токеном
-                Optional<UserSession> sessionOpt = sessionService.getSessionByToken(jwt);
+                SessionCache.CachedSession session = sessionService.resolveSession(jwt);
                 
-                if (sessionOpt.isPresent()) {
-                    UserSession session = sessionOpt.get();
-                    
+                if (session.active()) {
                     // Проверяем, не заблокирован ли пользователь
-                    Long userId = session.getUserId();
-                    User user = userRepository.findById(userId).orElse(null);
-                    
-                    if (user != null && !user.getIsActive()) {
+                    if (session.blocked()) {
                         throw new AccountBlockedException("Аккаунт заблокирован. Причина: " + 
-                                (user.getBlockReason() != null ? user.getBlockReason() : "Неизвестно"));
+                                (session.blockReason() != null ? session.blockReason() : "Неизвестно"));
                     }
                     
                     // Обновляем время последней активности сессии
-                    sessionService.updateSessionActivity(jwt);
+                    sessionService.updateSessionActivity(session.sessionId(), session.userId());
                     
                     // Устанавливаем аутентификацию
-                    Authentication authentication = tokenProvider.getAuthentication(jwt);
                     SecurityContextHolder.getContext().setAuthentication(authentication);
                 } else {
                     log.warn("Активная сессия не найдена для токена");
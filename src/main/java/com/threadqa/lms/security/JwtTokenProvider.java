@@ -1,8 +1,12 @@
 package com.threadqa.lms.security;
 
 import com.threadqa.lms.config.JwtConfig;
+import com.threadqa.lms.util.LruCache;
+import com.threadqa.lms.util.TokenHashUtils;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.security.SignatureException;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
@@ -16,8 +20,8 @@ import org.springframework.stereotype.Component;
 import java.nio.charset.StandardCharsets;
 import java.security.Key;
 import java.util.Arrays;
-import java.util.Collection;
 import java.util.Date;
+import java.util.List;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -27,6 +31,19 @@ public class JwtTokenProvider {
 
     private final JwtConfig jwtConfig;
 
+    private Key signingKey;
+    private JwtParser parser;
+    private LruCache<String, VerifiedToken> verifiedTokens;
+
+    @PostConstruct
+    public void init() {
+        signingKey = Keys.hmacShaKeyFor(jwtConfig.getSecret().getBytes(StandardCharsets.UTF_8));
+        parser = Jwts.parserBuilder()
+                .setSigningKey(signingKey)
+                .build();
+        verifiedTokens = new LruCache<>(jwtConfig.getVerifiedTokenCacheSize());
+    }
+
     public String generateAccessToken(Authentication authentication) {
         UserDetails userDetails = (UserDetails) authentication.getPrincipal();
         Date now = new Date();
@@ -42,7 +59,7 @@ public class JwtTokenProvider {
                 .setIssuedAt(now)
                 .setExpiration(expiryDate)
                 .setIssuer(jwtConfig.getIssuer())
-                .signWith(getSigningKey(), SignatureAlgorithm.HS512)
+                .signWith(signingKey, SignatureAlgorithm.HS512)
                 .compact();
     }
 
@@ -56,26 +73,17 @@ public class JwtTokenProvider {
                 .setIssuedAt(now)
                 .setExpiration(expiryDate)
                 .setIssuer(jwtConfig.getIssuer())
-                .signWith(getSigningKey(), SignatureAlgorithm.HS512)
+                .signWith(signingKey, SignatureAlgorithm.HS512)
                 .compact();
     }
 
     public String getUserIdFromToken(String token) {
-        Claims claims = Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
-
-        return claims.getSubject();
+        return parseClaims(token).getSubject();
     }
 
     public boolean validateToken(String token) {
         try {
-            Jwts.parserBuilder()
-                    .setSigningKey(getSigningKey())
-                    .build()
-                    .parseClaimsJws(token);
+            parseClaims(token);
             return true;
         } catch (MalformedJwtException ex) {
             log.error("Invalid JWT token");
@@ -90,25 +98,75 @@ public class JwtTokenProvider {
     }
 
     public Authentication getAuthentication(String token) {
-        Claims claims = Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
-
-        Collection<? extends GrantedAuthority> authorities =
-                Arrays.stream(claims.get("roles").toString().split(","))
+        return toAuthentication(token, toVerifiedToken(parseClaims(token)));
+    }
+
+    /**
+     * Проверяет подпись токена и возвращает аутентификацию за один разбор.
+     * Недавно проверенные токены берутся из кэша без повторной проверки HMAC.
+     *
+     * @return аутентификация или null, если токен недействителен
+     */
+    public Authentication parseAndAuthenticate(String token) {
+        // Кэш хранит SHA-256 хэш токена, а не сам токен
+        String tokenHash = TokenHashUtils.sha256(token);
+        VerifiedToken verified = verifiedTokens.get(tokenHash);
+        if (verified != null) {
+            if (verified.expiresAtMillis() > System.currentTimeMillis()) {
+                return toAuthentication(token, verified);
+            }
+            verifiedTokens.remove(tokenHash);
+            log.error("Expired JWT token");
+            return null;
+        }
+
+        try {
+            verified = toVerifiedToken(parseClaims(token));
+        } catch (SignatureException ex) {
+            log.error("Invalid JWT signature");
+            return null;
+        } catch (MalformedJwtException ex) {
+            log.error("Invalid JWT token");
+            return null;
+        } catch (ExpiredJwtException ex) {
+            log.error("Expired JWT token");
+            return null;
+        } catch (UnsupportedJwtException ex) {
+            log.error("Unsupported JWT token");
+            return null;
+        } catch (IllegalArgumentException ex) {
+            log.error("JWT claims string is empty");
+            return null;
+        }
+
+        verifiedTokens.put(tokenHash, verified);
+        return toAuthentication(token, verified);
+    }
+
+    private Claims parseClaims(String token) {
+        return parser.parseClaimsJws(token).getBody();
+    }
+
+    private VerifiedToken toVerifiedToken(Claims claims) {
+        Object roles = claims.get("roles");
+        List<GrantedAuthority> authorities = roles == null ? List.of() :
+                Arrays.stream(roles.toString().split(","))
                         .filter(auth -> !auth.trim().isEmpty())
                         .map(SimpleGrantedAuthority::new)
-                        .collect(Collectors.toList());
+                        .collect(Collectors.toUnmodifiableList());
 
-        User principal = new User(claims.getSubject(), "", authorities);
+        long expiresAtMillis = claims.getExpiration() != null ? claims.getExpiration().getTime() : Long.MAX_VALUE;
+        return new VerifiedToken(claims.getSubject(), authorities, expiresAtMillis);
+    }
 
-        return new UsernamePasswordAuthenticationToken(principal, token, authorities);
+    private Authentication toAuthentication(String token, VerifiedToken verified) {
+        User principal = new User(verified.subject(), "", verified.authorities());
+        return new UsernamePasswordAuthenticationToken(principal, token, verified.authorities());
     }
 
-    private Key getSigningKey() {
-        byte[] keyBytes = jwtConfig.getSecret().getBytes(StandardCharsets.UTF_8);
-        return Keys.hmacShaKeyFor(keyBytes);
+    /**
+     * Результат проверки токена: subject, роли и время истечения
+     */
+    private record VerifiedToken(String subject, List<GrantedAuthority> authorities, long expiresAtMillis) {
     }
 }
@@ -0,0 +1,170 @@
+package com.threadqa.lms.service.analytics;
+
+import com.threadqa.lms.model.analytics.ActivitySketch.Scope;
+import com.threadqa.lms.model.analytics.ActivitySketchId;
+import com.threadqa.lms.repository.analytics.ActivitySketchRepository;
+import com.threadqa.lms.util.HyperLogLog;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Приближенный подсчет уникальных активных пользователей и посетителей курсов.
+ * Для каждого дня хранится HyperLogLog-скетч по системе и по каждому курсу;
+ * уникальные за N дней считаются объединением N скетчей без выборки DISTINCT.
+ * Скетчи текущего дня накапливаются в памяти и периодически объединяются с сохраненными.
+ */
+@Slf4j
+@Component
+public class ActivitySketchService {
+
+    private static final Long GLOBAL_ID = 0L;
+
+    private final ActivitySketchRepository sketchRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int precision;
+    private final int visitorWindowDays;
+    private final int retentionDays;
+
+    private final Map<ActivitySketchId, LocalSketch> current = new ConcurrentHashMap<>();
+
+    public ActivitySketchService(ActivitySketchRepository sketchRepository,
+                                 PlatformTransactionManager transactionManager,
+                                 @Value("${app.analytics.sketches.precision:12}") int precision,
+                                 @Value("${app.analytics.sketches.visitor-window-days:30}") int visitorWindowDays,
+                                 @Value("${app.analytics.sketches.retention-days:90}") int retentionDays) {
+        this.sketchRepository = sketchRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.precision = precision;
+        this.visitorWindowDays = visitorWindowDays;
+        // Скетчи должны покрывать окна DAU/MAU и посетителей курса
+        this.retentionDays = Math.max(retentionDays, Math.max(visitorWindowDays, 31));
+    }
+
+    /**
+     * Скетч текущего дня и признак несохраненных изменений
+     */
+    private static final class LocalSketch {
+
+        private final HyperLogLog sketch;
+        private final AtomicBoolean dirty = new AtomicBoolean();
+
+        private LocalSketch(int precision) {
+            this.sketch = new HyperLogLog(precision);
+        }
+
+        private void add(long value) {
+            if (sketch.add(value)) {
+                dirty.set(true);
+            }
+        }
+    }
+
+    /**
+     * Отмечает активность пользователя. Повторная отметка за день не меняет скетч и не берет блокировок.
+     */
+    public void recordUserActive(Long userId) {
+        sketch(Scope.GLOBAL, GLOBAL_ID).add(userId);
+    }
+
+    /**
+     * Отмечает посещение курса пользователем
+     */
+    public void recordCourseVisit(Long courseId, Long userId) {
+        sketch(Scope.COURSE, courseId).add(userId);
+        recordUserActive(userId);
+    }
+
+    /**
+     * Примерное количество уникальных активных пользователей за последние days дней, включая сегодня
+     */
+    public long countActiveUsers(int days) {
+        return countDistinct(Scope.GLOBAL, GLOBAL_ID, days);
+    }
+
+    /**
+     * Примерное количество уникальных посетителей курса за настроенное окно
+     */
+    public long countCourseVisitors(Long courseId) {
+        return countDistinct(Scope.COURSE, courseId, visitorWindowDays);
+    }
+
+    /**
+     * Объединяет изменившиеся скетчи с сохраненными. Скетчи прошедших дней после сохранения
+     * выгружаются из памяти.
+     */
+    @Scheduled(fixedDelayString = "${app.analytics.sketches.flush-interval-ms:60000}")
+    public void flush() {
+        Map<ActivitySketchId, byte[]> batch = new HashMap<>();
+        current.forEach((key, local) -> {
+            if (local.dirty.compareAndSet(true, false)) {
+                batch.put(key, local.sketch.toBytes());
+            }
+        });
+
+        if (!batch.isEmpty()) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> sketchRepository.mergeSketches(batch));
+                log.debug("Сохранено скетчей активности: {}", batch.size());
+            } catch (RuntimeException e) {
+                log.error("Не удалось сохранить скетчи активности, сохранение будет повторено", e);
+                batch.keySet().forEach(key -> current.get(key).dirty.set(true));
+                return;
+            }
+        }
+
+        LocalDate today = LocalDate.now();
+        current.entrySet().removeIf(entry -> entry.getKey().getDay().isBefore(today) && !entry.getValue().dirty.get());
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    @Scheduled(cron = "${app.analytics.sketches.prune-cron:0 20 0 * * ?}")
+    public void pruneExpired() {
+        LocalDate cutoff = LocalDate.now().minusDays(retentionDays);
+        Integer deleted = transactionTemplate.execute(status -> sketchRepository.deleteOlderThan(cutoff));
+        if (deleted != null && deleted > 0) {
+            log.info("Удалено скетчей активности старше {}: {}", cutoff, deleted);
+        }
+    }
+
+    private LocalSketch sketch(Scope scope, Long scopeId) {
+        ActivitySketchId key = new ActivitySketchId(scope, scopeId, LocalDate.now());
+        return current.computeIfAbsent(key, k -> new LocalSketch(precision));
+    }
+
+    private long countDistinct(Scope scope, Long scopeId, int days) {
+        LocalDate from = LocalDate.now().minusDays(Math.max(days, 1) - 1L);
+        HyperLogLog merged = new HyperLogLog(precision);
+
+        List<byte[]> stored = sketchRepository.findRegistersSince(scope, scopeId, from);
+        for (byte[] registers : stored) {
+            HyperLogLog sketch = HyperLogLog.fromBytes(registers);
+            if (sketch.getPrecision() == precision) {
+                merged.merge(sketch);
+            }
+        }
+
+        // Несохраненные изменения этого узла; повторное объединение с сохраненным безопасно
+        current.forEach((key, local) -> {
+            if (key.getScope() == scope && key.getScopeId().equals(scopeId) && !key.getDay().isBefore(from)) {
+                merged.merge(local.sketch);
+            }
+        });
+        return merged.estimate();
+    }
+}
@@ -0,0 +1,119 @@
+package com.threadqa.lms.service.analytics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Выполняет независимые запросы аналитики параллельно на ограниченном пуле.
+ * Каждый запрос работает в собственной read-only транзакции и на собственном соединении.
+ * На весь набор запросов дается общий бюджет времени: не успевшие или упавшие
+ * запросы заменяются значением по умолчанию, а результат отмечается как неполный.
+ * Запросы, не принятые переполненным пулом, не выполняются в потоке вызывающего
+ * (там они не были бы ограничены бюджетом) и тоже заменяются значением по умолчанию.
+ */
+@Slf4j
+@Component
+public class AnalyticsQueryExecutor {
+
+    private final ThreadPoolTaskExecutor executor;
+    private final TransactionTemplate readOnlyTransaction;
+    private final long timeoutMs;
+    private final Counter fallbackCounter;
+
+    public AnalyticsQueryExecutor(@Qualifier("analyticsQueryExecutor") ThreadPoolTaskExecutor executor,
+                                  PlatformTransactionManager transactionManager,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${app.analytics.query.timeout-ms:3000}") long timeoutMs) {
+        this.executor = executor;
+        this.timeoutMs = timeoutMs;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.readOnlyTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        // Тайм-аут транзакции ограничивает и запросы к БД, чтобы брошенные задачи не занимали соединения
+        this.readOnlyTransaction.setTimeout((int) Math.max(1, TimeUnit.MILLISECONDS.toSeconds(timeoutMs + 999)));
+        this.fallbackCounter = Counter.builder("lms.analytics.query.fallbacks")
+                .description("Количество запросов аналитики, замененных значением по умолчанию")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Начинает набор параллельных запросов с общим бюджетом времени
+     */
+    public Batch newBatch() {
+        return new Batch(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs));
+    }
+
+    /**
+     * Запущенный запрос и значение, которое используется, если он не выполнился
+     */
+    public record Query<T>(String name, Future<T> future, T fallback) {
+    }
+
+    /**
+     * Набор запросов одного обращения к аналитике. Используется из одного потока.
+     */
+    public final class Batch {
+
+        private final long deadline;
+        private boolean partial;
+
+        private Batch(long deadline) {
+            this.deadline = deadline;
+        }
+
+        public <T> Query<T> submit(String name, Supplier<T> query, T fallback) {
+            Future<T> future;
+            try {
+                future = executor.submit(() -> readOnlyTransaction.execute(status -> query.get()));
+            } catch (RejectedExecutionException e) {
+                future = CompletableFuture.failedFuture(e);
+            }
+            return new Query<>(name, future, fallback);
+        }
+
+        /**
+         * Ждет результат запроса в пределах оставшегося бюджета.
+         * Пустой результат (null) также заменяется значением по умолчанию.
+         */
+        public <T> T get(Query<T> query) {
+            try {
+                T result = query.future().get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                return result != null ? result : query.fallback();
+            } catch (TimeoutException e) {
+                query.future().cancel(true);
+                log.warn("Запрос аналитики {} не уложился в {} мс", query.name(), timeoutMs);
+            } catch (ExecutionException e) {
+                log.warn("Ошибка запроса аналитики {}", query.name(), e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                query.future().cancel(true);
+            }
+            partial = true;
+            fallbackCounter.increment();
+            return query.fallback();
+        }
+
+        /**
+         * true, если хотя бы один запрос заменен значением по умолчанию
+         */
+        public boolean isPartial() {
+            return partial;
+        }
+    }
+}
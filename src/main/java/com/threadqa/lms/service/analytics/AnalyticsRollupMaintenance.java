@@ -0,0 +1,119 @@
+package com.threadqa.lms.service.analytics;
+
+import com.threadqa.lms.model.analytics.AnalyticsRollup;
+import com.threadqa.lms.model.analytics.AnalyticsRollupRebuild;
+import com.threadqa.lms.repository.analytics.AnalyticsRollupRebuildRepository;
+import com.threadqa.lms.repository.analytics.AnalyticsRollupRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.ZonedDateTime;
+
+/**
+ * Обслуживание показателей аналитики: первичное заполнение по исходным таблицам,
+ * ночная сверка последних дней и удаление старых дневных показателей.
+ * Сверка перезаписывает показатели по данным БД, поэтому исправляет изменения,
+ * потерянные при аварийной остановке узла до сброса буфера.
+ * Сверка пересчитывает только периоды, закончившиеся до начала текущего дня.
+ * Пересчет записывается с номером-эпохой, и изменения из буферов узлов, уже учтенные им,
+ * при сбросе отбрасываются, поэтому буферы не нужно сбрасывать до пересчета.
+ */
+@Slf4j
+@Component
+public class AnalyticsRollupMaintenance {
+
+    private static final LocalDate BEGINNING = LocalDate.of(1970, 1, 1);
+
+    private final AnalyticsRollupRepository rollupRepository;
+    private final AnalyticsRollupRebuildRepository rebuildRepository;
+    private final AnalyticsRollupService rollupService;
+    private final TransactionTemplate transactionTemplate;
+    private final int reconcileDays;
+    private final int dailyRetentionDays;
+
+    public AnalyticsRollupMaintenance(AnalyticsRollupRepository rollupRepository,
+                                      AnalyticsRollupRebuildRepository rebuildRepository,
+                                      AnalyticsRollupService rollupService,
+                                      PlatformTransactionManager transactionManager,
+                                      @Value("${app.analytics.rollups.reconcile-days:2}") int reconcileDays,
+                                      @Value("${app.analytics.rollups.daily-retention-days:90}") int dailyRetentionDays) {
+        this.rollupRepository = rollupRepository;
+        this.rebuildRepository = rebuildRepository;
+        this.rollupService = rollupService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.reconcileDays = reconcileDays;
+        this.dailyRetentionDays = dailyRetentionDays;
+    }
+
+    /**
+     * Заполняет показатели за всю историю при первом запуске, если таблица еще пустая
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillIfEmpty() {
+        if (rollupRepository.count() > 0) {
+            return;
+        }
+        // Буфер при старте пуст, поэтому текущие день и месяц заполняются по данным на этот момент
+        ZonedDateTime now = ZonedDateTime.now(rollupService.zone());
+        LocalDate today = now.toLocalDate();
+        Integer inserted = rebuild(BEGINNING, today.plusDays(1), BEGINNING, today.withDayOfMonth(1).plusMonths(1), now);
+        if (inserted != null) {
+            log.info("Показатели аналитики заполнены по исходным таблицам: {} строк", inserted);
+        }
+    }
+
+    /**
+     * Пересчитывает последние дни и месяцы, в которые они попадают
+     */
+    @Scheduled(cron = "${app.analytics.rollups.reconcile-cron:0 45 3 * * ?}")
+    public void reconcile() {
+        LocalDate today = LocalDate.now(rollupService.zone());
+        ZonedDateTime watermark = today.atStartOfDay(rollupService.zone());
+
+        LocalDate dayFrom = today.minusDays(reconcileDays);
+        Integer rebuilt = rebuild(dayFrom, today, dayFrom.withDayOfMonth(1), today.withDayOfMonth(1), watermark);
+        if (rebuilt != null) {
+            log.info("Показатели аналитики пересчитаны с {} по {}: {} строк", dayFrom, today, rebuilt);
+        }
+
+        LocalDate cutoff = today.minusDays(dailyRetentionDays);
+        Integer deleted = transactionTemplate.execute(status ->
+                rollupRepository.deleteOlderThan(AnalyticsRollup.Granularity.DAY, cutoff));
+        if (deleted != null && deleted > 0) {
+            log.info("Удалено дневных показателей аналитики старше {}: {}", cutoff, deleted);
+        }
+
+        // Буферы сбрасываются каждые несколько секунд, старые эпохи им уже не нужны
+        transactionTemplate.executeWithoutResult(status ->
+                rebuildRepository.deleteRebuiltBefore(watermark.minusDays(reconcileDays)));
+    }
+
+    /**
+     * @return количество записанных строк или null, если пересчет выполняется на другом узле
+     */
+    private Integer rebuild(LocalDate dayFrom, LocalDate dayUntil, LocalDate monthFrom, LocalDate monthUntil,
+                            ZonedDateTime watermark) {
+        return transactionTemplate.execute(status -> {
+            if (!rollupRepository.tryLockRollups()) {
+                log.debug("Пересчет показателей аналитики выполняется на другом узле");
+                return null;
+            }
+            int rebuilt = rollupRepository.rebuild(dayFrom, dayUntil, monthFrom, monthUntil, watermark);
+            rebuildRepository.save(AnalyticsRollupRebuild.builder()
+                    .dayFrom(dayFrom)
+                    .dayUntil(dayUntil)
+                    .monthFrom(monthFrom)
+                    .monthUntil(monthUntil)
+                    .rebuiltAt(ZonedDateTime.now(rollupService.zone()))
+                    .build());
+            return rebuilt;
+        });
+    }
+}
@@ -0,0 +1,255 @@
+package com.threadqa.lms.service.analytics;
+
+import com.threadqa.lms.config.SchedulingConfig;
+import com.threadqa.lms.model.analytics.AnalyticsRollup.Granularity;
+import com.threadqa.lms.model.analytics.AnalyticsRollupRebuild;
+import com.threadqa.lms.model.analytics.AnalyticsRollup.Scope;
+import com.threadqa.lms.model.analytics.AnalyticsRollupId;
+import com.threadqa.lms.model.course.CourseEnrollment;
+import com.threadqa.lms.repository.analytics.AnalyticsRollupRebuildRepository;
+import com.threadqa.lms.repository.analytics.AnalyticsRollupRepository;
+import com.threadqa.lms.repository.analytics.AnalyticsRollupRepositoryExtensions.RollupDelta;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Инкрементально обновляет предрасчитанные показатели аналитики.
+ * Изменения из пишущих сервисов после фиксации транзакции накапливаются в памяти
+ * и периодически сохраняются одним пакетным upsert, поэтому запросы не ждут
+ * блокировки общих системных строк.
+ * Периоды считаются в часовом поясе app.analytics.rollups.time-zone, том же, что и при пересчете.
+ * Изменение помечается номером последнего пересчета на момент фиксации; если позже период
+ * пересчитан заново, изменение в нем уже учтено и при сбросе отбрасывается.
+ */
+@Slf4j
+@Component
+public class AnalyticsRollupService {
+
+    private static final Long SYSTEM_ID = 0L;
+
+    private static final RollupDelta SIGNUP = new RollupDelta(1, 0, 0, 0, 0);
+    private static final RollupDelta COURSE_CREATED = new RollupDelta(0, 1, 0, 0, 0);
+    private static final RollupDelta COMPLETION = new RollupDelta(0, 0, 0, 1, 0);
+
+    /**
+     * Эпоха изменений, записанных вне транзакции: такие изменения никогда не отбрасываются
+     */
+    private static final long NO_EPOCH = Long.MAX_VALUE;
+
+    private final AnalyticsRollupRepository rollupRepository;
+    private final AnalyticsRollupRebuildRepository rebuildRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ZoneId zone;
+
+    private final Map<PendingKey, RollupDelta> pending = new ConcurrentHashMap<>();
+
+    public AnalyticsRollupService(AnalyticsRollupRepository rollupRepository,
+                                  AnalyticsRollupRebuildRepository rebuildRepository,
+                                  PlatformTransactionManager transactionManager,
+                                  @Value("${app.analytics.rollups.time-zone:UTC}") ZoneId zone) {
+        this.rollupRepository = rollupRepository;
+        this.rebuildRepository = rebuildRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.zone = zone;
+    }
+
+    /**
+     * Период показателей и номер последнего пересчета на момент фиксации изменения
+     */
+    private record PendingKey(long epoch, AnalyticsRollupId id) {
+    }
+
+    /**
+     * Состояние зачисления, влияющее на показатели
+     */
+    public record EnrollmentSnapshot(Long userId, Long courseId, ZonedDateTime enrolledAt,
+                                     ZonedDateTime completedAt, Double progress) {
+
+        public static EnrollmentSnapshot of(CourseEnrollment enrollment) {
+            return new EnrollmentSnapshot(enrollment.getUser().getId(), enrollment.getCourse().getId(),
+                    enrollment.getEnrolledAt(), enrollment.getCompletedAt(), enrollment.getProgress());
+        }
+    }
+
+    /**
+     * Зарегистрирован новый пользователь
+     */
+    public void userSignedUp(ZonedDateTime createdAt) {
+        Map<AnalyticsRollupId, RollupDelta> deltas = new HashMap<>();
+        add(deltas, Scope.SYSTEM, SYSTEM_ID, createdAt, SIGNUP);
+        recordAfterCommit(deltas);
+    }
+
+    /**
+     * Создан новый курс
+     */
+    public void courseCreated(ZonedDateTime createdAt) {
+        Map<AnalyticsRollupId, RollupDelta> deltas = new HashMap<>();
+        add(deltas, Scope.SYSTEM, SYSTEM_ID, createdAt, COURSE_CREATED);
+        recordAfterCommit(deltas);
+    }
+
+    /**
+     * Курс удален. Удалить можно только курс без зачислений.
+     */
+    public void courseDeleted(ZonedDateTime createdAt) {
+        Map<AnalyticsRollupId, RollupDelta> deltas = new HashMap<>();
+        add(deltas, Scope.SYSTEM, SYSTEM_ID, createdAt, COURSE_CREATED.negate());
+        recordAfterCommit(deltas);
+    }
+
+    /**
+     * Зачисление создано (before == null), изменено или удалено (after == null).
+     * Вклад старого состояния вычитается, вклад нового прибавляется.
+     */
+    public void enrollmentChanged(EnrollmentSnapshot before, EnrollmentSnapshot after) {
+        Map<AnalyticsRollupId, RollupDelta> deltas = new HashMap<>();
+        if (before != null) {
+            addEnrollment(deltas, before, true);
+        }
+        if (after != null) {
+            addEnrollment(deltas, after, false);
+        }
+        deltas.values().removeIf(RollupDelta::isZero);
+        recordAfterCommit(deltas);
+    }
+
+    /**
+     * Сохраняет накопленные изменения показателей
+     */
+    @Scheduled(fixedDelayString = "${app.analytics.rollups.flush-interval-ms:5000}",
+            scheduler = SchedulingConfig.DRAIN_SCHEDULER)
+    public void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        Map<PendingKey, RollupDelta> batch = new HashMap<>();
+        long minEpoch = NO_EPOCH;
+        for (PendingKey key : pending.keySet()) {
+            RollupDelta delta = pending.remove(key);
+            if (delta != null && !delta.isZero()) {
+                batch.put(key, delta);
+                minEpoch = Math.min(minEpoch, key.epoch());
+            }
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        long fromEpoch = minEpoch;
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                // Под разделяемой блокировкой пересчет не идет и не начнется до фиксации сброса
+                rollupRepository.lockForDeltas();
+                List<AnalyticsRollupRebuild> rebuilds = fromEpoch == NO_EPOCH
+                        ? List.of()
+                        : rebuildRepository.findByIdGreaterThanOrderById(fromEpoch);
+
+                Map<AnalyticsRollupId, RollupDelta> deltas = new HashMap<>();
+                int discarded = 0;
+                for (Map.Entry<PendingKey, RollupDelta> entry : batch.entrySet()) {
+                    PendingKey key = entry.getKey();
+                    if (rebuilds.stream().anyMatch(r -> r.getId() > key.epoch() && r.covers(key.id()))) {
+                        discarded++;
+                        continue;
+                    }
+                    deltas.merge(key.id(), entry.getValue(), RollupDelta::plus);
+                }
+
+                rollupRepository.applyDeltas(deltas);
+                log.debug("Сохранено изменений показателей аналитики: {}, уже учтено пересчетом: {}",
+                        deltas.size(), discarded);
+            });
+        } catch (Exception e) {
+            log.error("Не удалось сохранить показатели аналитики, изменения будут повторены", e);
+            batch.forEach((key, delta) -> pending.merge(key, delta, RollupDelta::plus));
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    /**
+     * Часовой пояс, в котором события раскладываются по дням и месяцам
+     */
+    public ZoneId zone() {
+        return zone;
+    }
+
+    private void addEnrollment(Map<AnalyticsRollupId, RollupDelta> deltas, EnrollmentSnapshot snapshot,
+                               boolean subtract) {
+        double progress = snapshot.progress() != null ? snapshot.progress() : 0.0;
+        RollupDelta enrolled = new RollupDelta(0, 0, 1, 0, progress);
+        RollupDelta completed = COMPLETION;
+        if (subtract) {
+            enrolled = enrolled.negate();
+            completed = completed.negate();
+        }
+
+        addForEnrollmentScopes(deltas, snapshot, snapshot.enrolledAt(), enrolled);
+        if (snapshot.completedAt() != null) {
+            addForEnrollmentScopes(deltas, snapshot, snapshot.completedAt(), completed);
+        }
+    }
+
+    private void addForEnrollmentScopes(Map<AnalyticsRollupId, RollupDelta> deltas, EnrollmentSnapshot snapshot,
+                                        ZonedDateTime at, RollupDelta delta) {
+        add(deltas, Scope.SYSTEM, SYSTEM_ID, at, delta);
+        add(deltas, Scope.COURSE, snapshot.courseId(), at, delta);
+        add(deltas, Scope.USER, snapshot.userId(), at, delta);
+    }
+
+    private void add(Map<AnalyticsRollupId, RollupDelta> deltas, Scope scope, Long scopeId,
+                     ZonedDateTime at, RollupDelta delta) {
+        LocalDate day = at.withZoneSameInstant(zone).toLocalDate();
+        deltas.merge(new AnalyticsRollupId(scope, scopeId, Granularity.DAY, day), delta, RollupDelta::plus);
+        deltas.merge(new AnalyticsRollupId(scope, scopeId, Granularity.MONTH, day.withDayOfMonth(1)),
+                delta, RollupDelta::plus);
+    }
+
+    private void recordAfterCommit(Map<AnalyticsRollupId, RollupDelta> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            buffer(NO_EPOCH, deltas);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+
+            private long epoch = NO_EPOCH;
+
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                epoch = rollupRepository.lockForDeltas();
+            }
+
+            @Override
+            public void afterCommit() {
+                buffer(epoch, deltas);
+            }
+        });
+    }
+
+    private void buffer(long epoch, Map<AnalyticsRollupId, RollupDelta> deltas) {
+        deltas.forEach((id, delta) -> pending.merge(new PendingKey(epoch, id), delta, RollupDelta::plus));
+    }
+}
@@ -4,37 +4,52 @@ import com.threadqa.lms.dto.analytics.CourseAnalyticsResponse;
 import com.threadqa.lms.dto.analytics.SystemAnalyticsResponse;
 import com.threadqa.lms.dto.analytics.UserAnalyticsResponse;
 import com.threadqa.lms.exception.ResourceNotFoundException;
+import com.threadqa.lms.model.analytics.AnalyticsRollup;
+import com.threadqa.lms.repository.analytics.AnalyticsRollupRepository;
 import com.threadqa.lms.repository.assessment.TestSubmissionRepository;
 import com.threadqa.lms.repository.course.CategoryRepository;
 import com.threadqa.lms.repository.course.CourseEnrollmentRepository;
 import com.threadqa.lms.repository.course.CourseRepository;
 import com.threadqa.lms.repository.course.CourseReviewRepository;
+import com.threadqa.lms.repository.progress.LessonEngagementStatsRepository;
 import com.threadqa.lms.repository.user.UserRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.time.Month;
+import java.time.LocalDate;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class AnalyticsService {
 
+    private static final int MONTHS = 12;
+    private static final DateTimeFormatter MONTH_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM");
+
     private final UserRepository userRepository;
     private final CourseRepository courseRepository;
     private final CourseEnrollmentRepository enrollmentRepository;
     private final CourseReviewRepository reviewRepository;
     private final CategoryRepository categoryRepository;
     private final TestSubmissionRepository testSubmissionRepository;
+    private final AnalyticsRollupRepository rollupRepository;
+    private final AnalyticsRollupService rollupService;
+    private final AnalyticsQueryExecutor queryExecutor;
+    private final ActivitySketchService activitySketchService;
+    private final LessonEngagementStatsRepository lessonEngagementStatsRepository;
 
+    /**
+     * Рассчитывает системную аналитику по БД. Для запросов используется {@link SystemAnalyticsSnapshot}.
+     */
     @Transactional(readOnly = true)
     public SystemAnalyticsResponse getSystemAnalytics() {
         // Агрегация данных о пользователях
@@ -42,9 +57,9 @@ public class AnalyticsService {
         Integer studentCount = userRepository.countByRoleName("ROLE_STUDENT").intValue();
         Integer instructorCount = userRepository.countByRoleName("ROLE_INSTRUCTOR").intValue();
         
-        // Активные пользователи за последние 30 дней
-        ZonedDateTime thirtyDaysAgo = ZonedDateTime.now().minusDays(30);
-        Integer activeUsers = userRepository.countActiveUsersSince(thirtyDaysAgo).intValue();
+        // Уникальные активные пользователи за сегодня и за последние 30 дней (оценка по скетчам)
+        Integer dailyActiveUsers = (int) activitySketchService.countActiveUsers(1);
+        Integer activeUsers = (int) activitySketchService.countActiveUsers(30);
         
         // Агрегация данных о курсах
         Integer totalCourses = (int) courseRepository.count();
@@ -64,14 +79,17 @@ public class AnalyticsService {
             averageRating = 0.0;
         }
         
+        // Помесячные показатели системы за последние 12 месяцев
+        Map<String, AnalyticsRollup> systemMonths = loadMonths(AnalyticsRollup.Scope.SYSTEM, 0L);
+
         // Статистика по пользователям за последние 12 месяцев
-        Map<String, Integer> usersByMonth = getUserCountByMonth();
+        Map<String, Integer> usersByMonth = getUserCountByMonth(systemMonths);
         
         // Статистика по курсам за последние 12 месяцев
-        Map<String, Integer> coursesByMonth = getCourseCountByMonth();
+        Map<String, Integer> coursesByMonth = getCourseCountByMonth(systemMonths);
         
         // Статистика по зачислениям за последние 12 месяцев
-        Map<String, Integer> enrollmentsByMonth = getEnrollmentCountByMonth();
+        Map<String, Integer> enrollmentsByMonth = getEnrollmentCountByMonth(systemMonths);
         
         // Статистика по категориям
         List<SystemAnalyticsResponse.CategoryStatsDTO> categoryStats = getCategoryStats();
@@ -79,6 +97,7 @@ public class AnalyticsService {
         return SystemAnalyticsResponse.builder()
                 .totalUsers(totalUsers)
                 .activeUsers(activeUsers)
+                .dailyActiveUsers(dailyActiveUsers)
                 .studentCount(studentCount)
                 .instructorCount(instructorCount)
                 .totalCourses(totalCourses)
@@ -87,14 +106,17 @@ public class AnalyticsService {
                 .completedCourses(completedCourses)
                 .systemWideCompletionRate(systemWideCompletionRate)
                 .averageRating(averageRating)
-                .usersByMonth(usersByMonth)
-                .coursesByMonth(coursesByMonth)
-                .enrollmentsByMonth(enrollmentsByMonth)
-                .categoryStats(categoryStats)
+                .usersByMonth(Map.copyOf(usersByMonth))
+                .coursesByMonth(Map.copyOf(coursesByMonth))
+                .enrollmentsByMonth(Map.copyOf(enrollmentsByMonth))
+                .categoryStats(List.copyOf(categoryStats))
+                .generatedAt(ZonedDateTime.now())
                 .build();
     }
 
-    @Transactional(readOnly = true)
+    /**
+     * Независимые агрегаты курса запрашиваются параллельно, см. {@link AnalyticsQueryExecutor}
+     */
     public CourseAnalyticsResponse getCourseAnalytics(Long courseId, Long currentUserId) {
         // Проверка существования курса
         boolean courseExists = courseRepository.existsById(courseId);
@@ -108,47 +130,61 @@ public class AnalyticsService {
             throw new AccessDeniedException("You don't have permission to view analytics for this course");
         }
         
+        AnalyticsQueryExecutor.Batch batch = queryExecutor.newBatch();
+        var courseTitleQuery = batch.submit("courseTitle", () -> courseRepository.findTitleById(courseId), null);
+        var enrollmentCountQuery = batch.submit("enrollmentCount",
+                () -> enrollmentRepository.countByCourseId(courseId), 0L);
+        var completionCountQuery = batch.submit("completionCount",
+                () -> enrollmentRepository.countByCompletedAtIsNotNullAndCourseId(courseId), 0L);
+        var averageProgressQuery = batch.submit("averageProgress",
+                () -> enrollmentRepository.getAverageProgressByCourseId(courseId), 0.0);
+        var averageRatingQuery = batch.submit("averageRating",
+                () -> reviewRepository.getAverageRatingByCourseId(courseId), 0.0);
+        var reviewCountQuery = batch.submit("reviewCount", () -> reviewRepository.countByCourseId(courseId), 0L);
+        var visitorCountQuery = batch.submit("visitorCount",
+                () -> activitySketchService.countCourseVisitors(courseId), 0L);
+        var courseMonthsQuery = batch.submit("courseMonths",
+                () -> loadMonths(AnalyticsRollup.Scope.COURSE, courseId), Map.<String, AnalyticsRollup>of());
+        var lessonEngagementQuery = batch.submit("lessonEngagement",
+                () -> getLessonEngagement(courseId), List.<CourseAnalyticsResponse.LessonEngagementDTO>of());
+
         // Название курса
-        String courseTitle = courseRepository.findTitleById(courseId);
+        String courseTitle = batch.get(courseTitleQuery);
         
         // Агрегация данных о зачислениях
-        Integer enrollmentCount = enrollmentRepository.countByCourseId(courseId).intValue();
-        Integer completionCount = enrollmentRepository.countByCompletedAtIsNotNullAndCourseId(courseId).intValue();
+        Integer enrollmentCount = batch.get(enrollmentCountQuery).intValue();
+        Integer completionCount = batch.get(completionCountQuery).intValue();
         
         // Вычисление ставки завершения
         Double completionRate = enrollmentCount > 0 ? 
                 (double) completionCount / enrollmentCount * 100 : 0.0;
         
         // Средний прогресс по курсу
-        Double averageProgress = enrollmentRepository.getAverageProgressByCourseId(courseId);
-        if (averageProgress == null) {
-            averageProgress = 0.0;
-        }
+        Double averageProgress = batch.get(averageProgressQuery);
         
         // Средний рейтинг курса
-        Double averageRating = reviewRepository.getAverageRatingByCourseId(courseId);
-        if (averageRating == null) {
-            averageRating = 0.0;
-        }
+        Double averageRating = batch.get(averageRatingQuery);
         
         // Количество отзывов
-        Integer reviewCount = reviewRepository.countByCourseId(courseId).intValue();
+        Integer reviewCount = batch.get(reviewCountQuery).intValue();
         
-        // Количество посетителей (примерное значение, в реальной системе нужна отдельная таблица для отслеживания)
-        Long visitorCount = enrollmentCount * 3L; // пример, предполагаем в 3 раза больше просмотров, чем зачислений
+        // Уникальные посетители курса за последние дни (оценка по скетчам)
+        Long visitorCount = batch.get(visitorCountQuery);
         
+        // Помесячные показатели курса за последние 12 месяцев
+        Map<String, AnalyticsRollup> courseMonths = batch.get(courseMonthsQuery);
+
         // Статистика по зачислениям за последние 12 месяцев
-        Map<String, Long> enrollmentsByMonth = getEnrollmentsByMonthForCourse(courseId);
+        Map<String, Long> enrollmentsByMonth = getEnrollmentsByMonthForCourse(courseMonths);
         
         // Статистика по прогрессу за последние 12 месяцев
-        Map<String, Double> averageProgressByMonth = getAverageProgressByMonthForCourse(courseId);
+        Map<String, Double> averageProgressByMonth = getAverageProgressByMonthForCourse(courseMonths);
         
         // Статистика по завершениям за последние 12 месяцев
-        Map<String, Integer> completionsByMonth = getCompletionsByMonthForCourse(courseId);
+        Map<String, Integer> completionsByMonth = getCompletionsByMonthForCourse(courseMonths);
         
-        // Данные о взаимодействии с уроками (примерные, в реальной системе нужны отдельные таблицы для отслеживания)
-        List<CourseAnalyticsResponse.LessonEngagementDTO> lessonEngagement = new ArrayList<>();
-        // Здесь нужна логика для получения данных о взаимодействии с уроками
+        // Взаимодействие с уроками по накопленным показателям событий
+        List<CourseAnalyticsResponse.LessonEngagementDTO> lessonEngagement = batch.get(lessonEngagementQuery);
         
         return CourseAnalyticsResponse.builder()
                 .courseId(courseId)
@@ -164,10 +200,13 @@ public class AnalyticsService {
                 .averageProgressByMonth(averageProgressByMonth)
                 .completionsByMonth(completionsByMonth)
                 .lessonEngagement(lessonEngagement)
+                .partial(batch.isPartial())
                 .build();
     }
 
-    @Transactional(readOnly = true)
+    /**
+     * Независимые агрегаты пользователя запрашиваются параллельно, см. {@link AnalyticsQueryExecutor}
+     */
     public UserAnalyticsResponse getUserAnalytics(Long userId, Long currentUserId) {
         // Проверка существования пользователя
         boolean userExists = userRepository.existsById(userId);
@@ -180,41 +219,52 @@ public class AnalyticsService {
             throw new AccessDeniedException("You don't have permission to view analytics for this user");
         }
         
+        AnalyticsQueryExecutor.Batch batch = queryExecutor.newBatch();
+        var userNameQuery = batch.submit("userName", () -> userRepository.findFullNameById(userId), null);
+        var enrolledCoursesQuery = batch.submit("enrolledCourses",
+                () -> enrollmentRepository.countByUserId(userId), 0L);
+        var completedCoursesQuery = batch.submit("completedCourses",
+                () -> enrollmentRepository.countByCompletedAtIsNotNullAndUserId(userId), 0L);
+        var averageProgressQuery = batch.submit("averageProgress",
+                () -> enrollmentRepository.getAverageProgressByUserId(userId), 0.0);
+        var testsTakenQuery = batch.submit("testsTaken", () -> testSubmissionRepository.countByUserId(userId), 0L);
+        var averageTestScoreQuery = batch.submit("averageTestScore",
+                () -> testSubmissionRepository.getAverageScoreByUserId(userId), 0.0);
+        var userMonthsQuery = batch.submit("userMonths",
+                () -> loadMonths(AnalyticsRollup.Scope.USER, userId), Map.<String, AnalyticsRollup>of());
+
         // Имя пользователя
-        String userName = userRepository.findFullNameById(userId);
+        String userName = batch.get(userNameQuery);
         
         // Агрегация данных о зачислениях
-        Integer enrolledCourses = enrollmentRepository.countByUserId(userId).intValue();
-        Integer completedCourses = enrollmentRepository.countByCompletedAtIsNotNullAndUserId(userId).intValue();
+        Integer enrolledCourses = batch.get(enrolledCoursesQuery).intValue();
+        Integer completedCourses = batch.get(completedCoursesQuery).intValue();
         
         // Вычисление ставки завершения
         Double completionRate = enrolledCourses > 0 ? 
                 (double) completedCourses / enrolledCourses * 100 : 0.0;
         
         // Средний прогресс по всем курсам
-        Double averageProgress = enrollmentRepository.getAverageProgressByUserId(userId);
-        if (averageProgress == null) {
-            averageProgress = 0.0;
-        }
+        Double averageProgress = batch.get(averageProgressQuery);
         
         // Данные о тестах
-        Integer testsTaken = testSubmissionRepository.countByUserId(userId).intValue();
-        Double averageTestScore = testSubmissionRepository.getAverageScoreByUserId(userId);
-        if (averageTestScore == null) {
-            averageTestScore = 0.0;
-        }
+        Integer testsTaken = batch.get(testsTakenQuery).intValue();
+        Double averageTestScore = batch.get(averageTestScoreQuery);
         
         // Количество полученных наград (примерное значение, в реальной системе нужна отдельная таблица)
         Integer earnedAchievements = 5; // пример
         
+        // Помесячные показатели пользователя за последние 12 месяцев
+        Map<String, AnalyticsRollup> userMonths = batch.get(userMonthsQuery);
+
         // Статистика по прогрессу за последние 12 месяцев
-        Map<String, Double> progressByMonth = getProgressByMonthForUser(userId);
+        Map<String, Double> progressByMonth = getProgressByMonthForUser(userMonths);
         
         // Статистика по зачислениям за последние 12 месяцев
-        Map<String, Integer> courseEnrollmentsByMonth = getCourseEnrollmentsByMonthForUser(userId);
+        Map<String, Integer> courseEnrollmentsByMonth = getCourseEnrollmentsByMonthForUser(userMonths);
         
         // Статистика по завершениям за последние 12 месяцев
-        Map<String, Integer> courseCompletionsByMonth = getCourseCompletionsByMonthForUser(userId);
+        Map<String, Integer> courseCompletionsByMonth = getCourseCompletionsByMonthForUser(userMonths);
         
         // Данные о прогрессе по курсам
         List<UserAnalyticsResponse.CourseProgressDTO> courseProgress = getCourseProgressForUser(userId);
@@ -233,60 +283,48 @@ public class AnalyticsService {
                 .courseEnrollmentsByMonth(courseEnrollmentsByMonth)
                 .courseCompletionsByMonth(courseCompletionsByMonth)
                 .courseProgress(courseProgress)
+                .partial(batch.isPartial())
                 .build();
     }
 
     // Вспомогательные методы для получения статистики
 
-    private Map<String, Integer> getUserCountByMonth() {
-        Map<String, Integer> usersByMonth = new HashMap<>();
-        ZonedDateTime now = ZonedDateTime.now();
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM");
-        
-        for (int i = 0; i < 12; i++) {
-            ZonedDateTime month = now.minusMonths(i);
-            String monthKey = month.format(formatter);
-            
-            // В реальной системе нужно получать данные из БД
-            // Здесь просто генерируем примерные данные
-            usersByMonth.put(monthKey, 100 - i * 5);
+    /**
+     * Загружает помесячные показатели за последние 12 месяцев, ключ — месяц в формате yyyy-MM
+     */
+    private Map<String, AnalyticsRollup> loadMonths(AnalyticsRollup.Scope scope, Long scopeId) {
+        LocalDate from = LocalDate.now(rollupService.zone()).withDayOfMonth(1).minusMonths(MONTHS - 1);
+        Map<String, AnalyticsRollup> months = new HashMap<>();
+        for (AnalyticsRollup rollup : rollupRepository.findSeries(scope, scopeId, AnalyticsRollup.Granularity.MONTH, from)) {
+            months.put(rollup.getId().getBucket().format(MONTH_FORMAT), rollup);
         }
-        
-        return usersByMonth;
+        return months;
     }
 
-    private Map<String, Integer> getCourseCountByMonth() {
-        Map<String, Integer> coursesByMonth = new HashMap<>();
-        ZonedDateTime now = ZonedDateTime.now();
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM");
-        
-        for (int i = 0; i < 12; i++) {
-            ZonedDateTime month = now.minusMonths(i);
-            String monthKey = month.format(formatter);
-            
-            // В реальной системе нужно получать данные из БД
-            // Здесь просто генерируем примерные данные
-            coursesByMonth.put(monthKey, 50 - i * 2);
+    /**
+     * Значение показателя за каждый из последних 12 месяцев, для месяцев без данных — empty
+     */
+    private <T> Map<String, T> byMonth(Map<String, AnalyticsRollup> months, Function<AnalyticsRollup, T> metric, T empty) {
+        Map<String, T> result = new HashMap<>();
+        LocalDate currentMonth = LocalDate.now(rollupService.zone()).withDayOfMonth(1);
+        for (int i = 0; i < MONTHS; i++) {
+            String monthKey = currentMonth.minusMonths(i).format(MONTH_FORMAT);
+            AnalyticsRollup rollup = months.get(monthKey);
+            result.put(monthKey, rollup != null ? metric.apply(rollup) : empty);
         }
-        
-        return coursesByMonth;
+        return result;
     }
 
-    private Map<String, Integer> getEnrollmentCountByMonth() {
-        Map<String, Integer> enrollmentsByMonth = new HashMap<>();
-        ZonedDateTime now = ZonedDateTime.now();
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM");
-        
-        for (int i = 0; i < 12; i++) {
-            ZonedDateTime month = now.minusMonths(i);
-            String monthKey = month.format(formatter);
-            
-            // В реальной системе нужно получать данные из БД
-            // Здесь просто генерируем примерные данные
-            enrollmentsByMonth.put(monthKey, 200 - i * 10);
-        }
-        
-        return enrollmentsByMonth;
+    private Map<String, Integer> getUserCountByMonth(Map<String, AnalyticsRollup> systemMonths) {
+        return byMonth(systemMonths, rollup -> rollup.getSignups().intValue(), 0);
+    }
+
+    private Map<String, Integer> getCourseCountByMonth(Map<String, AnalyticsRollup> systemMonths) {
+        return byMonth(systemMonths, rollup -> rollup.getCoursesCreated().intValue(), 0);
+    }
+
+    private Map<String, Integer> getEnrollmentCountByMonth(Map<String, AnalyticsRollup> systemMonths) {
+        return byMonth(systemMonths, rollup -> rollup.getEnrollments().intValue(), 0);
     }
 
     private List<SystemAnalyticsResponse.CategoryStatsDTO> getCategoryStats() {
@@ -303,106 +341,44 @@ public class AnalyticsService {
                 .collect(Collectors.toList());
     }
 
-    private Map<String, Long> getEnrollmentsByMonthForCourse(Long courseId) {
-        Map<String, Long> enrollmentsByMonth = new HashMap<>();
-        ZonedDateTime now = ZonedDateTime.now();
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM");
-        
-        for (int i = 0; i < 12; i++) {
-            ZonedDateTime month = now.minusMonths(i);
-            String monthKey = month.format(formatter);
-            
-            // В реальной системе нужно получать данные из БД
-            // Здесь просто генерируем примерные данные
-            enrollmentsByMonth.put(monthKey, 50L - i * 3);
-        }
-        
-        return enrollmentsByMonth;
+    private Map<String, Long> getEnrollmentsByMonthForCourse(Map<String, AnalyticsRollup> courseMonths) {
+        return byMonth(courseMonths, AnalyticsRollup::getEnrollments, 0L);
     }
 
-    private Map<String, Double> getAverageProgressByMonthForCourse(Long courseId) {
-        Map<String, Double> progressByMonth = new HashMap<>();
-        ZonedDateTime now = ZonedDateTime.now();
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM");
-        
-        for (int i = 0; i < 12; i++) {
-            ZonedDateTime month = now.minusMonths(i);
-            String monthKey = month.format(formatter);
-            
-            // В реальной системе нужно получать данные из БД
-            // Здесь просто генерируем примерные данные
-            progressByMonth.put(monthKey, 70.0 - i * 5);
-        }
-        
-        return progressByMonth;
+    private Map<String, Double> getAverageProgressByMonthForCourse(Map<String, AnalyticsRollup> courseMonths) {
+        return byMonth(courseMonths, AnalyticsRollup::getAverageProgress, 0.0);
     }
 
-    private Map<String, Integer> getCompletionsByMonthForCourse(Long courseId) {
-        Map<String, Integer> completionsByMonth = new HashMap<>();
-        ZonedDateTime now = ZonedDateTime.now();
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM");
-        
-        for (int i = 0; i < 12; i++) {
-            ZonedDateTime month = now.minusMonths(i);
-            String monthKey = month.format(formatter);
-            
-            // В реальной системе нужно получать данные из БД
-            // Здесь просто генерируем примерные данные
-            completionsByMonth.put(monthKey, 30 - i * 2);
-        }
-        
-        return completionsByMonth;
+    private Map<String, Integer> getCompletionsByMonthForCourse(Map<String, AnalyticsRollup> courseMonths) {
+        return byMonth(courseMonths, rollup -> rollup.getCompletions().intValue(), 0);
     }
 
-    private Map<String, Double> getProgressByMonthForUser(Long userId) {
-        Map<String, Double> progressByMonth = new HashMap<>();
-        ZonedDateTime now = ZonedDateTime.now();
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM");
-        
-        for (int i = 0; i < 12; i++) {
-            ZonedDateTime month = now.minusMonths(i);
-            String monthKey = month.format(formatter);
-            
-            // В реальной системе нужно получать данные из БД
-            // Здесь просто генерируем примерные данные
-            progressByMonth.put(monthKey, 10.0 * (i + 1));
-        }
-        
-        return progressByMonth;
+    private List<CourseAnalyticsResponse.LessonEngagementDTO> getLessonEngagement(Long courseId) {
+        return lessonEngagementStatsRepository.findTopicEngagementByCourseId(courseId).stream()
+                .map(topic -> CourseAnalyticsResponse.LessonEngagementDTO.builder()
+                        .topicId(topic.getTopicId())
+                        .topicTitle(topic.getTopicTitle())
+                        .views(topic.getViews().intValue())
+                        // Среднее время до завершения урока в секундах
+                        .averageCompletionTime(topic.getCompletionTimeSamples() > 0 ?
+                                (double) topic.getCompletionTimeSeconds() / topic.getCompletionTimeSamples() : 0.0)
+                        // Доля просмотров, завершившихся прохождением урока
+                        .averageCompletionRate(topic.getViews() > 0 ?
+                                Math.min(100.0, (double) topic.getCompletions() / topic.getViews() * 100) : 0.0)
+                        .build())
+                .collect(Collectors.toList());
     }
 
-    private Map<String, Integer> getCourseEnrollmentsByMonthForUser(Long userId) {
-        Map<String, Integer> enrollmentsByMonth = new HashMap<>();
-        ZonedDateTime now = ZonedDateTime.now();
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM");
-        
-        for (int i = 0; i < 12; i++) {
-            ZonedDateTime month = now.minusMonths(i);
-            String monthKey = month.format(formatter);
-            
-            // В реальной системе нужно получать данные из БД
-            // Здесь просто генерируем примерные данные
-            enrollmentsByMonth.put(monthKey, i < 6 ? 1 : 0);
-        }
-        
-        return enrollmentsByMonth;
+    private Map<String, Double> getProgressByMonthForUser(Map<String, AnalyticsRollup> userMonths) {
+        return byMonth(userMonths, AnalyticsRollup::getAverageProgress, 0.0);
     }
 
-    private Map<String, Integer> getCourseCompletionsByMonthForUser(Long userId) {
-        Map<String, Integer> completionsByMonth = new HashMap<>();
-        ZonedDateTime now = ZonedDateTime.now();
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM");
-        
-        for (int i = 0; i < 12; i++) {
-            ZonedDateTime month = now.minusMonths(i);
-            String monthKey = month.format(formatter);
-            
-            // В реальной системе нужно получать данные из БД
-            // Здесь просто генерируем примерные данные
-            completionsByMonth.put(monthKey, i < 3 ? 1 : 0);
-        }
-        
-        return completionsByMonth;
+    private Map<String, Integer> getCourseEnrollmentsByMonthForUser(Map<String, AnalyticsRollup> userMonths) {
+        return byMonth(userMonths, rollup -> rollup.getEnrollments().intValue(), 0);
+    }
+
+    private Map<String, Integer> getCourseCompletionsByMonthForUser(Map<String, AnalyticsRollup> userMonths) {
+        return byMonth(userMonths, rollup -> rollup.getCompletions().intValue(), 0);
     }
 
     private List<UserAnalyticsResponse.CourseProgressDTO> getCourseProgressForUser(Long userId) {
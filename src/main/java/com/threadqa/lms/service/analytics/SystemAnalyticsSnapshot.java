@@ -0,0 +1,110 @@
+package com.threadqa.lms.service.analytics;
+
+import com.threadqa.lms.dto.analytics.SystemAnalyticsResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Неизменяемый снимок системной аналитики. Запросы всегда получают последний
+ * рассчитанный снимок без обращения к БД; пересчет выполняется в фоне,
+ * одновременно не больше одного на узле. Если снимок устарел, а плановый
+ * пересчет еще не прошел, первый запрос запускает его асинхронно.
+ */
+@Slf4j
+@Component
+public class SystemAnalyticsSnapshot {
+
+    private final AnalyticsService analyticsService;
+    private final Executor executor;
+    private final long refreshIntervalMs;
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+
+    private volatile SystemAnalyticsResponse snapshot;
+
+    public SystemAnalyticsSnapshot(AnalyticsService analyticsService,
+                                   @Qualifier("taskExecutor") Executor executor,
+                                   @Value("${app.analytics.system-snapshot.refresh-interval-ms:60000}") long refreshIntervalMs) {
+        this.analyticsService = analyticsService;
+        this.executor = executor;
+        this.refreshIntervalMs = refreshIntervalMs;
+    }
+
+    /**
+     * Возвращает последний снимок с указанием его возраста
+     */
+    public SystemAnalyticsResponse get() {
+        SystemAnalyticsResponse current = snapshot;
+        if (current == null) {
+            current = loadFirst();
+        }
+
+        long ageMs = Duration.between(current.getGeneratedAt(), ZonedDateTime.now()).toMillis();
+        if (ageMs > refreshIntervalMs) {
+            refreshAsync();
+        }
+        return current.toBuilder()
+                .snapshotAgeSeconds(ageMs / 1000)
+                .build();
+    }
+
+    @Scheduled(fixedDelayString = "${app.analytics.system-snapshot.refresh-interval-ms:60000}",
+            initialDelayString = "${app.analytics.system-snapshot.refresh-interval-ms:60000}")
+    public void refresh() {
+        if (refreshing.compareAndSet(false, true)) {
+            recomputeAndRelease();
+        }
+    }
+
+    /**
+     * Флаг берется до отправки задачи, поэтому запросы устаревшего снимка не ставят в пул лишние пересчеты
+     */
+    private void refreshAsync() {
+        if (!refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            executor.execute(this::recomputeAndRelease);
+        } catch (TaskRejectedException e) {
+            refreshing.set(false);
+            log.debug("Пул задач занят, системная аналитика будет пересчитана по расписанию");
+        }
+    }
+
+    private void recomputeAndRelease() {
+        try {
+            recompute();
+        } catch (RuntimeException e) {
+            log.warn("Не удалось пересчитать системную аналитику, используется предыдущий снимок", e);
+        } finally {
+            refreshing.set(false);
+        }
+    }
+
+    /**
+     * Первый снимок рассчитывается синхронно; параллельные запросы ждут один расчет
+     */
+    private synchronized SystemAnalyticsResponse loadFirst() {
+        SystemAnalyticsResponse current = snapshot;
+        if (current == null) {
+            current = recompute();
+        }
+        return current;
+    }
+
+    private SystemAnalyticsResponse recompute() {
+        long started = System.nanoTime();
+        SystemAnalyticsResponse computed = analyticsService.getSystemAnalytics();
+        snapshot = computed;
+        log.debug("Системная аналитика пересчитана за {} мс", (System.nanoTime() - started) / 1_000_000);
+        return computed;
+    }
+}
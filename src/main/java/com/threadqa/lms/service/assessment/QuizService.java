@@ -11,6 +11,7 @@ import com.threadqa.lms.model.user.User;
 import com.threadqa.lms.repository.assessment.*;
 import com.threadqa.lms.repository.course.TopicRepository;
 import com.threadqa.lms.repository.user.UserRepository;
+import com.threadqa.lms.service.gamification.GamificationEventPublisher;
 import com.threadqa.lms.service.notification.NotificationService;
 import com.threadqa.lms.service.progress.ProgressTrackingService;
 import lombok.RequiredArgsConstructor;
@@ -37,6 +38,7 @@ public class QuizService {
     private final QuizMapper quizMapper;
     private final NotificationService notificationService;
     private final ProgressTrackingService progressTrackingService;
+    private final GamificationEventPublisher gamificationEventPublisher;
 
     @Transactional
     public QuizResponse createQuiz(QuizRequest request, Long userId) {
@@ -285,6 +287,9 @@ public class QuizService {
         progressTrackingService.trackActivity(userId, "QUIZ_SUBMIT", "Completed quiz: " + quiz.getTitle());
 
         if (isPassed) {
+            // Очки за тест начисляются асинхронно
+            gamificationEventPublisher.quizPassed(userId, quiz.getId(), answer.getId(), score);
+
             notificationService.createNotification(
                     userId, 
                     "Quiz Completed Successfully", 
@@ -5,6 +5,7 @@ import com.threadqa.lms.dto.auth.LoginRequest;
 import com.threadqa.lms.dto.auth.RefreshTokenRequest;
 import com.threadqa.lms.dto.auth.RegisterRequest;
 import com.threadqa.lms.dto.user.UserDTO;
+import com.threadqa.lms.event.UserAuthStateChangedEvent;
 import com.threadqa.lms.exception.AccountBlockedException;
 import com.threadqa.lms.exception.BadRequestException;
 import com.threadqa.lms.exception.ResourceNotFoundException;
@@ -14,17 +15,23 @@ import com.threadqa.lms.model.user.User;
 import com.threadqa.lms.repository.user.RoleRepository;
 import com.threadqa.lms.repository.user.UserRepository;
 import com.threadqa.lms.security.JwtTokenProvider;
+import com.threadqa.lms.service.analytics.AnalyticsRollupService;
+import com.threadqa.lms.service.gamification.LoginStreakRecorder;
+import com.threadqa.lms.util.HttpRequestUtils;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.access.prepost.PreAuthorize;
-import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.AccountStatusUserDetailsChecker;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.ZonedDateTime;
 import java.util.HashSet;
@@ -35,29 +42,43 @@ import java.util.Set;
 @RequiredArgsConstructor
 public class AuthService {
 
+    private static final AccountStatusUserDetailsChecker ACCOUNT_STATUS_CHECKER = new AccountStatusUserDetailsChecker();
+
     private final UserRepository userRepository;
     private final RoleRepository roleRepository;
-    private final PasswordEncoder passwordEncoder;
-    private final AuthenticationManager authenticationManager;
     private final JwtTokenProvider tokenProvider;
     private final UserMapper userMapper;
     private final EmailService emailService;
     private final SessionService sessionService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final PasswordHashingService passwordHashingService;
+    private final LoginRateLimiter loginRateLimiter;
+    private final LoginStreakRecorder loginStreakRecorder;
+    private final AnalyticsRollupService analyticsRollupService;
+    private final UserDetailsService userDetailsService;
+    private final TransactionTemplate transactionTemplate;
 
     /**
-     * Регистрация нового пользователя
+     * Регистрация нового пользователя. Пароль хэшируется до начала транзакции,
+     * чтобы ожидание пула хэширования не удерживало соединение с БД.
      */
-    @Transactional
     public AuthResponse register(RegisterRequest request, HttpServletRequest httpRequest) {
+        loginRateLimiter.checkIp(HttpRequestUtils.getClientIp(httpRequest));
+
         // Проверка, что email не занят
         if (userRepository.existsByEmail(request.getEmail())) {
             throw new BadRequestException("Email уже используется");
         }
 
+        String passwordHash = passwordHashingService.encode(request.getPassword());
+        return transactionTemplate.execute(status -> createAccount(request, passwordHash, httpRequest));
+    }
+
+    private AuthResponse createAccount(RegisterRequest request, String passwordHash, HttpServletRequest httpRequest) {
         // Создание нового пользователя
         User user = new User();
         user.setEmail(request.getEmail());
-        user.setPassword(passwordEncoder.encode(request.getPassword()));
+        user.setPassword(passwordHash);
         user.setFirstName(request.getFirstName());
         user.setLastName(request.getLastName());
         user.setPhoneNumber(request.getPhoneNumber());
@@ -83,17 +104,17 @@ public class AuthService {
         user.setRoles(roles);
 
         User savedUser = userRepository.save(user);
+        analyticsRollupService.userSignedUp(savedUser.getCreatedAt());
 
         // Отправка письма для подтверждения email
         emailService.sendVerificationEmail(savedUser);
 
-        // Аутентификация пользователя
-        Authentication authentication = authenticationManager.authenticate(
-                new UsernamePasswordAuthenticationToken(
-                        request.getEmail(),
-                        request.getPassword()
-                )
-        );
+        // Аутентификация пользователя. Пароль только что захэширован, повторная проверка bcrypt не нужна,
+        // но статус аккаунта проверяется так же, как при входе (неподтвержденный email - LockedException)
+        UserDetails userDetails = userDetailsService.loadUserByUsername(savedUser.getEmail());
+        ACCOUNT_STATUS_CHECKER.check(userDetails);
+        Authentication authentication = UsernamePasswordAuthenticationToken.authenticated(
+                userDetails, null, userDetails.getAuthorities());
 
         SecurityContextHolder.getContext().setAuthentication(authentication);
 
@@ -116,10 +137,12 @@ public class AuthService {
     }
 
     /**
-     * Вход пользователя в систему
+     * Вход пользователя в систему. Пароль проверяется до начала транзакции,
+     * чтобы ожидание пула хэширования не удерживало соединение с БД.
      */
-    @Transactional
     public AuthResponse login(LoginRequest request, HttpServletRequest httpRequest) {
+        loginRateLimiter.checkLogin(HttpRequestUtils.getClientIp(httpRequest), request.getEmail());
+
         // Получение пользователя
         User user = userRepository.findByEmail(request.getEmail())
                 .orElseThrow(() -> new ResourceNotFoundException("Пользователь не найден"));
@@ -130,16 +153,19 @@ public class AuthService {
                     (user.getBlockReason() != null ? user.getBlockReason() : "Неизвестно"));
         }
 
-        // Аутентификация пользователя
-        Authentication authentication = authenticationManager.authenticate(
-                new UsernamePasswordAuthenticationToken(
-                        request.getEmail(),
-                        request.getPassword()
-                )
-        );
+        // Аутентификация пользователя: на пуле хэширования выполняется только сравнение bcrypt
+        UserDetails userDetails = userDetailsService.loadUserByUsername(request.getEmail());
+        Authentication authentication = passwordHashingService.authenticate(userDetails, request.getPassword());
 
         SecurityContextHolder.getContext().setAuthentication(authentication);
 
+        return transactionTemplate.execute(status -> completeLogin(user.getId(), authentication, httpRequest));
+    }
+
+    private AuthResponse completeLogin(Long userId, Authentication authentication, HttpServletRequest httpRequest) {
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new ResourceNotFoundException("Пользователь не найден"));
+
         // Обновление времени последнего входа
         user.setLastLoginAt(ZonedDateTime.now());
         userRepository.save(user);
@@ -151,6 +177,9 @@ public class AuthService {
         // Создание сессии пользователя
         sessionService.createSession(user.getId(), accessToken, httpRequest);
 
+        // Серия входов обновляется асинхронно, вне запроса на вход
+        loginStreakRecorder.recordLogin(user.getId());
+
         UserDTO userDTO = userMapper.toUserDTO(user);
 
         return AuthResponse.builder()
@@ -167,6 +196,8 @@ public class AuthService {
      */
     @Transactional
     public AuthResponse refreshToken(RefreshTokenRequest request, HttpServletRequest httpRequest) {
+        loginRateLimiter.checkIp(HttpRequestUtils.getClientIp(httpRequest));
+
         // Проверка refresh токена
         if (!tokenProvider.validateToken(request.getRefreshToken())) {
             throw new BadRequestException("Недействительный refresh token");
@@ -216,10 +247,7 @@ public class AuthService {
     @Transactional
     public void logout(String token) {
         // Деактивация сессии
-        sessionService.getSessionByToken(token).ifPresent(session -> {
-            session.deactivate();
-            // Сохранение обновленной сессии выполняется внутри sessionService
-        });
+        sessionService.deactivateSessionByToken(token);
 
         // Очистка контекста безопасности
         SecurityContextHolder.clearContext();
@@ -277,6 +305,7 @@ public class AuthService {
         user.setBlockReason(null);
         user.setBlockedAt(null);
         userRepository.save(user);
+        eventPublisher.publishEvent(new UserAuthStateChangedEvent(userId));
         
         log.info("Аккаунт пользователя разблокирован: {}", userId);
     }
@@ -0,0 +1,79 @@
+package com.threadqa.lms.service.auth;
+
+import com.threadqa.lms.repository.user.UserSessionRepository;
+import com.threadqa.lms.repository.user.UserSessionRepositoryExtensions.IdleSession;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Периодически деактивирует сессии, которые не использовались дольше заданного времени
+ */
+@Slf4j
+@Component
+public class IdleSessionReaper {
+
+    private final UserSessionRepository sessionRepository;
+    private final SessionActivityTracker activityTracker;
+    private final SessionCache sessionCache;
+    private final SessionStore sessionStore;
+    private final long idleTimeoutMinutes;
+    private final int batchSize;
+    private final Counter reapedCounter;
+    private final Timer runTimer;
+
+    public IdleSessionReaper(UserSessionRepository sessionRepository,
+                             SessionActivityTracker activityTracker,
+                             SessionCache sessionCache,
+                             SessionStore sessionStore,
+                             MeterRegistry meterRegistry,
+                             @Value("${app.session.idle-timeout-minutes:60}") long idleTimeoutMinutes,
+                             @Value("${app.session.reaper.batch-size:500}") int batchSize) {
+        this.sessionRepository = sessionRepository;
+        this.activityTracker = activityTracker;
+        this.sessionCache = sessionCache;
+        this.sessionStore = sessionStore;
+        this.idleTimeoutMinutes = idleTimeoutMinutes;
+        this.batchSize = batchSize;
+        this.reapedCounter = Counter.builder("lms.sessions.reaped")
+                .description("Количество сессий, деактивированных по неактивности")
+                .register(meterRegistry);
+        this.runTimer = Timer.builder("lms.sessions.reaper.duration")
+                .description("Длительность очистки неактивных сессий")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${app.session.reaper.interval-ms:300000}")
+    public void reapIdleSessions() {
+        runTimer.record(this::reap);
+    }
+
+    private void reap() {
+        // Сначала сохраняем накопленную активность, чтобы не закрыть используемые сессии
+        activityTracker.flush();
+
+        LocalDateTime idleBefore = LocalDateTime.now().minusMinutes(idleTimeoutMinutes);
+        int reaped = sessionRepository.deactivateIdleSessions(idleBefore, batchSize, this::onBatchReaped);
+
+        if (reaped < 0) {
+            log.debug("Очистка неактивных сессий выполняется на другом узле");
+        } else if (reaped > 0) {
+            log.info("Деактивировано неактивных сессий: {}", reaped);
+        }
+    }
+
+    private void onBatchReaped(List<IdleSession> batch) {
+        for (IdleSession session : batch) {
+            sessionCache.invalidateToken(session.token());
+            sessionStore.sessionDeactivated(session.userId(), session.token());
+        }
+        reapedCounter.increment(batch.size());
+    }
+}
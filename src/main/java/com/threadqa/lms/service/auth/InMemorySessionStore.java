@@ -0,0 +1,162 @@
+package com.threadqa.lms.service.auth;
+
+import com.threadqa.lms.model.user.UserSession;
+import com.threadqa.lms.repository.user.UserSessionRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Хранилище сессий в памяти для одного экземпляра приложения.
+ * Для каждого пользователя хранится очередь токенов активных сессий в порядке создания,
+ * доступ к ней защищен блокировкой из набора, выбираемой по ID пользователя.
+ * Лимит проверяется атомарно, самая старая сессия вытесняется за O(1),
+ * а ее деактивация сохраняется в БД асинхронно после коммита.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.session.store.type", havingValue = "memory")
+public class InMemorySessionStore implements SessionStore {
+
+    private final UserSessionRepository sessionRepository;
+    private final SessionCache sessionCache;
+    private final Executor executor;
+    private final ReentrantLock[] locks;
+    private final Map<Long, ArrayDeque<String>> activeTokensByUser = new ConcurrentHashMap<>();
+
+    public InMemorySessionStore(UserSessionRepository sessionRepository,
+                                SessionCache sessionCache,
+                                @Qualifier("taskExecutor") Executor executor,
+                                @Value("${app.session.store.lock-stripes:64}") int lockStripes) {
+        this.sessionRepository = sessionRepository;
+        this.sessionCache = sessionCache;
+        this.executor = executor;
+        this.locks = new ReentrantLock[lockStripes];
+        for (int i = 0; i < lockStripes; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    @Override
+    public UserSession createSession(UserSession session, int maxActiveSessions) {
+        Long userId = session.getUserId();
+        List<String> evictedTokens = new ArrayList<>();
+
+        ReentrantLock lock = lockFor(userId);
+        lock.lock();
+        try {
+            ArrayDeque<String> tokens = activeTokensByUser.get(userId);
+            if (tokens == null) {
+                tokens = loadActiveTokens(userId);
+                activeTokensByUser.put(userId, tokens);
+            }
+            while (tokens.size() >= maxActiveSessions) {
+                evictedTokens.add(tokens.pollFirst());
+            }
+            tokens.addLast(session.getToken());
+        } finally {
+            lock.unlock();
+        }
+
+        UserSession saved = sessionRepository.save(session);
+        afterCommit(userId, () -> evictedTokens.forEach(token -> deactivate(userId, token)));
+        return saved;
+    }
+
+    @Override
+    public void sessionDeactivated(Long userId, String token) {
+        ReentrantLock lock = lockFor(userId);
+        lock.lock();
+        try {
+            ArrayDeque<String> tokens = activeTokensByUser.get(userId);
+            if (tokens != null) {
+                tokens.remove(token);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void userSessionsChanged(Long userId) {
+        // Очередь будет заново прочитана из БД при следующем входе
+        ReentrantLock lock = lockFor(userId);
+        lock.lock();
+        try {
+            activeTokensByUser.remove(userId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private ArrayDeque<String> loadActiveTokens(Long userId) {
+        ArrayDeque<String> tokens = new ArrayDeque<>();
+        sessionRepository.findByUserIdAndIsActiveTrue(userId).stream()
+                .sorted(Comparator.comparing(UserSession::getCreatedAt))
+                .forEach(s -> tokens.addLast(s.getToken()));
+        return tokens;
+    }
+
+    /**
+     * Вытесненная сессия сразу перестает приниматься фильтром, а в БД деактивируется в фоне
+     */
+    private void deactivate(Long userId, String token) {
+        sessionCache.markInactive(token);
+        try {
+            executor.execute(() -> persistDeactivation(userId, token));
+        } catch (RejectedExecutionException e) {
+            persistDeactivation(userId, token);
+        }
+    }
+
+    private void persistDeactivation(Long userId, String token) {
+        try {
+            sessionRepository.deactivateByToken(token);
+            log.info("Деактивирована самая старая сессия пользователя ID: {}", userId);
+        } catch (Exception e) {
+            log.error("Не удалось деактивировать сессию пользователя ID: {}", userId, e);
+        }
+    }
+
+    /**
+     * Выполняет действие после коммита текущей транзакции. При откате очередь пользователя
+     * сбрасывается, чтобы не учитывать несохраненную сессию.
+     */
+    private void afterCommit(Long userId, Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    userSessionsChanged(userId);
+                }
+            }
+        });
+    }
+
+    private ReentrantLock lockFor(Long userId) {
+        return locks[Math.floorMod(userId.hashCode(), locks.length)];
+    }
+}
@@ -0,0 +1,65 @@
+package com.threadqa.lms.service.auth;
+
+import com.threadqa.lms.model.user.UserSession;
+import com.threadqa.lms.repository.user.UserRepository;
+import com.threadqa.lms.repository.user.UserSessionRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * Хранилище сессий на основе БД. Лимит соблюдается под блокировкой строки пользователя,
+ * поэтому работает и при нескольких экземплярах приложения.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "app.session.store.type", havingValue = "jpa", matchIfMissing = true)
+public class JpaSessionStore implements SessionStore {
+
+    private final UserSessionRepository sessionRepository;
+    private final UserRepository userRepository;
+    private final SessionCache sessionCache;
+
+    @Override
+    @Transactional
+    public UserSession createSession(UserSession session, int maxActiveSessions) {
+        Long userId = session.getUserId();
+
+        // Параллельные входы одного пользователя выполняются по очереди
+        userRepository.lockById(userId);
+
+        long activeSessionsCount = sessionRepository.countByUserIdAndIsActiveTrue(userId);
+        if (activeSessionsCount >= maxActiveSessions) {
+            int excess = (int) (activeSessionsCount - maxActiveSessions + 1);
+            List<UserSession> oldestSessions = sessionRepository.findOldestActiveSessionByUserId(
+                    userId, PageRequest.of(0, excess));
+
+            for (UserSession oldestSession : oldestSessions) {
+                oldestSession.deactivate();
+                sessionRepository.save(oldestSession);
+                sessionCache.invalidateToken(oldestSession.getToken());
+
+                log.info("Деактивирована самая старая сессия пользователя ID: {}, сессия ID: {}",
+                        userId, oldestSession.getId());
+            }
+        }
+
+        return sessionRepository.save(session);
+    }
+
+    @Override
+    public void sessionDeactivated(Long userId, String token) {
+        // Состояние хранится только в БД
+    }
+
+    @Override
+    public void userSessionsChanged(Long userId) {
+        // Состояние хранится только в БД
+    }
+}
@@ -0,0 +1,198 @@
+package com.threadqa.lms.service.auth;
+
+import com.threadqa.lms.model.user.UserLoginFingerprint;
+import com.threadqa.lms.repository.user.UserLoginFingerprintRepository;
+import com.threadqa.lms.repository.user.UserSessionRepository;
+import com.threadqa.lms.repository.user.UserSessionRepository.LoginOrigin;
+import com.threadqa.lms.util.LruCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Индекс известных входов пользователя для проверки подозрительной активности.
+ * Для каждого пользователя хранится небольшой набор 64-битных хэшей:
+ * города, типа устройства и кортежа (город, тип устройства, браузер).
+ * Проверка не зависит от количества сессий пользователя. Если индекса еще нет,
+ * он заполняется по истории сессий пользователя.
+ */
+@Service
+public class LoginFingerprintService {
+
+    private static final long[] EMPTY = new long[0];
+
+    private final UserLoginFingerprintRepository fingerprintRepository;
+    private final UserSessionRepository sessionRepository;
+    private final LruCache<Long, Fingerprints> cache;
+    private final int maxFingerprints;
+
+    public LoginFingerprintService(UserLoginFingerprintRepository fingerprintRepository,
+                                   UserSessionRepository sessionRepository,
+                                   @Value("${app.session.fingerprints.cache-size:50000}") int cacheSize,
+                                   @Value("${app.session.fingerprints.max-per-user:64}") int maxFingerprints) {
+        this.fingerprintRepository = fingerprintRepository;
+        this.sessionRepository = sessionRepository;
+        this.cache = new LruCache<>(cacheSize);
+        this.maxFingerprints = maxFingerprints;
+    }
+
+    /**
+     * Вход считается подозрительным, если у пользователя уже есть известные входы,
+     * но ни город, ни тип устройства среди них не встречались
+     */
+    public boolean isSuspicious(Long userId, String city, String deviceType, String browser) {
+        long[] known = getFingerprints(userId).hashes();
+        if (known.length == 0) {
+            return false; // Первый вход, нет с чем сравнивать
+        }
+        if (contains(known, tupleHash(city, deviceType, browser))) {
+            return false;
+        }
+        return !contains(known, hash("city", city)) && !contains(known, hash("device", deviceType));
+    }
+
+    /**
+     * Добавляет вход в индекс. Запись в БД выполняется, только если появились новые отпечатки
+     * или индекс был заполнен по истории сессий и еще не сохранен.
+     */
+    public void record(Long userId, String city, String deviceType, String browser) {
+        Fingerprints fingerprints = getFingerprints(userId);
+        long[] known = fingerprints.hashes();
+        long[] updated = add(known, city, deviceType, browser);
+        if (updated == known && fingerprints.persisted()) {
+            return;
+        }
+
+        fingerprintRepository.save(UserLoginFingerprint.builder()
+                .userId(userId)
+                .hashes(pack(updated))
+                .updatedAt(LocalDateTime.now())
+                .build());
+        cache.put(userId, new Fingerprints(updated, true));
+        evictOnRollback(userId);
+    }
+
+    private Fingerprints getFingerprints(Long userId) {
+        return cache.computeIfAbsent(userId, id -> fingerprintRepository.findById(id)
+                .map(fingerprint -> new Fingerprints(unpack(fingerprint.getHashes()), true))
+                .orElseGet(() -> new Fingerprints(seedFromSessions(id), false)));
+    }
+
+    /**
+     * Строит индекс по прошлым сессиям пользователя (для входов, сделанных до появления индекса).
+     * Сессии обходятся от старых к новым, чтобы при превышении лимита остались самые недавние отпечатки.
+     */
+    private long[] seedFromSessions(Long userId) {
+        List<LoginOrigin> origins = sessionRepository.findRecentLoginOrigins(userId, PageRequest.of(0, maxFingerprints));
+        long[] hashes = EMPTY;
+        for (int i = origins.size() - 1; i >= 0; i--) {
+            LoginOrigin origin = origins.get(i);
+            hashes = add(hashes, origin.getCity(), origin.getDeviceType(), origin.getBrowser());
+        }
+        return hashes;
+    }
+
+    /**
+     * Добавляет отпечатки входа в набор
+     *
+     * @return исходный массив, если новых отпечатков нет
+     */
+    private long[] add(long[] hashes, String city, String deviceType, String browser) {
+        long[] candidates = {
+                tupleHash(city, deviceType, browser),
+                hash("city", city),
+                hash("device", deviceType)
+        };
+
+        long[] updated = hashes;
+        for (long candidate : candidates) {
+            if (!contains(updated, candidate)) {
+                updated = append(updated, candidate);
+            }
+        }
+        return updated;
+    }
+
+    /**
+     * Добавляет хэш в конец набора, при превышении лимита вытесняя самые старые
+     */
+    private long[] append(long[] hashes, long hash) {
+        int keep = Math.min(hashes.length, maxFingerprints - 1);
+        long[] result = Arrays.copyOfRange(hashes, hashes.length - keep, hashes.length + 1);
+        result[keep] = hash;
+        return result;
+    }
+
+    private void evictOnRollback(Long userId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    cache.remove(userId);
+                }
+            }
+        });
+    }
+
+    private static boolean contains(long[] hashes, long hash) {
+        for (long value : hashes) {
+            if (value == hash) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static long tupleHash(String city, String deviceType, String browser) {
+        return hash("login", city + '\u0000' + deviceType + '\u0000' + browser);
+    }
+
+    /**
+     * 64-битный FNV-1a хэш значения с префиксом вида отпечатка
+     */
+    private static long hash(String kind, String value) {
+        long hash = 0xcbf29ce484222325L;
+        String input = kind + ':' + value;
+        for (int i = 0; i < input.length(); i++) {
+            hash ^= input.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /**
+     * Набор отпечатков пользователя и признак того, что он сохранен в БД
+     */
+    private record Fingerprints(long[] hashes, boolean persisted) {
+    }
+
+    private static byte[] pack(long[] hashes) {
+        ByteBuffer buffer = ByteBuffer.allocate(hashes.length * Long.BYTES);
+        for (long hash : hashes) {
+            buffer.putLong(hash);
+        }
+        return buffer.array();
+    }
+
+    private static long[] unpack(byte[] bytes) {
+        if (bytes == null || bytes.length == 0) {
+            return EMPTY;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        long[] hashes = new long[bytes.length / Long.BYTES];
+        for (int i = 0; i < hashes.length; i++) {
+            hashes[i] = buffer.getLong();
+        }
+        return hashes;
+    }
+}
@@ -0,0 +1,68 @@
+package com.threadqa.lms.service.auth;
+
+import com.threadqa.lms.exception.TooManyRequestsException;
+import com.threadqa.lms.util.TokenBucketLimiter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+
+/**
+ * Ограничение частоты попыток входа по IP-адресу и по email (алгоритм token bucket).
+ */
+@Component
+public class LoginRateLimiter {
+
+    private final TokenBucketLimiter<String> ipBuckets;
+    private final TokenBucketLimiter<String> emailBuckets;
+    private final Counter throttledCounter;
+
+    public LoginRateLimiter(MeterRegistry meterRegistry,
+                            @Value("${app.auth.rate-limit.ip.capacity:20}") int ipCapacity,
+                            @Value("${app.auth.rate-limit.ip.refill-per-minute:20}") int ipRefillPerMinute,
+                            @Value("${app.auth.rate-limit.email.capacity:5}") int emailCapacity,
+                            @Value("${app.auth.rate-limit.email.refill-per-minute:5}") int emailRefillPerMinute,
+                            @Value("${app.auth.rate-limit.max-keys:100000}") int maxKeys) {
+        this.ipBuckets = new TokenBucketLimiter<>(ipCapacity, ipRefillPerMinute, maxKeys);
+        this.emailBuckets = new TokenBucketLimiter<>(emailCapacity, emailRefillPerMinute, maxKeys);
+        this.throttledCounter = Counter.builder("lms.auth.throttled")
+                .description("Количество попыток аутентификации, отклоненных ограничителем частоты")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Проверяет лимит попыток для IP-адреса
+     */
+    public void checkIp(String ipAddress) {
+        if (ipAddress != null && !ipBuckets.tryConsume(ipAddress)) {
+            reject();
+        }
+    }
+
+    /**
+     * Проверяет лимит попыток для IP-адреса и email
+     */
+    public void checkLogin(String ipAddress, String email) {
+        checkIp(ipAddress);
+        if (email != null && !emailBuckets.tryConsume(email.toLowerCase(Locale.ROOT))) {
+            reject();
+        }
+    }
+
+    /**
+     * Удаляет полностью восстановившиеся бакеты, чтобы карта не росла бесконечно
+     */
+    @Scheduled(fixedDelay = 60000)
+    public void evictIdleBuckets() {
+        ipBuckets.evictFull();
+        emailBuckets.evictFull();
+    }
+
+    private void reject() {
+        throttledCounter.increment();
+        throw new TooManyRequestsException("Слишком много попыток входа. Повторите позже.");
+    }
+}
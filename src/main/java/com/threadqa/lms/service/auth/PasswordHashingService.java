@@ -0,0 +1,107 @@
+package com.threadqa.lms.service.auth;
+
+import com.threadqa.lms.exception.TooManyRequestsException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.security.authentication.AccountStatusUserDetailsChecker;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Выполняет проверку и хэширование паролей на отдельном ограниченном пуле потоков.
+ * Если очередь пула заполнена, запрос сразу отклоняется с кодом 429.
+ * Задачи на пуле не обращаются к БД: данные пользователя загружаются вызывающим потоком.
+ */
+@Slf4j
+@Service
+public class PasswordHashingService {
+
+    private static final AccountStatusUserDetailsChecker ACCOUNT_STATUS_CHECKER = new AccountStatusUserDetailsChecker();
+
+    private final ThreadPoolTaskExecutor executor;
+    private final PasswordEncoder passwordEncoder;
+    private final long timeoutMs;
+    private final Counter rejectedCounter;
+
+    public PasswordHashingService(@Qualifier("passwordHashingExecutor") ThreadPoolTaskExecutor executor,
+                                  PasswordEncoder passwordEncoder,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${app.auth.hashing.timeout-ms:10000}") long timeoutMs) {
+        this.executor = executor;
+        this.passwordEncoder = passwordEncoder;
+        this.timeoutMs = timeoutMs;
+        this.rejectedCounter = Counter.builder("lms.auth.hashing.rejected")
+                .description("Количество операций с паролями, отклоненных из-за переполнения очереди")
+                .register(meterRegistry);
+        Gauge.builder("lms.auth.hashing.queue.size", executor,
+                        e -> e.getThreadPoolExecutor().getQueue().size())
+                .description("Количество операций с паролями, ожидающих выполнения")
+                .register(meterRegistry);
+        Gauge.builder("lms.auth.hashing.active", executor, ThreadPoolTaskExecutor::getActiveCount)
+                .description("Количество выполняющихся операций с паролями")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Аутентифицирует пользователя по уже загруженным данным: проверяет статус аккаунта
+     * и сравнивает пароль с хэшем
+     */
+    public Authentication authenticate(UserDetails userDetails, String rawPassword) {
+        ACCOUNT_STATUS_CHECKER.check(userDetails);
+        boolean matches = execute(() -> passwordEncoder.matches(rawPassword, userDetails.getPassword()));
+        if (!matches) {
+            throw new BadCredentialsException("Bad credentials");
+        }
+        return UsernamePasswordAuthenticationToken.authenticated(userDetails, null, userDetails.getAuthorities());
+    }
+
+    /**
+     * Хэширует пароль
+     */
+    public String encode(String rawPassword) {
+        return execute(() -> passwordEncoder.encode(rawPassword));
+    }
+
+    private <T> T execute(Supplier<T> task) {
+        Future<T> future;
+        try {
+            future = executor.submit(task::get);
+        } catch (TaskRejectedException e) {
+            rejectedCounter.increment();
+            throw new TooManyRequestsException("Сервис перегружен. Повторите попытку позже.");
+        }
+
+        try {
+            return future.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Ошибка при обработке пароля", e.getCause());
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            log.warn("Превышено время ожидания операции с паролем ({} мс)", timeoutMs);
+            throw new TooManyRequestsException("Сервис перегружен. Повторите попытку позже.");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(true);
+            throw new IllegalStateException("Операция с паролем прервана", e);
+        }
+    }
+}
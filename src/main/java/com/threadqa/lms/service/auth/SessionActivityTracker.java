@@ -0,0 +1,75 @@
+package com.threadqa.lms.service.auth;
+
+import com.threadqa.lms.config.SchedulingConfig;
+import com.threadqa.lms.repository.user.UserSessionRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Накапливает время последней активности сессий в памяти и периодически
+ * сохраняет его в БД одним пакетным обновлением вместо UPDATE на каждый запрос
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SessionActivityTracker {
+
+    private final UserSessionRepository sessionRepository;
+
+    private final Map<Long, LocalDateTime> pending = new ConcurrentHashMap<>();
+
+    /**
+     * Запоминает активность сессии
+     */
+    public void recordActivity(Long sessionId) {
+        pending.put(sessionId, LocalDateTime.now());
+    }
+
+    /**
+     * Возвращает еще не сохраненное время активности сессии или null
+     */
+    public LocalDateTime getPendingActivity(Long sessionId) {
+        return pending.get(sessionId);
+    }
+
+    /**
+     * Сохраняет накопленные отметки активности
+     */
+    @Scheduled(fixedDelayString = "${app.session.activity.flush-interval-ms:30000}",
+            scheduler = SchedulingConfig.DRAIN_SCHEDULER)
+    public void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        Map<Long, LocalDateTime> batch = new HashMap<>();
+        for (Long sessionId : pending.keySet()) {
+            LocalDateTime lastActivityAt = pending.remove(sessionId);
+            if (lastActivityAt != null) {
+                batch.put(sessionId, lastActivityAt);
+            }
+        }
+
+        try {
+            int updated = sessionRepository.batchUpdateLastActivity(batch);
+            log.debug("Сохранена активность {} сессий ({} строк обновлено)", batch.size(), updated);
+        } catch (Exception e) {
+            log.error("Не удалось сохранить активность сессий, отметки будут повторены", e);
+            batch.forEach((sessionId, lastActivityAt) -> pending.merge(sessionId, lastActivityAt,
+                    (current, failed) -> current.isAfter(failed) ? current : failed));
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+}
@@ -0,0 +1,159 @@
+package com.threadqa.lms.service.auth;
+
+import com.threadqa.lms.event.UserAuthStateChangedEvent;
+import com.threadqa.lms.util.LruCache;
+import com.threadqa.lms.util.TokenHashUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Кэш результатов проверки сессий по токену.
+ * Ключом служит SHA-256 хэш токена, чтобы не держать сами токены в памяти.
+ */
+@Slf4j
+@Component
+public class SessionCache {
+
+    private final LruCache<String, CachedSession> sessions;
+    private final Map<Long, Set<String>> tokenHashesByUser = new ConcurrentHashMap<>();
+
+    /**
+     * Увеличивается при каждой инвалидации. Позволяет не записывать в кэш значение,
+     * прочитанное из БД до того, как сессия была деактивирована.
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    public SessionCache(@Value("${app.session.cache.max-size:10000}") int maxSize,
+                        @Value("${app.session.cache.ttl-seconds:60}") long ttlSeconds) {
+        this.sessions = new LruCache<>(maxSize, Duration.ofSeconds(ttlSeconds), this::unindex);
+    }
+
+    /**
+     * Возвращает закэшированное состояние сессии или null
+     */
+    public CachedSession get(String token) {
+        return sessions.get(hash(token));
+    }
+
+    /**
+     * Текущее поколение кэша, которое нужно запомнить перед чтением сессии из БД
+     */
+    public long currentGeneration() {
+        return generation.get();
+    }
+
+    /**
+     * Сохраняет состояние сессии, если с момента чтения не было инвалидаций
+     */
+    public void put(String token, CachedSession session, long readGeneration) {
+        String tokenHash = hash(token);
+        if (session.userId() != null) {
+            tokenHashesByUser.computeIfAbsent(session.userId(), id -> ConcurrentHashMap.newKeySet()).add(tokenHash);
+        }
+        sessions.put(tokenHash, session);
+        if (generation.get() != readGeneration) {
+            sessions.remove(tokenHash);
+        }
+    }
+
+    /**
+     * Удаляет из кэша сессию с указанным токеном.
+     * Внутри транзакции удаление повторяется после коммита.
+     */
+    public void invalidateToken(String token) {
+        String tokenHash = hash(token);
+        runNowAndAfterCommit(() -> {
+            generation.incrementAndGet();
+            CachedSession removed = sessions.remove(tokenHash);
+            if (removed != null) {
+                unindex(tokenHash, removed);
+            }
+        });
+    }
+
+    /**
+     * Помечает сессию неактивной до того, как ее деактивация будет сохранена в БД
+     */
+    public void markInactive(String token) {
+        String tokenHash = hash(token);
+        generation.incrementAndGet();
+        CachedSession removed = sessions.remove(tokenHash);
+        if (removed != null) {
+            unindex(tokenHash, removed);
+        }
+        sessions.put(tokenHash, CachedSession.inactive());
+    }
+
+    /**
+     * Удаляет из кэша все сессии пользователя.
+     * Внутри транзакции удаление повторяется после коммита.
+     */
+    public void invalidateUser(Long userId) {
+        runNowAndAfterCommit(() -> {
+            generation.incrementAndGet();
+            Set<String> tokenHashes = tokenHashesByUser.remove(userId);
+            if (tokenHashes != null) {
+                tokenHashes.forEach(sessions::remove);
+            }
+        });
+        log.debug("Кэш сессий пользователя ID: {} очищен", userId);
+    }
+
+    /**
+     * Состояние блокировки хранится в записях кэша, поэтому при его изменении записи пользователя сбрасываются
+     */
+    @EventListener
+    public void onAuthStateChanged(UserAuthStateChangedEvent event) {
+        invalidateUser(event.userId());
+    }
+
+    /**
+     * Пока транзакция не закоммичена, параллельный запрос может прочитать из БД старое
+     * состояние сессии и положить его в кэш, поэтому очистка повторяется после коммита
+     */
+    private void runNowAndAfterCommit(Runnable action) {
+        action.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        }
+    }
+
+    private void unindex(String tokenHash, CachedSession session) {
+        if (session.userId() == null) {
+            return;
+        }
+        tokenHashesByUser.computeIfPresent(session.userId(), (id, hashes) -> {
+            hashes.remove(tokenHash);
+            return hashes.isEmpty() ? null : hashes;
+        });
+    }
+
+    private static String hash(String token) {
+        return TokenHashUtils.sha256(token);
+    }
+
+    /**
+     * Состояние сессии, достаточное для авторизации запроса
+     */
+    public record CachedSession(Long sessionId, Long userId, boolean active, boolean blocked, String blockReason) {
+
+        public static CachedSession inactive() {
+            return new CachedSession(null, null, false, false, null);
+        }
+    }
+}
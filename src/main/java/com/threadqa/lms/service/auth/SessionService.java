@@ -1,28 +1,33 @@
 package com.threadqa.lms.service.auth;
 
 import com.threadqa.lms.dto.auth.SessionInfoResponse;
+import com.threadqa.lms.event.UserAuthStateChangedEvent;
 import com.threadqa.lms.exception.AccountBlockedException;
 import com.threadqa.lms.exception.ResourceNotFoundException;
 import com.threadqa.lms.exception.SuspiciousActivityException;
 import com.threadqa.lms.exception.TooManySessionsException;
 import com.threadqa.lms.model.user.User;
+import com.threadqa.lms.model.user.UserAuthSnapshot;
 import com.threadqa.lms.model.user.UserSession;
 import com.threadqa.lms.repository.user.UserRepository;
 import com.threadqa.lms.repository.user.UserSessionRepository;
+import com.threadqa.lms.service.analytics.ActivitySketchService;
 import com.threadqa.lms.service.notification.TelegramNotificationService;
+import com.threadqa.lms.service.user.UserAuthSnapshotService;
 import com.threadqa.lms.util.DeviceDetectionService;
+import com.threadqa.lms.util.DeviceInfo;
 import com.threadqa.lms.util.GeoLocationService;
+import com.threadqa.lms.util.HttpRequestUtils;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
-import java.util.List;
 import java.util.Optional;
 
 @Slf4j
@@ -35,6 +40,13 @@ public class SessionService {
     private final GeoLocationService geoLocationService;
     private final DeviceDetectionService deviceDetectionService;
     private final TelegramNotificationService telegramNotificationService;
+    private final SessionCache sessionCache;
+    private final SessionActivityTracker activityTracker;
+    private final UserAuthSnapshotService authSnapshotService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final SessionStore sessionStore;
+    private final LoginFingerprintService loginFingerprintService;
+    private final ActivitySketchService activitySketchService;
 
     private static final int MAX_ACTIVE_SESSIONS = 2;
 
@@ -57,26 +69,19 @@ public class SessionService {
         }
         
         // Получаем информацию о клиенте
-        String ipAddress = getClientIp(request);
+        String ipAddress = HttpRequestUtils.getClientIp(request);
         String userAgent = request.getHeader("User-Agent");
         
         // Определяем местоположение и устройство
         String city = geoLocationService.getCity(ipAddress);
         String country = geoLocationService.getCountry(ipAddress);
-        String deviceType = deviceDetectionService.getDeviceType(userAgent);
-        String browser = deviceDetectionService.getBrowser(userAgent);
-        String os = deviceDetectionService.getOperatingSystem(userAgent);
+        DeviceInfo device = deviceDetectionService.detect(userAgent);
+        String deviceType = device.deviceType();
+        String browser = device.browser();
+        String os = device.operatingSystem();
         
         // Проверяем подозрительную активность
-        checkForSuspiciousActivity(userId, city, deviceType, browser);
-        
-        // Проверяем количество активных сессий
-        long activeSessionsCount = sessionRepository.countByUserIdAndIsActiveTrue(userId);
-        
-        if (activeSessionsCount >= MAX_ACTIVE_SESSIONS) {
-            // Если достигнут лимит, деактивируем самую старую сессию
-            deactivateOldestSession(userId);
-        }
+        checkForSuspiciousActivity(user, city, deviceType, browser);
         
         // Создаем новую сессию
         UserSession session = UserSession.builder()
@@ -94,40 +99,34 @@ public class SessionService {
                 .lastActivityAt(LocalDateTime.now())
                 .build();
         
-        return sessionRepository.save(session);
+        // Хранилище атомарно соблюдает лимит активных сессий, вытесняя самые старые
+        UserSession saved = sessionStore.createSession(session, MAX_ACTIVE_SESSIONS);
+        
+        // Запоминаем вход для последующих проверок подозрительной активности
+        loginFingerprintService.record(userId, city, deviceType, browser);
+        
+        return saved;
     }
     
     /**
      * Проверяет наличие подозрительной активности
      */
-    private void checkForSuspiciousActivity(Long userId, String city, String deviceType, String browser) {
-        List<UserSession> activeSessions = sessionRepository.findByUserIdAndIsActiveTrue(userId);
+    private void checkForSuspiciousActivity(User user, String city, String deviceType, String browser) {
+        Long userId = user.getId();
         
-        if (activeSessions.isEmpty()) {
-            return; // Первый вход, нет с чем сравнивать
-        }
-        
-        // Проверяем, есть ли сессии из этого города
-        boolean hasCityMatch = activeSessions.stream()
-                .anyMatch(s -> city.equals(s.getCity()));
-        
-        // Проверяем, есть ли сессии с этого типа устройства
-        boolean hasDeviceMatch = activeSessions.stream()
-                .anyMatch(s -> deviceType.equals(s.getDeviceType()));
-        
-        // Если нет совпадений ни по городу, ни по устройству, считаем активность подозрительной
-        if (!hasCityMatch && !hasDeviceMatch) {
-            User user = userRepository.findById(userId)
-                    .orElseThrow(() -> new ResourceNotFoundException("Пользователь не найден"));
-            
+        // Если ни город, ни тип устройства не встречались среди известных входов, считаем активность подозрительной
+        if (loginFingerprintService.isSuspicious(userId, city, deviceType, browser)) {
             // Блокируем аккаунт
             user.setIsActive(false);
             user.setBlockedAt(LocalDateTime.now());
             user.setBlockReason("Подозрительная активность: вход из нового города с нового устройства");
             userRepository.save(user);
+            eventPublisher.publishEvent(new UserAuthStateChangedEvent(userId));
             
             // Деактивируем все сессии
             sessionRepository.deactivateAllUserSessions(userId);
+            sessionCache.invalidateUser(userId);
+            sessionStore.userSessionsChanged(userId);
             
             // Отправляем уведомление пользователю
             if (user.getTelegramChatId() != null) {
@@ -151,31 +150,13 @@ public class SessionService {
     }
     
     /**
-     * Деактивирует самую старую сессию пользователя
+     * Обновляет время последней активности сессии.
+     * Отметка сохраняется в БД пакетно через {@link SessionActivityTracker},
+     * пользователь учитывается в подсчете активных через {@link ActivitySketchService}
      */
-    private void deactivateOldestSession(Long userId) {
-        List<UserSession> oldestSessions = sessionRepository.findOldestActiveSessionByUserId(
-                userId, PageRequest.of(0, 1));
-        
-        if (!oldestSessions.isEmpty()) {
-            UserSession oldestSession = oldestSessions.get(0);
-            oldestSession.deactivate();
-            sessionRepository.save(oldestSession);
-            
-            log.info("Деактивирована самая старая сессия пользователя ID: {}, сессия ID: {}", 
-                    userId, oldestSession.getId());
-        }
-    }
-    
-    /**
-     * Обновляет время последней активности сессии
-     */
-    @Transactional
-    public void updateSessionActivity(String token) {
-        sessionRepository.findByTokenAndIsActiveTrue(token).ifPresent(session -> {
-            session.updateLastActivity();
-            sessionRepository.save(session);
-        });
+    public void updateSessionActivity(Long sessionId, Long userId) {
+        activityTracker.recordActivity(sessionId);
+        activitySketchService.recordUserActive(userId);
     }
     
     /**
@@ -192,6 +173,21 @@ public class SessionService {
         
         session.deactivate();
         sessionRepository.save(session);
+        sessionCache.invalidateToken(session.getToken());
+        sessionStore.sessionDeactivated(userId, session.getToken());
+    }
+
+    /**
+     * Деактивирует сессию по токену
+     */
+    @Transactional
+    public void deactivateSessionByToken(String token) {
+        sessionRepository.findByTokenAndIsActiveTrue(token).ifPresent(session -> {
+            session.deactivate();
+            sessionRepository.save(session);
+            sessionStore.sessionDeactivated(session.getUserId(), token);
+        });
+        sessionCache.invalidateToken(token);
     }
     
     /**
@@ -200,6 +196,8 @@ public class SessionService {
     @Transactional
     public void deactivateAllSessionsExceptCurrent(Long userId, Long currentSessionId) {
         sessionRepository.deactivateAllUserSessionsExcept(userId, currentSessionId);
+        sessionCache.invalidateUser(userId);
+        sessionStore.userSessionsChanged(userId);
     }
     
     /**
@@ -208,6 +206,8 @@ public class SessionService {
     @Transactional
     public void deactivateAllSessions(Long userId) {
         sessionRepository.deactivateAllUserSessions(userId);
+        sessionCache.invalidateUser(userId);
+        sessionStore.userSessionsChanged(userId);
     }
     
     /**
@@ -217,6 +217,34 @@ public class SessionService {
         return sessionRepository.findByTokenAndIsActiveTrue(token);
     }
     
+    /**
+     * Получает состояние сессии по токену для авторизации запроса.
+     * Результат кэшируется, поэтому повторные запросы с тем же токеном не обращаются к БД.
+     */
+    public SessionCache.CachedSession resolveSession(String token) {
+        SessionCache.CachedSession cached = sessionCache.get(token);
+        if (cached != null) {
+            return cached;
+        }
+
+        long generation = sessionCache.currentGeneration();
+        SessionCache.CachedSession resolved = sessionRepository.findByTokenAndIsActiveTrue(token)
+                .map(session -> {
+                    UserAuthSnapshot user = authSnapshotService.getSnapshot(session.getUserId());
+                    boolean blocked = user != null && !user.active();
+                    return new SessionCache.CachedSession(
+                            session.getId(),
+                            session.getUserId(),
+                            true,
+                            blocked,
+                            user != null ? user.blockReason() : null);
+                })
+                .orElseGet(SessionCache.CachedSession::inactive);
+
+        sessionCache.put(token, resolved, generation);
+        return resolved;
+    }
+
     /**
      * Получает список активных сессий пользователя
      */
@@ -239,18 +267,15 @@ public class SessionService {
                 .browser(session.getBrowser())
                 .operatingSystem(session.getOperatingSystem())
                 .createdAt(session.getCreatedAt())
-                .lastActivityAt(session.getLastActivityAt())
+                .lastActivityAt(getLastActivityAt(session))
                 .build();
     }
-    
+
     /**
-     * Получает IP-адрес клиента из запроса
+     * Учитывает отметку активности, которая еще не сохранена в БД
      */
-    private String getClientIp(HttpServletRequest request) {
-        String xForwardedFor = request.getHeader("X-Forwarded-For");
-        if (xForwardedFor != null && !xForwardedFor.isEmpty()) {
-            return xForwardedFor.split(",")[0].trim();
-        }
-        return request.getRemoteAddr();
+    private LocalDateTime getLastActivityAt(UserSession session) {
+        LocalDateTime pending = activityTracker.getPendingActivity(session.getId());
+        return pending != null ? pending : session.getLastActivityAt();
     }
 }
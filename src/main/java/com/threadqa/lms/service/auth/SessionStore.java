@@ -0,0 +1,27 @@
+package com.threadqa.lms.service.auth;
+
+import com.threadqa.lms.model.user.UserSession;
+
+/**
+ * Хранилище активных сессий, отвечающее за соблюдение лимита сессий на пользователя
+ */
+public interface SessionStore {
+
+    /**
+     * Сохраняет новую сессию. Если у пользователя уже есть maxActiveSessions активных сессий,
+     * самые старые из них деактивируются.
+     *
+     * @return сохраненная сессия
+     */
+    UserSession createSession(UserSession session, int maxActiveSessions);
+
+    /**
+     * Сообщает хранилищу, что сессия была деактивирована в обход него
+     */
+    void sessionDeactivated(Long userId, String token);
+
+    /**
+     * Сообщает хранилищу, что активные сессии пользователя изменились массово
+     */
+    void userSessionsChanged(Long userId);
+}
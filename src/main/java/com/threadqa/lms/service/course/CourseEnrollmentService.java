@@ -10,6 +10,8 @@ import com.threadqa.lms.model.user.User;
 import com.threadqa.lms.repository.course.CourseEnrollmentRepository;
 import com.threadqa.lms.repository.course.CourseRepository;
 import com.threadqa.lms.repository.user.UserRepository;
+import com.threadqa.lms.service.analytics.AnalyticsRollupService;
+import com.threadqa.lms.service.analytics.AnalyticsRollupService.EnrollmentSnapshot;
 import com.threadqa.lms.service.auth.EmailService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
@@ -28,6 +30,7 @@ public class CourseEnrollmentService {
     private final CourseRepository courseRepository;
     private final UserRepository userRepository;
     private final EmailService emailService;
+    private final AnalyticsRollupService analyticsRollupService;
 
     @Transactional
     public CourseEnrollmentResponse enrollInCourse(CourseEnrollmentRequest request, Long currentUserId) {
@@ -61,6 +64,7 @@ public class CourseEnrollmentService {
                 .build();
 
         CourseEnrollment savedEnrollment = enrollmentRepository.save(enrollment);
+        analyticsRollupService.enrollmentChanged(null, EnrollmentSnapshot.of(savedEnrollment));
 
         // Отправка письма с подтверждением
         emailService.sendCourseEnrollmentConfirmation(user, course.getTitle());
@@ -108,6 +112,7 @@ public class CourseEnrollmentService {
             throw new BadRequestException("Progress must be between 0 and 100");
         }
 
+        EnrollmentSnapshot before = EnrollmentSnapshot.of(enrollment);
         enrollment.setProgress(progress);
 
         // Если прогресс 100%, автоматически отмечаем курс как завершенный
@@ -116,6 +121,7 @@ public class CourseEnrollmentService {
         }
 
         CourseEnrollment updatedEnrollment = enrollmentRepository.save(enrollment);
+        analyticsRollupService.enrollmentChanged(before, EnrollmentSnapshot.of(updatedEnrollment));
 
         return mapToResponse(updatedEnrollment);
     }
@@ -131,10 +137,12 @@ public class CourseEnrollmentService {
             throw new AccessDeniedException("You don't have permission to update this enrollment");
         }
 
+        EnrollmentSnapshot before = EnrollmentSnapshot.of(enrollment);
         enrollment.setCompletedAt(ZonedDateTime.now());
         enrollment.setProgress(100.0);
 
         CourseEnrollment updatedEnrollment = enrollmentRepository.save(enrollment);
+        analyticsRollupService.enrollmentChanged(before, EnrollmentSnapshot.of(updatedEnrollment));
 
         return mapToResponse(updatedEnrollment);
     }
@@ -151,6 +159,7 @@ public class CourseEnrollmentService {
         }
 
         enrollmentRepository.delete(enrollment);
+        analyticsRollupService.enrollmentChanged(EnrollmentSnapshot.of(enrollment), null);
     }
 
     private CourseEnrollmentResponse mapToResponse(CourseEnrollment enrollment) {
@@ -14,6 +14,8 @@ import com.threadqa.lms.repository.course.CourseRepository;
 import com.threadqa.lms.repository.course.CourseReviewRepository;
 import com.threadqa.lms.repository.course.TopicRepository;
 import com.threadqa.lms.repository.user.UserRepository;
+import com.threadqa.lms.service.analytics.ActivitySketchService;
+import com.threadqa.lms.service.analytics.AnalyticsRollupService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -38,6 +40,8 @@ public class CourseService {
     private final CourseReviewRepository reviewRepository;
     private final TestRepository testRepository;
     private final CourseMapper courseMapper;
+    private final AnalyticsRollupService analyticsRollupService;
+    private final ActivitySketchService activitySketchService;
 
     @Transactional(readOnly = true)
     public Page<CourseResponse> getAllCourses(Pageable pageable, Long currentUserId) {
@@ -89,6 +93,10 @@ public class CourseService {
         Course course = courseRepository.findById(courseId)
                 .orElseThrow(() -> new ResourceNotFoundException("Course not found"));
 
+        if (currentUserId != null) {
+            activitySketchService.recordCourseVisit(courseId, currentUserId);
+        }
+
         return mapCourseToResponse(course, currentUserId);
     }
 
@@ -132,6 +140,7 @@ public class CourseService {
         }
 
         Course savedCourse = courseRepository.save(course);
+        analyticsRollupService.courseCreated(savedCourse.getCreatedAt());
 
         return mapCourseToResponse(savedCourse, currentUserId);
     }
@@ -208,6 +217,7 @@ public class CourseService {
         }
 
         courseRepository.delete(course);
+        analyticsRollupService.courseDeleted(course.getCreatedAt());
     }
 
     private CourseResponse mapCourseToResponse(Course course, Long currentUserId) {
@@ -0,0 +1,103 @@
+package com.threadqa.lms.service.gamification;
+
+import com.threadqa.lms.repository.gamification.UserBadgeRepository;
+import com.threadqa.lms.repository.gamification.UserBadgeRepositoryExtensions.PendingBadgeNotification;
+import com.threadqa.lms.repository.notification.NotificationRepositoryExtensions.NewNotification;
+import com.threadqa.lms.service.notification.NotificationService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Рассылает уведомления о полученных значках.
+ * Значки без уведомления разбираются пачками по возрастанию id: пачка захватывается
+ * с SKIP LOCKED, уведомления по ней сохраняются одним пакетом, а сама пачка
+ * отмечается отправленной одним UPDATE в той же транзакции.
+ */
+@Slf4j
+@Component
+public class BadgeNotificationDispatcher {
+
+    private final UserBadgeRepository userBadgeRepository;
+    private final NotificationService notificationService;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final int maxBatchesPerRun;
+    private final Counter sentCounter;
+
+    public BadgeNotificationDispatcher(UserBadgeRepository userBadgeRepository,
+                                       NotificationService notificationService,
+                                       PlatformTransactionManager transactionManager,
+                                       MeterRegistry meterRegistry,
+                                       @Value("${app.gamification.badge-notifications.batch-size:500}") int batchSize,
+                                       @Value("${app.gamification.badge-notifications.max-batches-per-run:20}") int maxBatchesPerRun) {
+        this.userBadgeRepository = userBadgeRepository;
+        this.notificationService = notificationService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.maxBatchesPerRun = maxBatchesPerRun;
+        this.sentCounter = Counter.builder("lms.gamification.badge-notifications.sent")
+                .description("Количество отправленных уведомлений о значках")
+                .register(meterRegistry);
+    }
+
+    /**
+     * За один запуск отправляется не больше batchSize * maxBatchesPerRun уведомлений,
+     * остаток будет разобран следующими запусками
+     */
+    @Scheduled(fixedDelayString = "${app.gamification.badge-notifications.interval-ms:60000}")
+    public void dispatch() {
+        long afterId = 0;
+        int sent = 0;
+
+        try {
+            for (int i = 0; i < maxBatchesPerRun; i++) {
+                long cursor = afterId;
+                List<PendingBadgeNotification> batch = transactionTemplate.execute(status -> sendBatch(cursor));
+                if (batch == null || batch.isEmpty()) {
+                    break;
+                }
+
+                sent += batch.size();
+                sentCounter.increment(batch.size());
+                afterId = batch.get(batch.size() - 1).userBadgeId();
+                if (batch.size() < batchSize) {
+                    break;
+                }
+            }
+        } catch (RuntimeException e) {
+            log.error("Failed to dispatch badge notifications after id {}", afterId, e);
+        }
+
+        if (sent > 0) {
+            log.info("Sent {} badge notifications", sent);
+        }
+    }
+
+    private List<PendingBadgeNotification> sendBatch(long afterId) {
+        List<PendingBadgeNotification> batch = userBadgeRepository.claimPendingNotifications(afterId, batchSize);
+        if (batch.isEmpty()) {
+            return batch;
+        }
+
+        List<NewNotification> notifications = new ArrayList<>(batch.size());
+        List<Long> userBadgeIds = new ArrayList<>(batch.size());
+        for (PendingBadgeNotification pending : batch) {
+            notifications.add(notificationService.badgeNotification(
+                    pending.userId(), pending.badgeName(), pending.badgeDescription()));
+            userBadgeIds.add(pending.userBadgeId());
+        }
+
+        notificationService.createNotifications(notifications);
+        userBadgeRepository.markNotificationsSent(userBadgeIds);
+        return batch;
+    }
+}
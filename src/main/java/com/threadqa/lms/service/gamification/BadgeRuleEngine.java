@@ -0,0 +1,253 @@
+package com.threadqa.lms.service.gamification;
+
+import com.threadqa.lms.model.gamification.Badge;
+import com.threadqa.lms.repository.gamification.BadgeRepository;
+import com.threadqa.lms.repository.gamification.UserBadgeRepository;
+import com.threadqa.lms.util.LruCache;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Правила выдачи значков. Активные значки проиндексированы по типу и отсортированы по порогу,
+ * поэтому поиск новых значков сводится к просмотру префикса массива порогов.
+ * Полученные пользователем значки хранятся в кэше в виде битовых множеств идентификаторов.
+ */
+@Slf4j
+@Component
+public class BadgeRuleEngine {
+
+    /**
+     * Типы значков, которые выдаются не по сумме очков
+     */
+    private static final Set<Badge.BadgeType> NON_POINT_TYPES = Set.of(
+            Badge.BadgeType.COURSE_COMPLETION,
+            Badge.BadgeType.LOGIN_STREAK,
+            Badge.BadgeType.ACHIEVEMENT_COLLECTOR);
+
+    private final BadgeRepository badgeRepository;
+    private final UserBadgeRepository userBadgeRepository;
+    private final LruCache<Long, BitSet> earnedBadges;
+
+    private volatile Snapshot snapshot;
+
+    public BadgeRuleEngine(BadgeRepository badgeRepository,
+                           UserBadgeRepository userBadgeRepository,
+                           @Value("${app.gamification.badges.user-cache-size:50000}") int cacheSize,
+                           @Value("${app.gamification.badges.user-cache-ttl-minutes:30}") long cacheTtlMinutes) {
+        this.badgeRepository = badgeRepository;
+        this.userBadgeRepository = userBadgeRepository;
+        this.earnedBadges = new LruCache<>(cacheSize, Duration.ofMinutes(cacheTtlMinutes));
+    }
+
+    public record BadgeRule(Long id, Badge.BadgeType badgeType, int threshold, String name, Integer pointsReward) {
+    }
+
+    /**
+     * Значки за очки и за коллекционирование достижений, которые пользователь заработал, но еще не получил
+     */
+    public List<BadgeRule> findEarnedByPoints(Long userId, int totalPoints) {
+        Snapshot current = snapshot();
+        BitSet earned = getEarned(userId);
+
+        List<BadgeRule> result = new ArrayList<>();
+        current.pointRules.collectReached(totalPoints, earned, result);
+
+        // Каждый новый значок увеличивает количество достижений, поэтому проверяем до стабилизации
+        RuleIndex collectorRules = current.index(Badge.BadgeType.ACHIEVEMENT_COLLECTOR);
+        int found;
+        do {
+            found = result.size();
+            BitSet withNew = (BitSet) earned.clone();
+            result.forEach(rule -> withNew.set(Math.toIntExact(rule.id())));
+            collectorRules.collectReached(withNew.cardinality(), withNew, result);
+        } while (result.size() > found);
+
+        return result;
+    }
+
+    /**
+     * Значки указанного типа, порог которых достигнут, но которые пользователь еще не получил
+     */
+    public List<BadgeRule> findEarned(Long userId, Badge.BadgeType badgeType, int value) {
+        List<BadgeRule> result = new ArrayList<>();
+        snapshot().index(badgeType).collectReached(value, getEarned(userId), result);
+        return result;
+    }
+
+    /**
+     * Активное правило значка по идентификатору или null
+     */
+    public BadgeRule findRule(Long badgeId) {
+        return snapshot().byId.get(badgeId);
+    }
+
+    /**
+     * Отмечает значки как полученные. При откате транзакции запись кэша сбрасывается.
+     */
+    public void markEarned(Long userId, Collection<Long> badgeIds) {
+        BitSet updated = (BitSet) getEarned(userId).clone();
+        badgeIds.forEach(id -> updated.set(Math.toIntExact(id)));
+        earnedBadges.put(userId, updated);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        earnedBadges.remove(userId);
+                    }
+                }
+            });
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        reload();
+    }
+
+    /**
+     * Периодически перечитывает значки, чтобы подхватить изменения с других узлов
+     */
+    @Scheduled(fixedDelayString = "${app.gamification.badges.refresh-interval-ms:300000}",
+            initialDelayString = "${app.gamification.badges.refresh-interval-ms:300000}")
+    public void refresh() {
+        reload();
+    }
+
+    /**
+     * Перечитывает значки после фиксации текущей транзакции
+     */
+    public void reloadAfterCommit() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            reload();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                reload();
+            }
+        });
+    }
+
+    public void reload() {
+        List<Badge> badges = badgeRepository.findByIsActiveTrue();
+        snapshot = new Snapshot(badges);
+        log.debug("Loaded {} active badges", badges.size());
+    }
+
+    private BitSet getEarned(Long userId) {
+        return earnedBadges.computeIfAbsent(userId, id -> {
+            BitSet earned = new BitSet();
+            userBadgeRepository.findBadgeIdsByUser(id).forEach(badgeId -> earned.set(Math.toIntExact(badgeId)));
+            return earned;
+        });
+    }
+
+    private Snapshot snapshot() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            synchronized (this) {
+                current = snapshot;
+                if (current == null) {
+                    reload();
+                    current = snapshot;
+                }
+            }
+        }
+        return current;
+    }
+
+    private static final class Snapshot {
+
+        private final Map<Badge.BadgeType, RuleIndex> byType = new EnumMap<>(Badge.BadgeType.class);
+        private final Map<Long, BadgeRule> byId = new HashMap<>();
+        private final RuleIndex pointRules;
+
+        private Snapshot(List<Badge> badges) {
+            Map<Badge.BadgeType, List<BadgeRule>> grouped = new EnumMap<>(Badge.BadgeType.class);
+            List<BadgeRule> points = new ArrayList<>();
+            for (Badge badge : badges) {
+                BadgeRule rule = new BadgeRule(badge.getId(), badge.getBadgeType(), badge.getThreshold(),
+                        badge.getName(), badge.getPointsReward());
+                grouped.computeIfAbsent(badge.getBadgeType(), type -> new ArrayList<>()).add(rule);
+                byId.put(rule.id(), rule);
+                if (!NON_POINT_TYPES.contains(badge.getBadgeType())) {
+                    points.add(rule);
+                }
+            }
+            grouped.forEach((type, rules) -> byType.put(type, new RuleIndex(rules)));
+            this.pointRules = new RuleIndex(points);
+        }
+
+        private RuleIndex index(Badge.BadgeType badgeType) {
+            return byType.getOrDefault(badgeType, RuleIndex.EMPTY);
+        }
+    }
+
+    /**
+     * Правила одного вида, отсортированные по возрастанию порога
+     */
+    private static final class RuleIndex {
+
+        private static final RuleIndex EMPTY = new RuleIndex(List.of());
+
+        private final int[] thresholds;
+        private final BadgeRule[] rules;
+
+        private RuleIndex(List<BadgeRule> unsorted) {
+            this.rules = unsorted.stream()
+                    .sorted(Comparator.comparingInt(BadgeRule::threshold))
+                    .toArray(BadgeRule[]::new);
+            this.thresholds = new int[rules.length];
+            for (int i = 0; i < rules.length; i++) {
+                thresholds[i] = rules[i].threshold();
+            }
+        }
+
+        /**
+         * Добавляет в result правила с порогом не больше value, отсутствующие в earned
+         */
+        private void collectReached(int value, BitSet earned, List<BadgeRule> result) {
+            int reached = upperBound(value);
+            for (int i = 0; i < reached; i++) {
+                BadgeRule rule = rules[i];
+                if (!earned.get(Math.toIntExact(rule.id())) && !result.contains(rule)) {
+                    result.add(rule);
+                }
+            }
+        }
+
+        private int upperBound(int value) {
+            int low = 0;
+            int high = thresholds.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (thresholds[mid] <= value) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.threadqa.lms.service.gamification;
+
+import com.threadqa.lms.repository.gamification.UserDailyPointsRepository;
+import com.threadqa.lms.repository.gamification.UserPointTotalRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.List;
+
+/**
+ * Обслуживание дневных сумм очков: первичное заполнение по таблице points
+ * и удаление дней, которые уже не входят ни в один период таблиц лидеров
+ */
+@Slf4j
+@Component
+public class DailyPointsMaintenance {
+
+    private final UserDailyPointsRepository dailyPointsRepository;
+    private final UserPointTotalRepository pointTotalRepository;
+    private final LeaderboardEngine leaderboardEngine;
+    private final TransactionTemplate transactionTemplate;
+    private final int retentionDays;
+    private final int backfillBatchSize;
+
+    public DailyPointsMaintenance(UserDailyPointsRepository dailyPointsRepository,
+                                  UserPointTotalRepository pointTotalRepository,
+                                  LeaderboardEngine leaderboardEngine,
+                                  PlatformTransactionManager transactionManager,
+                                  @Value("${app.gamification.daily-points.retention-days:35}") int retentionDays,
+                                  @Value("${app.gamification.daily-points.backfill-batch-size:500}") int backfillBatchSize) {
+        this.dailyPointsRepository = dailyPointsRepository;
+        this.pointTotalRepository = pointTotalRepository;
+        this.leaderboardEngine = leaderboardEngine;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.backfillBatchSize = backfillBatchSize;
+        // Месячная таблица использует до 31 дня
+        this.retentionDays = Math.max(retentionDays, 31);
+    }
+
+    /**
+     * Пересчитывает дневные суммы по таблице points при каждом запуске. Пустоты таблицы для проверки
+     * недостаточно: начисления, обработанные до этого момента, уже могли создать отдельные суммы.
+     * Выполняется после заполнения накопленных сумм: их строки блокируются на время пересчета
+     * пачки пользователей, поэтому параллельные начисления не теряются и не учитываются дважды.
+     */
+    @Order(2)
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        ZoneId zone = leaderboardEngine.zone();
+        ZonedDateTime since = LocalDate.now(zone).minusDays(retentionDays).atStartOfDay(zone);
+        List<Long> userIds = dailyPointsRepository.findUserIdsWithPointsSince(since);
+
+        int rows = 0;
+        for (int from = 0; from < userIds.size(); from += backfillBatchSize) {
+            List<Long> batch = userIds.subList(from, Math.min(from + backfillBatchSize, userIds.size()));
+            try {
+                Integer rebuilt = transactionTemplate.execute(status -> {
+                    pointTotalRepository.lockTotals(batch);
+                    return dailyPointsRepository.rebuildSince(batch, since, zone.getId());
+                });
+                rows += rebuilt != null ? rebuilt : 0;
+            } catch (RuntimeException e) {
+                log.error("Failed to backfill daily point buckets for {} users", batch.size(), e);
+            }
+        }
+        log.info("Daily point buckets backfilled: {} rows for {} users", rows, userIds.size());
+    }
+
+    @Scheduled(cron = "${app.gamification.daily-points.prune-cron:0 15 0 * * ?}", zone = "${app.gamification.time-zone:UTC}")
+    public void pruneExpired() {
+        LocalDate cutoff = LocalDate.now(leaderboardEngine.zone()).minusDays(retentionDays);
+        Integer deleted = transactionTemplate.execute(status -> dailyPointsRepository.deleteOlderThan(cutoff));
+        if (deleted != null && deleted > 0) {
+            log.info("Pruned {} daily point buckets older than {}", deleted, cutoff);
+        }
+    }
+}
@@ -0,0 +1,289 @@
+package com.threadqa.lms.service.gamification;
+
+import com.threadqa.lms.config.SchedulingConfig;
+import com.threadqa.lms.dto.gamification.PointRequest;
+import com.threadqa.lms.model.gamification.GamificationEvent;
+import com.threadqa.lms.model.gamification.Point;
+import com.threadqa.lms.repository.gamification.GamificationEventRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Обрабатывает события геймификации из outbox.
+ * События одного пользователя обрабатываются пачкой в одной транзакции строго по порядку id;
+ * advisory-блокировка по пользователю не дает двум узлам обрабатывать его одновременно.
+ * Отметка об обработке фиксируется вместе с начислениями, поэтому каждое событие применяется один раз.
+ * Если пачка не применилась, события повторяются по одному, и ошибка записывается только тому событию,
+ * на котором она возникла. Повторы идут с экспоненциальной задержкой, после исчерпания попыток
+ * событие переводится в dead letter.
+ */
+@Slf4j
+@Component
+public class GamificationEventProcessor {
+
+    private final GamificationEventRepository eventRepository;
+    private final GamificationService gamificationService;
+    private final BadgeRuleEngine badgeRuleEngine;
+    private final TransactionTemplate transactionTemplate;
+    private final Counter processedCounter;
+    private final Counter failedCounter;
+    private final Counter deadLetteredCounter;
+
+    @Value("${app.gamification.events.users-per-poll:100}")
+    private int usersPerPoll;
+
+    @Value("${app.gamification.events.events-per-user:50}")
+    private int eventsPerUser;
+
+    @Value("${app.gamification.events.max-attempts:10}")
+    private int maxAttempts;
+
+    @Value("${app.gamification.events.retry-backoff-ms:5000}")
+    private long retryBackoffMs;
+
+    @Value("${app.gamification.events.retry-max-backoff-ms:600000}")
+    private long retryMaxBackoffMs;
+
+    @Value("${app.gamification.events.retention-days:7}")
+    private int retentionDays;
+
+    @Value("${app.gamification.points.quiz-passed:10}")
+    private int quizPassedPoints;
+
+    @Value("${app.gamification.points.perfect-score:5}")
+    private int perfectScorePoints;
+
+    @Value("${app.gamification.points.homework-completed:15}")
+    private int homeworkCompletedPoints;
+
+    public GamificationEventProcessor(GamificationEventRepository eventRepository,
+                                      GamificationService gamificationService,
+                                      BadgeRuleEngine badgeRuleEngine,
+                                      PlatformTransactionManager transactionManager,
+                                      MeterRegistry meterRegistry) {
+        this.eventRepository = eventRepository;
+        this.gamificationService = gamificationService;
+        this.badgeRuleEngine = badgeRuleEngine;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.processedCounter = Counter.builder("lms.gamification.events.processed")
+                .description("Количество обработанных событий геймификации")
+                .register(meterRegistry);
+        this.failedCounter = Counter.builder("lms.gamification.events.failed")
+                .description("Количество неудачных попыток обработки событий геймификации")
+                .register(meterRegistry);
+        this.deadLetteredCounter = Counter.builder("lms.gamification.events.dead_lettered")
+                .description("Количество событий геймификации, переведенных в dead letter")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${app.gamification.events.poll-interval-ms:1000}",
+            scheduler = SchedulingConfig.DRAIN_SCHEDULER)
+    public void poll() {
+        for (Long userId : eventRepository.findUsersWithPendingEvents(usersPerPoll)) {
+            try {
+                Integer processed = transactionTemplate.execute(status -> processUser(userId));
+                if (processed != null) {
+                    processedCounter.increment(processed);
+                }
+            } catch (RuntimeException e) {
+                log.warn("Failed to process gamification events for user {} as a batch, retrying one by one",
+                        userId, e);
+                processOneByOne(userId);
+            }
+        }
+    }
+
+    @Scheduled(cron = "${app.gamification.events.cleanup-cron:0 45 3 * * ?}")
+    public void deleteProcessedEvents() {
+        ZonedDateTime before = ZonedDateTime.now().minusDays(retentionDays);
+        // Удаляются только события: их ключи остаются и защищают от повторного начисления
+        Integer deleted = transactionTemplate.execute(status -> {
+            eventRepository.retainKeysProcessedBefore(before);
+            return eventRepository.deleteProcessedBefore(before);
+        });
+        log.info("Deleted {} processed gamification events", deleted);
+    }
+
+    private int processUser(Long userId) {
+        if (!eventRepository.tryLockUser(userId)) {
+            return 0; // События пользователя обрабатывает другой узел
+        }
+
+        List<GamificationEvent> events = eventRepository.findPendingEvents(userId, PageRequest.of(0, eventsPerUser));
+        if (events.isEmpty()) {
+            return 0;
+        }
+        apply(userId, events);
+        return events.size();
+    }
+
+    /**
+     * Повторяет события пользователя по одному, каждое в своей транзакции.
+     * На первом упавшем событии обработка останавливается: следующие события ждут его повтора,
+     * чтобы сохранить порядок.
+     */
+    private void processOneByOne(Long userId) {
+        List<GamificationEvent> events;
+        try {
+            events = eventRepository.findPendingEvents(userId, PageRequest.of(0, eventsPerUser));
+        } catch (RuntimeException e) {
+            log.error("Failed to load gamification events for user {}", userId, e);
+            return;
+        }
+
+        for (GamificationEvent event : events) {
+            try {
+                Integer processed = transactionTemplate.execute(status -> processEvent(userId, event.getId()));
+                if (processed == null || processed < 0) {
+                    return; // События пользователя обрабатывает другой узел
+                }
+                processedCounter.increment(processed);
+            } catch (RuntimeException e) {
+                failedCounter.increment();
+                log.warn("Failed to process gamification event {} for user {}", event.getId(), userId, e);
+                recordFailure(event, e);
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return 1, если событие обработано, 0, если оно уже обработано ранее, -1, если пользователь заблокирован другим узлом
+     */
+    private int processEvent(Long userId, Long eventId) {
+        if (!eventRepository.tryLockUser(userId)) {
+            return -1;
+        }
+        GamificationEvent event = eventRepository.findById(eventId).orElse(null);
+        if (event == null || event.getProcessedAt() != null || event.getDeadLetteredAt() != null) {
+            return 0;
+        }
+        apply(userId, List.of(event));
+        return 1;
+    }
+
+    /**
+     * Применяет события и отмечает их обработанными в текущей транзакции
+     */
+    private void apply(Long userId, List<GamificationEvent> events) {
+        List<PointRequest> pointRequests = new ArrayList<>();
+        int loginStreak = 0;
+        List<Long> eventIds = new ArrayList<>(events.size());
+
+        for (GamificationEvent event : events) {
+            eventIds.add(event.getId());
+            switch (event.getEventType()) {
+                case QUIZ_SUBMITTED:
+                    pointRequests.add(pointRequest(quizPassedPoints, Point.PointType.QUIZ_COMPLETION,
+                            "Тест пройден", "QuizAnswer", event.getEntityId()));
+                    if (event.getValue() != null && event.getValue() >= 100) {
+                        pointRequests.add(pointRequest(perfectScorePoints, Point.PointType.PERFECT_SCORE,
+                                "Тест пройден на 100%", "QuizAnswer", event.getEntityId()));
+                    }
+                    break;
+                case HOMEWORK_REVIEWED:
+                    pointRequests.add(pointRequest(homeworkCompletedPoints, Point.PointType.HOMEWORK_SUBMISSION,
+                            "Домашнее задание принято", "HomeworkSubmission", event.getEntityId()));
+                    break;
+                case LOGIN_RECORDED:
+                    // Серия обновляется здесь; очки за нее придут отдельным событием LOGIN_STREAK_ADVANCED
+                    LocalDate loginDay = LocalDate.ofEpochDay(event.getValue());
+                    ZonedDateTime loginAt = loginDay.equals(LocalDate.now())
+                            ? ZonedDateTime.now()
+                            : loginDay.atStartOfDay(ZoneId.systemDefault());
+                    gamificationService.updateLoginStreak(userId, loginAt);
+                    break;
+                case LOGIN_STREAK_ADVANCED:
+                    pointRequests.add(pointRequest(streakPoints(event.getValue()), Point.PointType.STREAK_BONUS,
+                            "Бонус за серию входов: " + event.getValue() + " дней подряд", null, null));
+                    loginStreak = Math.max(loginStreak, event.getValue());
+                    break;
+                case BADGE_AWARDED:
+                    BadgeRuleEngine.BadgeRule badge = badgeRuleEngine.findRule(event.getEntityId());
+                    String badgeName = badge != null ? badge.name() : String.valueOf(event.getEntityId());
+                    pointRequests.add(pointRequest(event.getValue(), Point.PointType.ACHIEVEMENT_UNLOCK,
+                            "Награда за получение значка: " + badgeName, "Badge", event.getEntityId()));
+                    break;
+                default:
+                    log.warn("Unsupported gamification event type {}", event.getEventType());
+                    break;
+            }
+        }
+
+        // Все начисления пачки применяются одним пересчетом суммы, уровня и значков
+        if (!pointRequests.isEmpty()) {
+            gamificationService.awardPoints(userId, pointRequests);
+        }
+        if (loginStreak > 0) {
+            gamificationService.checkLoginStreakBadges(userId, loginStreak);
+        }
+
+        eventRepository.markProcessed(eventIds, ZonedDateTime.now());
+    }
+
+    /**
+     * Записывает ошибку упавшего события в отдельной транзакции и назначает следующую попытку
+     */
+    private void recordFailure(GamificationEvent event, RuntimeException error) {
+        int attempts = event.getAttempts() + 1;
+        ZonedDateTime nextAttemptAt = ZonedDateTime.now().plusNanos(backoffMs(attempts) * 1_000_000L);
+        try {
+            transactionTemplate.executeWithoutResult(status ->
+                    eventRepository.recordFailure(event.getId(), String.valueOf(error), nextAttemptAt, maxAttempts));
+        } catch (RuntimeException e) {
+            log.error("Failed to record failure of gamification event {}", event.getId(), e);
+            return;
+        }
+        if (attempts >= maxAttempts) {
+            deadLetteredCounter.increment();
+            log.error("Gamification event {} ({}) for user {} moved to dead letter after {} attempts",
+                    event.getId(), event.getEventType(), event.getUserId(), attempts);
+        }
+    }
+
+    /**
+     * Задержка перед следующей попыткой: удваивается с каждой неудачей до заданного предела
+     */
+    private long backoffMs(int attempts) {
+        int exponent = Math.min(attempts - 1, 30);
+        return Math.min(retryMaxBackoffMs, retryBackoffMs << exponent);
+    }
+
+    private static PointRequest pointRequest(int amount, Point.PointType pointType, String description,
+                                             String entityType, Long entityId) {
+        return PointRequest.builder()
+                .amount(amount)
+                .pointType(pointType)
+                .description(description)
+                .entityType(entityType)
+                .entityId(entityId)
+                .build();
+    }
+
+    /**
+     * Чем дольше серия входов, тем больше очков
+     */
+    private static int streakPoints(int streakDays) {
+        if (streakDays >= 30) {
+            return 25;
+        } else if (streakDays >= 14) {
+            return 15;
+        } else if (streakDays >= 7) {
+            return 10;
+        }
+        return 5; // Базовое количество очков
+    }
+}
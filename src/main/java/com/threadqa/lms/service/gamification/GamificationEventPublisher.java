@@ -0,0 +1,61 @@
+package com.threadqa.lms.service.gamification;
+
+import com.threadqa.lms.model.gamification.GamificationEvent.EventType;
+import com.threadqa.lms.repository.gamification.GamificationEventRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+
+/**
+ * Публикует события геймификации в outbox в транзакции вызывающего кода.
+ * Обработка выполняется асинхронно в {@link GamificationEventProcessor}.
+ */
+@Service
+@RequiredArgsConstructor
+public class GamificationEventPublisher {
+
+    private final GamificationEventRepository eventRepository;
+
+    /**
+     * Тест пройден успешно. Баллы за тест начисляются один раз, повторные прохождения их не дают.
+     */
+    public void quizPassed(Long userId, Long quizId, Long quizAnswerId, int score) {
+        publish(userId, EventType.QUIZ_SUBMITTED, "quiz:" + userId + ":" + quizId, quizAnswerId, score);
+    }
+
+    /**
+     * Домашнее задание принято. Повторная проверка того же решения баллы не начисляет.
+     */
+    public void homeworkCompleted(Long userId, Long submissionId, Integer score) {
+        publish(userId, EventType.HOMEWORK_REVIEWED, "homework:" + submissionId, submissionId, score);
+    }
+
+    /**
+     * Пользователь вошел в систему. Не больше одного события на пользователя в день.
+     */
+    public void loginRecorded(Long userId, LocalDate day) {
+        publish(userId, EventType.LOGIN_RECORDED, "login:" + userId + ":" + day, null, (int) day.toEpochDay());
+    }
+
+    /**
+     * Серия входов увеличилась. Не больше одного события на пользователя в день.
+     */
+    public void loginStreakAdvanced(Long userId, int streakDays, LocalDate day) {
+        publish(userId, EventType.LOGIN_STREAK_ADVANCED, "login-streak:" + userId + ":" + day, null, streakDays);
+    }
+
+    /**
+     * Пользователь получил значок с наградой в очках
+     */
+    public void badgeAwarded(Long userId, Long badgeId, int pointsReward) {
+        publish(userId, EventType.BADGE_AWARDED, "badge:" + userId + ":" + badgeId, badgeId, pointsReward);
+    }
+
+    /**
+     * Должен вызываться внутри транзакции, чтобы событие записалось вместе с изменениями источника
+     */
+    private void publish(Long userId, EventType eventType, String idempotencyKey, Long entityId, Integer value) {
+        eventRepository.enqueue(userId, eventType.name(), idempotencyKey, entityId, value);
+    }
+}
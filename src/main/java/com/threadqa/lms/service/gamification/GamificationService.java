@@ -1,6 +1,7 @@
 package com.threadqa.lms.service.gamification;
 
 import com.threadqa.lms.dto.gamification.*;
+import com.threadqa.lms.event.GamificationSummaryChangedEvent;
 import com.threadqa.lms.exception.ResourceNotFoundException;
 import com.threadqa.lms.mapper.GamificationMapper;
 import com.threadqa.lms.model.gamification.*;
@@ -8,20 +9,31 @@ import com.threadqa.lms.model.user.User;
 import com.threadqa.lms.repository.gamification.*;
 import com.threadqa.lms.repository.user.UserRepository;
 import com.threadqa.lms.service.notification.NotificationService;
+import com.threadqa.lms.util.RankedScoreIndex;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.ZonedDateTime;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class GamificationService {
@@ -29,43 +41,85 @@ public class GamificationService {
     private final PointRepository pointRepository;
     private final BadgeRepository badgeRepository;
     private final UserBadgeRepository userBadgeRepository;
+    private final BadgeRuleEngine badgeRuleEngine;
     private final LevelRepository levelRepository;
+    private final LevelTable levelTable;
     private final UserLevelRepository userLevelRepository;
+    private final UserPointTotalRepository pointTotalRepository;
+    private final UserDailyPointsRepository dailyPointsRepository;
     private final LeaderboardRepository leaderboardRepository;
     private final LeaderboardEntryRepository leaderboardEntryRepository;
+    private final LeaderboardEngine leaderboardEngine;
+    private final PointTotalsReconciler pointTotalsReconciler;
+    private final GamificationEventPublisher gamificationEventPublisher;
     private final StreakRepository streakRepository;
     private final UserRepository userRepository;
     private final GamificationMapper gamificationMapper;
     private final NotificationService notificationService;
+    private final TransactionTemplate transactionTemplate;
+    private final GamificationSummaryCache summaryCache;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Transactional
     public PointResponse awardPoints(PointRequest request, Long userId) {
+        return awardPoints(userId, List.of(request)).get(0);
+    }
+
+    /**
+     * Начисляет несколько порций очков одному пользователю. Сумма, уровень и значки
+     * пересчитываются один раз для всей пачки.
+     */
+    @Transactional
+    public List<PointResponse> awardPoints(Long userId, List<PointRequest> requests) {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found"));
 
-        Point point = Point.builder()
-                .user(user)
-                .amount(request.getAmount())
-                .pointType(request.getPointType())
-                .description(request.getDescription())
-                .entityType(request.getEntityType())
-                .entityId(request.getEntityId())
-                .createdAt(ZonedDateTime.now())
-                .build();
+        ZonedDateTime now = ZonedDateTime.now();
+        List<Point> points = new ArrayList<>(requests.size());
+        int amount = 0;
+        for (PointRequest request : requests) {
+            points.add(Point.builder()
+                    .user(user)
+                    .amount(request.getAmount())
+                    .pointType(request.getPointType())
+                    .description(request.getDescription())
+                    .entityType(request.getEntityType())
+                    .entityId(request.getEntityId())
+                    .createdAt(now)
+                    .build());
+            amount += request.getAmount();
+        }
+
+        List<Point> savedPoints = pointRepository.saveAll(points);
+
+        // Обновляем накопленную сумму очков в той же транзакции
+        Integer totalPoints = pointTotalRepository.addPoints(userId, amount);
+        dailyPointsRepository.addPoints(userId, now.withZoneSameInstant(leaderboardEngine.zone()).toLocalDate(), amount);
 
-        Point savedPoint = pointRepository.save(point);
+        // Обновляем таблицы лидеров в памяти после фиксации транзакции
+        leaderboardEngine.recordPoints(userId, amount);
 
         // Обновляем уровень пользователя после начисления очков
-        updateUserLevel(user);
+        updateUserLevel(user, totalPoints);
 
         // Проверяем, заслужил ли пользователь новые значки
-        checkAndAwardBadges(user);
+        checkAndAwardBadges(userId, totalPoints);
 
-        return gamificationMapper.toPointResponse(savedPoint);
+        eventPublisher.publishEvent(new GamificationSummaryChangedEvent(userId));
+
+        return savedPoints.stream()
+                .map(gamificationMapper::toPointResponse)
+                .collect(Collectors.toList());
     }
 
     @Transactional(readOnly = true)
     public Integer getTotalPoints(Long userId) {
+        Optional<UserPointTotal> pointTotal = pointTotalRepository.findById(userId);
+        if (pointTotal.isPresent()) {
+            return pointTotal.get().getTotalPoints();
+        }
+
+        // Сумма еще не сохранена, считаем по таблице points
         Integer totalPoints = pointRepository.getTotalPointsByUser(userId);
         return totalPoints != null ? totalPoints : 0;
     }
@@ -94,6 +148,9 @@ public class GamificationService {
                 .build();
 
         Badge savedBadge = badgeRepository.save(badge);
+
+        // Новый значок попадет в индекс правил после фиксации транзакции
+        badgeRuleEngine.reloadAfterCommit();
         return gamificationMapper.toBadgeResponse(savedBadge);
     }
 
@@ -136,6 +193,9 @@ public class GamificationService {
                 .build();
 
         Level savedLevel = levelRepository.save(level);
+
+        // Новый порог попадет в таблицу уровней после фиксации транзакции
+        levelTable.reloadAfterCommit();
         return gamificationMapper.toLevelResponse(savedLevel);
     }
 
@@ -158,7 +218,7 @@ public class GamificationService {
             return gamificationMapper.toUserLevelResponse(userLevelOpt.get());
         } else {
             // Если у пользователя еще нет уровня, создаем начальный уровень
-            return updateUserLevel(user);
+            return gamificationMapper.toUserLevelResponse(updateUserLevel(user, getTotalPoints(userId)));
         }
     }
 
@@ -175,6 +235,7 @@ public class GamificationService {
                 .build();
 
         Leaderboard savedLeaderboard = leaderboardRepository.save(leaderboard);
+        leaderboardEngine.registerAfterCommit(savedLeaderboard);
         return gamificationMapper.toLeaderboardResponse(savedLeaderboard);
     }
 
@@ -188,6 +249,14 @@ public class GamificationService {
 
     @Transactional(readOnly = true)
     public Page<LeaderboardEntryResponse> getLeaderboardEntries(Long leaderboardId, Pageable pageable) {
+        Optional<LeaderboardEngine.Standings> standingsOpt = leaderboardEngine.find(leaderboardId);
+        if (standingsOpt.isPresent()) {
+            // Активная таблица отдается из памяти
+            LeaderboardEngine.Standings standings = standingsOpt.get();
+            List<RankedScoreIndex.Entry> entries = standings.page((int) pageable.getOffset(), pageable.getPageSize());
+            return new PageImpl<>(toLeaderboardEntryResponses(standings, entries), pageable, standings.size());
+        }
+
         Leaderboard leaderboard = leaderboardRepository.findById(leaderboardId)
                 .orElseThrow(() -> new ResourceNotFoundException("Leaderboard not found"));
 
@@ -197,19 +266,34 @@ public class GamificationService {
 
     @Transactional(readOnly = true)
     public LeaderboardEntryResponse getUserLeaderboardPosition(Long leaderboardId, Long userId) {
+        Optional<LeaderboardEngine.Standings> standingsOpt = leaderboardEngine.find(leaderboardId);
+        if (standingsOpt.isPresent()) {
+            LeaderboardEngine.Standings standings = standingsOpt.get();
+            RankedScoreIndex.Entry entry = standings.entry(userId);
+            return entry != null ? toLeaderboardEntryResponses(standings, List.of(entry)).get(0) : null;
+        }
+
         Optional<LeaderboardEntry> entryOpt = leaderboardEntryRepository.findByLeaderboardIdAndUserId(leaderboardId, userId);
         return entryOpt.map(gamificationMapper::toLeaderboardEntryResponse).orElse(null);
     }
 
     @Transactional
     public StreakResponse updateLoginStreak(Long userId) {
+        return updateLoginStreak(userId, ZonedDateTime.now());
+    }
+
+    /**
+     * Обновляет серию входов с учетом входа в указанный момент
+     */
+    @Transactional
+    public StreakResponse updateLoginStreak(Long userId, ZonedDateTime loginAt) {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found"));
 
         Optional<Streak> streakOpt = streakRepository.findByUserAndStreakType(user, Streak.StreakType.LOGIN);
         
         Streak streak;
-        ZonedDateTime now = ZonedDateTime.now();
+        ZonedDateTime now = loginAt;
         
         if (streakOpt.isPresent()) {
             streak = streakOpt.get();
@@ -227,16 +311,13 @@ public class GamificationService {
                     streak.setLongestStreak(streak.getCurrentStreak());
                 }
                 
-                // Начисляем очки за серию входов
-                awardStreakPoints(user, streak.getCurrentStreak());
-                
-                // Проверяем, заслужил ли пользователь значок за серию входов
-                checkLoginStreakBadges(user, streak.getCurrentStreak());
+                // Очки и значки за серию входов начисляются асинхронно
+                gamificationEventPublisher.loginStreakAdvanced(userId, streak.getCurrentStreak(), now.toLocalDate());
             } else if (daysBetween > 1) {
                 // Серия прервана, начинаем новую
                 streak.setCurrentStreak(1);
-            } else if (daysBetween == 0) {
-                // Пользователь уже входил сегодня, ничего не меняем
+            } else {
+                // Пользователь уже входил в этот день, ничего не меняем
                 return gamificationMapper.toStreakResponse(streak);
             }
         } else {
@@ -254,6 +335,7 @@ public class GamificationService {
         streak.setUpdatedAt(now);
         
         Streak savedStreak = streakRepository.save(streak);
+        eventPublisher.publishEvent(new GamificationSummaryChangedEvent(userId));
         return gamificationMapper.toStreakResponse(savedStreak);
     }
 
@@ -270,61 +352,123 @@ public class GamificationService {
 
     @Transactional(readOnly = true)
     public GamificationSummaryResponse getUserGamificationSummary(Long userId) {
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new ResourceNotFoundException("User not found"));
+        GamificationSummaryCache.Summary summary = summaryCache.get(userId, () -> loadSummary(userId));
+
+        // Позиции в таблицах лидеров берем из таблиц в памяти
+        List<LeaderboardEntryResponse> leaderboardPositions = new ArrayList<>();
+        for (LeaderboardEngine.Standings standings : leaderboardEngine.findAll()) {
+            RankedScoreIndex.Entry entry = standings.entry(userId);
+            if (entry != null) {
+                leaderboardPositions.add(toLeaderboardEntryResponse(
+                        standings, entry, summary.userName(), summary.profileImage()));
+            }
+        }
+
+        return GamificationSummaryResponse.builder()
+                .userId(userId)
+                .userName(summary.userName())
+                .totalPoints(summary.totalPoints())
+                .level(summary.level())
+                .levelName(summary.levelName())
+                .pointsToNextLevel(summary.pointsToNextLevel())
+                .badgesCount(summary.recentBadges().size())
+                .recentBadges(summary.recentBadges())
+                .currentLoginStreak(summary.currentLoginStreak())
+                .longestLoginStreak(summary.longestLoginStreak())
+                .leaderboardPositions(leaderboardPositions)
+                .build();
+    }
+
+    private GamificationSummaryCache.Summary loadSummary(Long userId) {
+        List<Object[]> users = userRepository.findDisplayInfoByIds(List.of(userId));
+        if (users.isEmpty()) {
+            throw new ResourceNotFoundException("User not found");
+        }
+        Object[] user = users.get(0);
 
         // Получаем общее количество очков
         Integer totalPoints = getTotalPoints(userId);
         
         // Получаем уровень пользователя
-        Optional<UserLevel> userLevelOpt = userLevelRepository.findByUser(user);
-        UserLevel userLevel = userLevelOpt.orElse(null);
+        UserLevel userLevel = userLevelRepository.findWithLevelByUserId(userId).orElse(null);
         
         // Получаем последние полученные значки (до 5)
-        List<UserBadge> recentBadges = userBadgeRepository.findByUser(user).stream()
-                .sorted((b1, b2) -> b2.getAwardedAt().compareTo(b1.getAwardedAt()))
-                .limit(5)
+        List<UserBadgeResponse> recentBadges = userBadgeRepository.findRecentByUserId(userId, PageRequest.of(0, 5)).stream()
+                .map(gamificationMapper::toUserBadgeResponse)
                 .collect(Collectors.toList());
         
         // Получаем серию входов
-        Optional<Streak> loginStreakOpt = streakRepository.findByUserAndStreakType(user, Streak.StreakType.LOGIN);
-        Streak loginStreak = loginStreakOpt.orElse(null);
-        
-        // Получаем позиции в таблицах лидеров
-        List<Leaderboard> activeLeaderboards = leaderboardRepository.findByIsActiveTrue();
-        List<LeaderboardEntry> leaderboardEntries = new ArrayList<>();
-        
-        for (Leaderboard leaderboard : activeLeaderboards) {
-            Optional<LeaderboardEntry> entryOpt = leaderboardEntryRepository.findByLeaderboardAndUser(leaderboard, user);
-            entryOpt.ifPresent(leaderboardEntries::add);
-        }
-        
-        return gamificationMapper.toGamificationSummaryResponse(
-                userId, user.getFirstName() + " " + user.getLastName(),
-                totalPoints, userLevel, recentBadges, loginStreak, leaderboardEntries);
+        Streak loginStreak = streakRepository.findByUserIdAndStreakType(userId, Streak.StreakType.LOGIN).orElse(null);
+
+        return new GamificationSummaryCache.Summary(
+                userId,
+                user[1] + " " + user[2],
+                (String) user[3],
+                totalPoints,
+                userLevel != null ? userLevel.getLevel().getLevelNumber() : 0,
+                userLevel != null ? userLevel.getLevel().getName() : "Новичок",
+                userLevel != null ? userLevel.getPointsToNextLevel() : 0,
+                List.copyOf(recentBadges),
+                loginStreak != null ? loginStreak.getCurrentStreak() : 0,
+                loginStreak != null ? loginStreak.getLongestStreak() : 0);
     }
 
     // Вспомогательные методы
 
+    private List<LeaderboardEntryResponse> toLeaderboardEntryResponses(LeaderboardEngine.Standings standings,
+                                                                       List<RankedScoreIndex.Entry> entries) {
+        if (entries.isEmpty()) {
+            return List.of();
+        }
+
+        // Имена пользователей страницы загружаем одним запросом
+        List<Long> userIds = entries.stream().map(RankedScoreIndex.Entry::id).collect(Collectors.toList());
+        Map<Long, Object[]> users = new HashMap<>();
+        for (Object[] row : userRepository.findDisplayInfoByIds(userIds)) {
+            users.put((Long) row[0], row);
+        }
+
+        List<LeaderboardEntryResponse> responses = new ArrayList<>(entries.size());
+        for (RankedScoreIndex.Entry entry : entries) {
+            Object[] user = users.get(entry.id());
+            responses.add(toLeaderboardEntryResponse(standings, entry,
+                    user != null ? user[1] + " " + user[2] : null,
+                    user != null ? (String) user[3] : null));
+        }
+        return responses;
+    }
+
+    private LeaderboardEntryResponse toLeaderboardEntryResponse(LeaderboardEngine.Standings standings,
+                                                                RankedScoreIndex.Entry entry,
+                                                                String userName, String profileImage) {
+        LeaderboardPeriod period = standings.getPeriod();
+        return LeaderboardEntryResponse.builder()
+                .leaderboardId(standings.getLeaderboardId())
+                .leaderboardName(standings.getName())
+                .userId(entry.id())
+                .userName(userName)
+                .userProfileImage(profileImage)
+                .score(entry.score())
+                .rank(entry.rank())
+                .periodStart(period.start())
+                .periodEnd(period.end())
+                .build();
+    }
+
     @Transactional
-    protected UserLevelResponse updateUserLevel(User user) {
-        Integer totalPoints = getTotalPoints(user.getId());
-        
-        // Находим текущий уровень пользователя на основе его очков
-        Level currentLevel = levelRepository.findHighestLevelForPoints(totalPoints);
-        
-        if (currentLevel == null) {
-            // Если нет подходящего уровня, используем уровень 1
-            currentLevel = levelRepository.findByLevelNumber(1)
-                    .orElseThrow(() -> new ResourceNotFoundException("Level 1 not found"));
+    protected UserLevel updateUserLevel(User user, Integer totalPoints) {
+        // Находим текущий и следующий уровень по таблице порогов в памяти
+        LevelTable.Resolution resolution = levelTable.resolve(totalPoints);
+        if (resolution == null) {
+            throw new ResourceNotFoundException("Level 1 not found");
         }
-        
-        // Находим следующий уровень
-        Level nextLevel = levelRepository.findNextLevelForPoints(totalPoints);
+        LevelTable.LevelInfo currentLevel = resolution.current();
+        LevelTable.LevelInfo nextLevel = resolution.next();
+
         Integer pointsToNextLevel = 0;
         
         if (nextLevel != null) {
-            pointsToNextLevel = nextLevel.getPointsRequired() - totalPoints;
+            pointsToNextLevel = nextLevel.pointsRequired() - totalPoints;
         }
         
         // Проверяем, есть ли уже запись об уровне пользователя
@@ -337,13 +481,13 @@ public class GamificationService {
             userLevel = userLevelOpt.get();
             
             // Проверяем, изменился ли уровень
-            if (!userLevel.getLevel().getId().equals(currentLevel.getId())) {
+            if (!userLevel.getLevel().getId().equals(currentLevel.id())) {
                 // Уровень изменился, обновляем запись
-                userLevel.setLevel(currentLevel);
+                userLevel.setLevel(levelRepository.getReferenceById(currentLevel.id()));
                 userLevel.setAchievedAt(now);
                 
                 // Отправляем уведомление о новом уровне
-                notificationService.sendLevelUpNotification(user, currentLevel.getLevelNumber(), currentLevel.getName());
+                notificationService.sendLevelUpNotification(user, currentLevel.levelNumber(), currentLevel.name());
             }
             
             userLevel.setCurrentPoints(totalPoints);
@@ -353,7 +497,7 @@ public class GamificationService {
             // Создаем новую запись об уровне пользователя
             userLevel = UserLevel.builder()
                     .user(user)
-                    .level(currentLevel)
+                    .level(levelRepository.getReferenceById(currentLevel.id()))
                     .currentPoints(totalPoints)
                     .pointsToNextLevel(pointsToNextLevel)
                     .achievedAt(now)
@@ -361,247 +505,96 @@ public class GamificationService {
                     .build();
         }
         
-        UserLevel savedUserLevel = userLevelRepository.save(userLevel);
-        return gamificationMapper.toUserLevelResponse(savedUserLevel);
+        return userLevelRepository.save(userLevel);
     }
 
     @Transactional
-    protected void checkAndAwardBadges(User user) {
-        // Получаем общее количество очков пользователя
-        Integer totalPoints = getTotalPoints(user.getId());
-        
-        // Получаем все активные значки
-        List<Badge> activeBadges = badgeRepository.findByIsActiveTrue();
-        
-        for (Badge badge : activeBadges) {
-            // Проверяем, есть ли уже у пользователя этот значок
-            Optional<UserBadge> existingBadge = userBadgeRepository.findByUserAndBadge(user, badge);
-            
-            if (existingBadge.isPresent()) {
-                continue; // Пользователь уже имеет этот значок
-            }
-            
-            // Проверяем, заслужил ли пользователь этот значок
-            boolean badgeEarned = false;
-            
-            switch (badge.getBadgeType()) {
-                case COURSE_COMPLETION:
-                    // Логика для значков за завершение курсов
-                    // Здесь должен быть код для проверки количества завершенных курсов
-                    break;
-                case LOGIN_STREAK:
-                    // Логика для значков за серию входов
-                    // Проверяется в отдельном методе checkLoginStreakBadges
-                    break;
-                case ACHIEVEMENT_COLLECTOR:
-                    // Логика для значков за коллекционирование достижений
-                    Long badgeCount = userBadgeRepository.countBadgesByUser(user.getId());
-                    if (badgeCount >= badge.getThreshold()) {
-                        badgeEarned = true;
-                    }
-                    break;
-                default:
-                    // Для других типов значков можно использовать общую логику на основе очков
-                    if (totalPoints >= badge.getThreshold()) {
-                        badgeEarned = true;
-                    }
-                    break;
-            }
-            
-            if (badgeEarned) {
-                awardBadge(user, badge);
-            }
-        }
+    protected void checkAndAwardBadges(Long userId, Integer totalPoints) {
+        // Находим значки, пороги которых достигнуты, но которые еще не выданы.
+        // COURSE_COMPLETION пока не проверяется, LOGIN_STREAK проверяется в checkLoginStreakBadges
+        List<BadgeRuleEngine.BadgeRule> earnedBadges = badgeRuleEngine.findEarnedByPoints(userId, totalPoints);
+        awardBadges(userId, earnedBadges);
     }
 
     @Transactional
-    protected void awardBadge(User user, Badge badge) {
-        ZonedDateTime now = ZonedDateTime.now();
-        
-        UserBadge userBadge = UserBadge.builder()
-                .user(user)
-                .badge(badge)
-                .awardedAt(now)
-                .isDisplayed(true)
-                .notificationSent(false)
-                .build();
-        
-        userBadgeRepository.save(userBadge);
-        
-        // Если за значок предусмотрено вознаграждение в виде очков, начисляем их
-        if (badge.getPointsReward() != null && badge.getPointsReward() > 0) {
-            PointRequest pointRequest = PointRequest.builder()
-                    .amount(badge.getPointsReward())
-                    .pointType(Point.PointType.ACHIEVEMENT_UNLOCK)
-                    .description("Награда за получение значка: " + badge.getName())
-                    .entityType("Badge")
-                    .entityId(badge.getId())
-                    .build();
-            
-            awardPoints(pointRequest, user.getId());
+    protected void awardBadges(Long userId, List<BadgeRuleEngine.BadgeRule> badges) {
+        if (badges.isEmpty()) {
+            return;
         }
-    }
 
-    @Transactional
-    protected void awardStreakPoints(User user, Integer streakDays) {
-        // Начисляем очки за серию входов
-        // Чем дольше серия, тем больше очков
-        int pointsToAward = 5; // Базовое количество очков
-        
-        // Бонусы за длительные серии
-        if (streakDays >= 30) {
-            pointsToAward = 25;
-        } else if (streakDays >= 14) {
-            pointsToAward = 15;
-        } else if (streakDays >= 7) {
-            pointsToAward = 10;
+        List<Long> badgeIds = badges.stream()
+                .map(BadgeRuleEngine.BadgeRule::id)
+                .collect(Collectors.toList());
+
+        // Выдаем все значки одним запросом, уже имеющиеся пропускаются
+        Set<Long> awardedIds = new HashSet<>(userBadgeRepository.insertUserBadges(userId, badgeIds, ZonedDateTime.now()));
+        badgeRuleEngine.markEarned(userId, badgeIds);
+        if (!awardedIds.isEmpty()) {
+            eventPublisher.publishEvent(new GamificationSummaryChangedEvent(userId));
         }
-        
-        PointRequest pointRequest = PointRequest.builder()
-                .amount(pointsToAward)
-                .pointType(Point.PointType.STREAK_BONUS)
-                .description("Бонус за серию входов: " + streakDays + " дней подряд")
-                .build();
-        
-        awardPoints(pointRequest, user.getId());
-    }
 
-    @Transactional
-    protected void checkLoginStreakBadges(User user, Integer streakDays) {
-        // Проверяем, заслужил ли пользователь значки за серию входов
-        List<Badge> streakBadges = badgeRepository.findByBadgeTypeAndIsActiveTrue(Badge.BadgeType.LOGIN_STREAK);
-        
-        for (Badge badge : streakBadges) {
-            // Проверяем, есть ли уже у пользователя этот значок
-            Optional<UserBadge> existingBadge = userBadgeRepository.findByUserAndBadge(user, badge);
-            
-            if (existingBadge.isPresent()) {
-                continue; // Пользователь уже имеет этот значок
-            }
-            
-            // Проверяем, достиг ли пользователь порогового значения для значка
-            if (streakDays >= badge.getThreshold()) {
-                awardBadge(user, badge);
+        for (BadgeRuleEngine.BadgeRule badge : badges) {
+            // Награда в очках начисляется асинхронно, без повторного входа в awardPoints
+            if (awardedIds.contains(badge.id()) && badge.pointsReward() != null && badge.pointsReward() > 0) {
+                gamificationEventPublisher.badgeAwarded(userId, badge.id(), badge.pointsReward());
             }
         }
     }
 
-    @Scheduled(cron = "0 0 0 * * ?") // Запускается каждый день в полночь
     @Transactional
+    protected void checkLoginStreakBadges(Long userId, Integer streakDays) {
+        // Проверяем, заслужил ли пользователь значки за серию входов
+        awardBadges(userId, badgeRuleEngine.findEarned(userId, Badge.BadgeType.LOGIN_STREAK, streakDays));
+    }
+
+    @Scheduled(cron = "0 0 0 * * ?", zone = "${app.gamification.time-zone:UTC}") // Каждый день в полночь
     public void updateLeaderboards() {
-        ZonedDateTime now = ZonedDateTime.now();
+        ZonedDateTime now = ZonedDateTime.now(leaderboardEngine.zone());
         
-        // Обновляем все активные таблицы лидеров
+        // Обновляем все активные таблицы лидеров, каждую в своей транзакции
         List<Leaderboard> activeLeaderboards = leaderboardRepository.findByIsActiveTrue();
         
         for (Leaderboard leaderboard : activeLeaderboards) {
             // Определяем период для таблицы лидеров
-            ZonedDateTime periodStart;
-            ZonedDateTime periodEnd;
+            LeaderboardPeriod period = LeaderboardPeriod.current(leaderboard.getTimePeriod(), now);
             
-            switch (leaderboard.getTimePeriod()) {
-                case DAILY:
-                    periodStart = now.truncatedTo(ChronoUnit.DAYS);
-                    periodEnd = periodStart.plusDays(1);
-                    break;
-                case WEEKLY:
-                    periodStart = now.truncatedTo(ChronoUnit.DAYS).with(java.time.DayOfWeek.MONDAY);
-                    periodEnd = periodStart.plusWeeks(1);
-                    break;
-                case MONTHLY:
-                    periodStart = now.withDayOfMonth(1).truncatedTo(ChronoUnit.DAYS);
-                    periodEnd = periodStart.plusMonths(1);
-                    break;
-                case ALL_TIME:
-                default:
-                    periodStart = ZonedDateTime.of(2000, 1, 1, 0, 0, 0, 0, now.getZone());
-                    periodEnd = now.plusYears(100);
-                    break;
-            }
-            
-            // Получаем данные для таблицы лидеров
-            List<Object[]> leaderboardData;
-            
-            switch (leaderboard.getLeaderboardType()) {
-                case POINTS:
-                    leaderboardData = pointRepository.getUsersWithTotalPointsSince(periodStart);
-                    break;
-                // Здесь должны быть другие типы таблиц лидеров
-                default:
-                    leaderboardData = pointRepository.getUsersWithTotalPointsSince(periodStart);
-                    break;
-            }
-            
-            // Обновляем записи в таблице лидеров
-            int rank = 1;
-            for (Object[] data : leaderboardData) {
-                Long userId = (Long) data[0];
-                Integer score = ((Number) data[1]).intValue();
-                
-                User user = userRepository.findById(userId)
-                        .orElseThrow(() -> new ResourceNotFoundException("User not found"));
-                
-                // Проверяем, есть ли уже запись для этого пользователя
-                Optional<LeaderboardEntry> entryOpt = leaderboardEntryRepository.findByLeaderboardAndUser(leaderboard, user);
-                
-                LeaderboardEntry entry;
-                if (entryOpt.isPresent()) {
-                    entry = entryOpt.get();
-                    entry.setScore(score);
-                    entry.setRank(rank);
-                    entry.setPeriodStart(periodStart);
-                    entry.setPeriodEnd(periodEnd);
-                    entry.setUpdatedAt(now);
-                } else {
-                    entry = LeaderboardEntry.builder()
-                            .leaderboard(leaderboard)
-                            .user(user)
-                            .score(score)
-                            .rank(rank)
-                            .periodStart(periodStart)
-                            .periodEnd(periodEnd)
-                            .createdAt(now)
-                            .updatedAt(now)
-                            .build();
+            // Все типы таблиц пока строятся по очкам
+            try {
+                long startedAt = System.currentTimeMillis();
+                Integer entries = transactionTemplate.execute(status -> {
+                    if (!leaderboardEntryRepository.tryLockLeaderboard(leaderboard.getId())) {
+                        return null; // Таблицу уже пересобирает другой узел
+                    }
+                    return leaderboardEntryRepository.rebuild(
+                            leaderboard.getId(), leaderboard.getTimePeriod(), period.start(), period.end(),
+                            pointTotalsReconciler.isBackfilled());
+                });
+                if (entries != null) {
+                    log.info("Leaderboard {} rebuilt: {} entries in {} ms",
+                            leaderboard.getId(), entries, System.currentTimeMillis() - startedAt);
                 }
-                
-                leaderboardEntryRepository.save(entry);
-                rank++;
+            } catch (RuntimeException e) {
+                log.error("Failed to rebuild leaderboard {}", leaderboard.getId(), e);
             }
         }
+
+        // Синхронизируем таблицы в памяти с пересобранными данными
+        leaderboardEngine.reload();
     }
 
-    @Scheduled(cron = "0 0 0 * * ?") // Запускается каждый день в полночь
+    // Запускается после полуночи, когда входы за прошедший день уже сброшены узлами в outbox
+    @Scheduled(cron = "${app.gamification.streaks.reset-cron:0 5 0 * * ?}")
     @Transactional
     public void resetExpiredStreaks() {
-        ZonedDateTime yesterday = ZonedDateTime.now().minusDays(1);
-        
-        // Находим все серии, которые не обновлялись вчера или ранее
-        List<Streak> streaksToReset = streakRepository.findStreaksToReset(yesterday);
-        
-        for (Streak streak : streaksToReset) {
-            streak.setCurrentStreak(0);
-            streak.setUpdatedAt(ZonedDateTime.now());
-            streakRepository.save(streak);
-        }
-    }
+        ZonedDateTime now = ZonedDateTime.now();
+        ZonedDateTime startOfYesterday = now.toLocalDate().minusDays(1).atStartOfDay(now.getZone());
 
-    @Scheduled(cron = "0 0 * * * ?") // Запускается каждый час
-    @Transactional
-    public void sendBadgeNotifications() {
-        // Находим все значки, для которых еще не отправлены уведомления
-        List<UserBadge> badgesToNotify = userBadgeRepository.findByNotificationSentFalse();
-        
-        for (UserBadge userBadge : badgesToNotify) {
-            // Отправляем уведомление о получении значка
-            notificationService.sendBadgeNotification(
-                    userBadge.getUser(),
-                    userBadge.getBadge().getName(),
-                    userBadge.getBadge().getDescription());
-            
-            // Отмечаем, что уведомление отправлено
-            userBadge.setNotificationSent(true);
-            userBadgeRepository.save(userBadge);
-        }
+        // Сбрасываем одним запросом все серии, которые не обновлялись вчера или ранее.
+        // Серии с ожидающими событиями входа не трогаем, иначе поздний вход начнет серию с нуля
+        int reset = streakRepository.resetStreaksBefore(startOfYesterday, now);
+        log.info("Reset {} expired streaks", reset);
+
+        // Серии многих пользователей сброшены, сводки проще перестроить заново
+        summaryCache.evictAll();
     }
 }
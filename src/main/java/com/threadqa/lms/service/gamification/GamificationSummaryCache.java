@@ -0,0 +1,86 @@
+package com.threadqa.lms.service.gamification;
+
+import com.threadqa.lms.dto.gamification.UserBadgeResponse;
+import com.threadqa.lms.event.GamificationSummaryChangedEvent;
+import com.threadqa.lms.util.LruCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Кэш сводок геймификации пользователей.
+ * Сводка сбрасывается по событию {@link GamificationSummaryChangedEvent}.
+ */
+@Component
+public class GamificationSummaryCache {
+
+    private final LruCache<Long, Summary> summaries;
+    private final AtomicLong generation = new AtomicLong();
+
+    public GamificationSummaryCache(@Value("${app.gamification.summary-cache.max-size:50000}") int maxSize,
+                                    @Value("${app.gamification.summary-cache.ttl-seconds:300}") long ttlSeconds) {
+        this.summaries = new LruCache<>(maxSize, Duration.ofSeconds(ttlSeconds));
+    }
+
+    /**
+     * Сводка пользователя без позиций в таблицах лидеров: они меняются при каждом начислении
+     * любому пользователю и берутся из {@link LeaderboardEngine} при чтении
+     */
+    public record Summary(Long userId,
+                          String userName,
+                          String profileImage,
+                          Integer totalPoints,
+                          Integer level,
+                          String levelName,
+                          Integer pointsToNextLevel,
+                          List<UserBadgeResponse> recentBadges,
+                          Integer currentLoginStreak,
+                          Integer longestLoginStreak) {
+    }
+
+    public Summary get(Long userId, Supplier<Summary> loader) {
+        Summary summary = summaries.get(userId);
+        if (summary != null) {
+            return summary;
+        }
+
+        long readGeneration = generation.get();
+        summary = loader.get();
+        summaries.put(userId, summary);
+        // Если пока читали из БД пришла инвалидация, прочитанное значение могло устареть
+        if (generation.get() != readGeneration) {
+            summaries.remove(userId);
+        }
+        return summary;
+    }
+
+    public void evict(Long userId) {
+        generation.incrementAndGet();
+        summaries.remove(userId);
+    }
+
+    public void evictAll() {
+        generation.incrementAndGet();
+        summaries.clear();
+    }
+
+    @EventListener
+    public void onSummaryChanged(GamificationSummaryChangedEvent event) {
+        evict(event.userId());
+    }
+
+    /**
+     * Повторная очистка после коммита: до него параллельный запрос мог прочитать старые данные
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onSummaryCommitted(GamificationSummaryChangedEvent event) {
+        evict(event.userId());
+    }
+}
@@ -0,0 +1,288 @@
+package com.threadqa.lms.service.gamification;
+
+import com.threadqa.lms.model.gamification.Leaderboard;
+import com.threadqa.lms.repository.gamification.LeaderboardEntryRepository;
+import com.threadqa.lms.repository.gamification.LeaderboardRepository;
+import com.threadqa.lms.repository.gamification.PointRepository;
+import com.threadqa.lms.repository.gamification.UserDailyPointsRepository;
+import com.threadqa.lms.repository.gamification.UserPointTotalRepository;
+import com.threadqa.lms.util.RankedScoreIndex;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Таблицы лидеров в памяти. Для каждой активной таблицы хранится индекс очков
+ * с порядковой статистикой, который обновляется при каждом начислении очков.
+ * Место пользователя и страница лидеров вычисляются за O(log n).
+ * Состояние периодически сохраняется в leaderboard_entries и перечитывается из БД,
+ * чтобы учесть начисления на других узлах.
+ * Периоды таблиц и дневные суммы очков считаются в часовом поясе app.gamification.time-zone.
+ */
+@Slf4j
+@Component
+public class LeaderboardEngine {
+
+    private final LeaderboardRepository leaderboardRepository;
+    private final LeaderboardEntryRepository leaderboardEntryRepository;
+    private final UserPointTotalRepository pointTotalRepository;
+    private final UserDailyPointsRepository dailyPointsRepository;
+    private final PointRepository pointRepository;
+    private final PointTotalsReconciler pointTotalsReconciler;
+    private final TransactionTemplate transactionTemplate;
+    private final int snapshotBatchSize;
+    private final ZoneId zone;
+    private final Map<Long, Standings> boards = new ConcurrentHashMap<>();
+
+    /**
+     * Перечитывание и снимок таблиц не выполняются одновременно: иначе снимок мог бы
+     * записать уже замененную таблицу, а параллельные перечитывания — вернуть удаленную
+     */
+    private final ReentrantLock maintenanceLock = new ReentrantLock();
+
+    public LeaderboardEngine(LeaderboardRepository leaderboardRepository,
+                             LeaderboardEntryRepository leaderboardEntryRepository,
+                             UserPointTotalRepository pointTotalRepository,
+                             UserDailyPointsRepository dailyPointsRepository,
+                             PointRepository pointRepository,
+                             PointTotalsReconciler pointTotalsReconciler,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${app.gamification.leaderboards.snapshot-batch-size:1000}") int snapshotBatchSize,
+                             @Value("${app.gamification.time-zone:UTC}") ZoneId zone) {
+        this.leaderboardRepository = leaderboardRepository;
+        this.leaderboardEntryRepository = leaderboardEntryRepository;
+        this.pointTotalRepository = pointTotalRepository;
+        this.dailyPointsRepository = dailyPointsRepository;
+        this.pointRepository = pointRepository;
+        this.pointTotalsReconciler = pointTotalsReconciler;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.snapshotBatchSize = snapshotBatchSize;
+        this.zone = zone;
+    }
+
+    /**
+     * Часовой пояс периодов таблиц лидеров и дневных сумм очков
+     */
+    public ZoneId zone() {
+        return zone;
+    }
+
+    /**
+     * Текущее состояние одной таблицы лидеров
+     */
+    public static final class Standings {
+
+        private final Long leaderboardId;
+        private final String name;
+        private final Leaderboard.TimePeriod timePeriod;
+        private final RankedScoreIndex index = new RankedScoreIndex();
+        private final ZoneId zone;
+        private volatile LeaderboardPeriod period;
+
+        private Standings(Leaderboard leaderboard, LeaderboardPeriod period, ZoneId zone) {
+            this.leaderboardId = leaderboard.getId();
+            this.name = leaderboard.getName();
+            this.timePeriod = leaderboard.getTimePeriod();
+            this.period = period;
+            this.zone = zone;
+        }
+
+        public Long getLeaderboardId() {
+            return leaderboardId;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public LeaderboardPeriod getPeriod() {
+            rollOverIfExpired(ZonedDateTime.now(zone));
+            return period;
+        }
+
+        public int size() {
+            rollOverIfExpired(ZonedDateTime.now(zone));
+            return index.size();
+        }
+
+        /**
+         * Очки и место пользователя или null, если в текущем периоде у него нет очков
+         */
+        public RankedScoreIndex.Entry entry(Long userId) {
+            rollOverIfExpired(ZonedDateTime.now(zone));
+            return index.get(userId);
+        }
+
+        public List<RankedScoreIndex.Entry> page(int offset, int limit) {
+            rollOverIfExpired(ZonedDateTime.now(zone));
+            return index.page(offset, limit);
+        }
+
+        private void add(Long userId, int amount) {
+            rollOverIfExpired(ZonedDateTime.now(zone));
+            index.add(userId, amount);
+        }
+
+        /**
+         * С началом нового периода таблица начинается с нуля
+         */
+        private void rollOverIfExpired(ZonedDateTime now) {
+            if (!period.isExpired(now)) {
+                return;
+            }
+            synchronized (this) {
+                if (period.isExpired(now)) {
+                    index.clear();
+                    period = LeaderboardPeriod.current(timePeriod, now);
+                }
+            }
+        }
+    }
+
+    public Optional<Standings> find(Long leaderboardId) {
+        return Optional.ofNullable(boards.get(leaderboardId));
+    }
+
+    public Collection<Standings> findAll() {
+        return boards.values();
+    }
+
+    /**
+     * Учитывает начисленные очки во всех таблицах после фиксации транзакции
+     */
+    public void recordPoints(Long userId, int amount) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            applyPoints(userId, amount);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                applyPoints(userId, amount);
+            }
+        });
+    }
+
+    /**
+     * Загружает новую таблицу лидеров после фиксации транзакции
+     */
+    public void registerAfterCommit(Leaderboard leaderboard) {
+        if (!Boolean.TRUE.equals(leaderboard.getIsActive())) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            boards.put(leaderboard.getId(), load(leaderboard));
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                boards.put(leaderboard.getId(), load(leaderboard));
+            }
+        });
+    }
+
+    /**
+     * Выполняется после заполнения сумм очков, иначе таблицы загрузились бы неполными
+     */
+    @Order(3)
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        reload();
+    }
+
+    /**
+     * Перечитывает все активные таблицы из БД
+     */
+    @Scheduled(fixedDelayString = "${app.gamification.leaderboards.reload-interval-ms:900000}",
+            initialDelayString = "${app.gamification.leaderboards.reload-interval-ms:900000}")
+    public void reload() {
+        maintenanceLock.lock();
+        try {
+            List<Leaderboard> leaderboards = leaderboardRepository.findByIsActiveTrue();
+            Set<Long> activeIds = new HashSet<>();
+            for (Leaderboard leaderboard : leaderboards) {
+                activeIds.add(leaderboard.getId());
+                boards.put(leaderboard.getId(), load(leaderboard));
+            }
+            boards.keySet().retainAll(activeIds);
+            log.debug("Loaded {} leaderboards", leaderboards.size());
+        } finally {
+            maintenanceLock.unlock();
+        }
+    }
+
+    /**
+     * Сохраняет текущее состояние таблиц в leaderboard_entries
+     */
+    @Scheduled(fixedDelayString = "${app.gamification.leaderboards.snapshot-interval-ms:300000}",
+            initialDelayString = "${app.gamification.leaderboards.snapshot-interval-ms:300000}")
+    public void snapshot() {
+        maintenanceLock.lock();
+        try {
+            for (Standings standings : boards.values()) {
+                try {
+                    transactionTemplate.executeWithoutResult(status -> {
+                        // Снимок пишет только один узел
+                        if (!leaderboardEntryRepository.tryLockLeaderboard(standings.getLeaderboardId())) {
+                            return;
+                        }
+                        LeaderboardPeriod period = standings.getPeriod();
+                        List<RankedScoreIndex.Entry> entries = standings.page(0, standings.size());
+                        leaderboardEntryRepository.replaceEntries(standings.getLeaderboardId(),
+                                period.start(), period.end(), entries, snapshotBatchSize);
+                    });
+                } catch (RuntimeException e) {
+                    log.error("Failed to snapshot leaderboard {}", standings.getLeaderboardId(), e);
+                }
+            }
+        } finally {
+            maintenanceLock.unlock();
+        }
+    }
+
+    private void applyPoints(Long userId, int amount) {
+        for (Standings standings : boards.values()) {
+            standings.add(userId, amount);
+        }
+    }
+
+    private Standings load(Leaderboard leaderboard) {
+        LeaderboardPeriod period = LeaderboardPeriod.current(leaderboard.getTimePeriod(), ZonedDateTime.now(zone));
+        Standings standings = new Standings(leaderboard, period, zone);
+
+        // Все типы таблиц пока строятся по очкам, как и в ночном пересчете
+        List<Object[]> rows;
+        if (leaderboard.getTimePeriod() != Leaderboard.TimePeriod.ALL_TIME) {
+            rows = dailyPointsRepository.getUsersWithTotalPointsSince(period.start().toLocalDate());
+        } else if (pointTotalsReconciler.isBackfilled()) {
+            rows = pointTotalRepository.getUsersWithTotalPoints();
+        } else {
+            // Пока суммы не заполнены, в user_point_totals есть не все пользователи
+            rows = pointRepository.getUsersWithTotalPoints();
+        }
+        for (Object[] row : rows) {
+            standings.index.set((Long) row[0], ((Number) row[1]).intValue());
+        }
+        return standings;
+    }
+}
@@ -0,0 +1,47 @@
+package com.threadqa.lms.service.gamification;
+
+import com.threadqa.lms.model.gamification.Leaderboard;
+
+import java.time.DayOfWeek;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Период таблицы лидеров [start, end)
+ */
+public record LeaderboardPeriod(ZonedDateTime start, ZonedDateTime end) {
+
+    /**
+     * Определяет текущий период для таблицы лидеров
+     */
+    public static LeaderboardPeriod current(Leaderboard.TimePeriod timePeriod, ZonedDateTime now) {
+        ZonedDateTime periodStart;
+        ZonedDateTime periodEnd;
+
+        switch (timePeriod) {
+            case DAILY:
+                periodStart = now.truncatedTo(ChronoUnit.DAYS);
+                periodEnd = periodStart.plusDays(1);
+                break;
+            case WEEKLY:
+                periodStart = now.truncatedTo(ChronoUnit.DAYS).with(DayOfWeek.MONDAY);
+                periodEnd = periodStart.plusWeeks(1);
+                break;
+            case MONTHLY:
+                periodStart = now.withDayOfMonth(1).truncatedTo(ChronoUnit.DAYS);
+                periodEnd = periodStart.plusMonths(1);
+                break;
+            case ALL_TIME:
+            default:
+                periodStart = ZonedDateTime.of(2000, 1, 1, 0, 0, 0, 0, now.getZone());
+                periodEnd = now.plusYears(100);
+                break;
+        }
+
+        return new LeaderboardPeriod(periodStart, periodEnd);
+    }
+
+    public boolean isExpired(ZonedDateTime now) {
+        return !now.isBefore(end);
+    }
+}
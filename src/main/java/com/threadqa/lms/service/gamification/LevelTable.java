@@ -0,0 +1,140 @@
+package com.threadqa.lms.service.gamification;
+
+import com.threadqa.lms.model.gamification.Level;
+import com.threadqa.lms.repository.gamification.LevelRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+
+/**
+ * Таблица порогов уровней в памяти. Уровни хранятся в неизменяемом снимке,
+ * отсортированном по количеству необходимых очков; текущий и следующий уровень
+ * определяются одним бинарным поиском без обращения к БД.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class LevelTable {
+
+    private final LevelRepository levelRepository;
+
+    private volatile Snapshot snapshot;
+
+    public record LevelInfo(Long id, int levelNumber, String name, int pointsRequired) {
+    }
+
+    /**
+     * Текущий уровень и следующий уровень (null, если достигнут максимальный)
+     */
+    public record Resolution(LevelInfo current, LevelInfo next) {
+    }
+
+    /**
+     * Определяет уровень по количеству очков. Если ни один порог не достигнут, используется уровень 1.
+     */
+    public Resolution resolve(int points) {
+        Snapshot current = snapshot();
+        int[] thresholds = current.pointsRequired;
+
+        // Первый уровень, для которого очков еще не хватает
+        int low = 0;
+        int high = thresholds.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (thresholds[mid] <= points) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+
+        int currentIndex = low > 0 ? low - 1 : current.firstLevelIndex;
+        if (currentIndex < 0) {
+            return null;
+        }
+        LevelInfo next = low < thresholds.length ? current.levels[low] : null;
+        return new Resolution(current.levels[currentIndex], next);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        reload();
+    }
+
+    /**
+     * Периодически перечитывает уровни, чтобы подхватить изменения с других узлов
+     */
+    @Scheduled(fixedDelayString = "${app.gamification.levels.refresh-interval-ms:300000}",
+            initialDelayString = "${app.gamification.levels.refresh-interval-ms:300000}")
+    public void refresh() {
+        reload();
+    }
+
+    /**
+     * Перечитывает уровни после фиксации текущей транзакции
+     */
+    public void reloadAfterCommit() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            reload();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                reload();
+            }
+        });
+    }
+
+    public void reload() {
+        List<Level> levels = levelRepository.findAll(Sort.by("pointsRequired", "levelNumber"));
+        snapshot = new Snapshot(levels);
+        log.debug("Loaded {} levels", levels.size());
+    }
+
+    private Snapshot snapshot() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            synchronized (this) {
+                current = snapshot;
+                if (current == null) {
+                    reload();
+                    current = snapshot;
+                }
+            }
+        }
+        return current;
+    }
+
+    private static final class Snapshot {
+
+        private final int[] pointsRequired;
+        private final LevelInfo[] levels;
+        private final int firstLevelIndex;
+
+        private Snapshot(List<Level> sortedLevels) {
+            int size = sortedLevels.size();
+            this.pointsRequired = new int[size];
+            this.levels = new LevelInfo[size];
+            int first = -1;
+            for (int i = 0; i < size; i++) {
+                Level level = sortedLevels.get(i);
+                pointsRequired[i] = level.getPointsRequired();
+                levels[i] = new LevelInfo(level.getId(), level.getLevelNumber(), level.getName(),
+                        level.getPointsRequired());
+                if (level.getLevelNumber() == 1) {
+                    first = i;
+                }
+            }
+            this.firstLevelIndex = first;
+        }
+    }
+}
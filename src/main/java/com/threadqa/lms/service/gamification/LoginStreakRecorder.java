@@ -0,0 +1,87 @@
+package com.threadqa.lms.service.gamification;
+
+import com.threadqa.lms.config.SchedulingConfig;
+import com.threadqa.lms.util.LruCache;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Отмечает входы пользователей для серии входов без задержки запроса на вход.
+ * Повторные входы за день отбрасываются в памяти, новые отметки периодически
+ * записываются в outbox геймификации одной транзакцией.
+ */
+@Slf4j
+@Component
+public class LoginStreakRecorder {
+
+    private final GamificationEventPublisher gamificationEventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final LruCache<Long, LocalDate> recordedDays;
+    private final Set<LoginDay> pending = ConcurrentHashMap.newKeySet();
+
+    public LoginStreakRecorder(GamificationEventPublisher gamificationEventPublisher,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${app.gamification.login-streak.dedupe-cache-size:100000}") int cacheSize) {
+        this.gamificationEventPublisher = gamificationEventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.recordedDays = new LruCache<>(cacheSize);
+    }
+
+    private record LoginDay(Long userId, LocalDate day) {
+    }
+
+    /**
+     * Запоминает вход пользователя. Не обращается к БД.
+     */
+    public void recordLogin(Long userId) {
+        LocalDate today = LocalDate.now();
+        if (today.equals(recordedDays.get(userId))) {
+            return;
+        }
+        recordedDays.put(userId, today);
+        pending.add(new LoginDay(userId, today));
+    }
+
+    /**
+     * Записывает накопленные входы в outbox. Дубликаты с других узлов отсекаются ключом идемпотентности.
+     */
+    @Scheduled(fixedDelayString = "${app.gamification.login-streak.flush-interval-ms:5000}",
+            scheduler = SchedulingConfig.DRAIN_SCHEDULER)
+    public void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        List<LoginDay> batch = new ArrayList<>();
+        for (LoginDay login : pending) {
+            if (pending.remove(login)) {
+                batch.add(login);
+            }
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> batch.forEach(login ->
+                    gamificationEventPublisher.loginRecorded(login.userId(), login.day())));
+            log.debug("Recorded {} logins for streaks", batch.size());
+        } catch (RuntimeException e) {
+            log.error("Failed to record logins for streaks, will retry", e);
+            pending.addAll(batch);
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+}
@@ -0,0 +1,107 @@
+package com.threadqa.lms.service.gamification;
+
+import com.threadqa.lms.repository.gamification.PointRepository;
+import com.threadqa.lms.repository.gamification.UserPointTotalRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+/**
+ * Заполняет накопленные суммы очков при запуске, сверяет их с таблицей points и исправляет расхождения
+ */
+@Slf4j
+@Component
+public class PointTotalsReconciler {
+
+    private final UserPointTotalRepository pointTotalRepository;
+    private final PointRepository pointRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Counter driftCounter;
+    private volatile boolean backfilled;
+
+    public PointTotalsReconciler(UserPointTotalRepository pointTotalRepository,
+                                 PointRepository pointRepository,
+                                 PlatformTransactionManager transactionManager,
+                                 MeterRegistry meterRegistry) {
+        this.pointTotalRepository = pointTotalRepository;
+        this.pointRepository = pointRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.driftCounter = Counter.builder("lms.gamification.points.drift")
+                .description("Количество исправленных расхождений суммы очков пользователя")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Создает недостающие суммы по таблице points. Пустоты таблицы для проверки недостаточно:
+     * начисления, обработанные до этого момента, уже могли создать суммы отдельных пользователей.
+     */
+    @Order(1)
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillMissing() {
+        Integer inserted = transactionTemplate.execute(status -> pointTotalRepository.backfillMissing());
+        backfilled = true;
+        if (inserted != null && inserted > 0) {
+            log.info("Point totals backfilled: {} rows", inserted);
+        }
+    }
+
+    /**
+     * true, если суммы всех пользователей уже заполнены. До этого суммы за все время
+     * нужно считать по таблице points.
+     */
+    public boolean isBackfilled() {
+        return backfilled;
+    }
+
+    @Scheduled(cron = "${app.gamification.points-reconciliation.cron:0 30 3 * * ?}")
+    public void reconcile() {
+        List<Long> userIds = pointTotalRepository.findDriftedUserIds();
+        if (userIds.isEmpty()) {
+            return;
+        }
+
+        int fixed = 0;
+        for (Long userId : userIds) {
+            try {
+                if (Boolean.TRUE.equals(transactionTemplate.execute(status -> rebuild(userId)))) {
+                    fixed++;
+                }
+            } catch (RuntimeException e) {
+                log.error("Failed to rebuild point total for user {}", userId, e);
+            }
+        }
+
+        driftCounter.increment(fixed);
+        log.info("Point totals reconciled: {} checked, {} fixed", userIds.size(), fixed);
+    }
+
+    /**
+     * Пересчитывает сумму одного пользователя. Строка блокируется до подсчета,
+     * поэтому параллельные начисления не теряются.
+     */
+    private boolean rebuild(Long userId) {
+        Integer stored = pointTotalRepository.lockTotal(userId);
+        Integer actual = pointRepository.getTotalPointsByUser(userId);
+        int expected = actual != null ? actual : 0;
+
+        if (stored == null) {
+            return pointTotalRepository.insertIfAbsent(userId, expected) > 0;
+        }
+        if (stored == expected) {
+            return false; // Расхождение исправлено параллельным начислением
+        }
+
+        log.warn("Point total drift for user {}: stored {}, ledger {}", userId, stored, expected);
+        pointTotalRepository.setTotal(userId, expected);
+        return true;
+    }
+}
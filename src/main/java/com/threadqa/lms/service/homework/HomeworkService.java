@@ -15,6 +15,7 @@ import com.threadqa.lms.repository.homework.HomeworkRepository;
 import com.threadqa.lms.repository.homework.HomeworkRequirementRepository;
 import com.threadqa.lms.repository.homework.HomeworkSubmissionRepository;
 import com.threadqa.lms.repository.user.UserRepository;
+import com.threadqa.lms.service.gamification.GamificationEventPublisher;
 import com.threadqa.lms.service.notification.NotificationService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
@@ -41,6 +42,7 @@ public class HomeworkService {
     private final UserRepository userRepository;
     private final HomeworkMapper homeworkMapper;
     private final NotificationService notificationService;
+    private final GamificationEventPublisher gamificationEventPublisher;
 
     @Transactional(readOnly = true)
     public Page<HomeworkResponse> getHomeworksByTopic(Long topicId, Pageable pageable, Long currentUserId) {
@@ -335,6 +337,11 @@ public class HomeworkService {
 
         HomeworkSubmission updatedSubmission = submissionRepository.save(submission);
 
+        // Очки за принятое задание начисляются асинхронно
+        if (request.getStatus() == HomeworkSubmission.SubmissionStatus.COMPLETED) {
+            gamificationEventPublisher.homeworkCompleted(submission.getUser().getId(), submission.getId(), request.getScore());
+        }
+
         // Отправка уведомления студенту
         notificationService.createNotification(
                 submission.getUser().getId(),
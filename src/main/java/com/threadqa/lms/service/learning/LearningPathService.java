@@ -16,6 +16,8 @@ import com.threadqa.lms.repository.learning.LearningPathItemRepository;
 import com.threadqa.lms.repository.learning.LearningPathRepository;
 import com.threadqa.lms.repository.learning.UserLearningPathProgressRepository;
 import com.threadqa.lms.repository.user.UserRepository;
+import com.threadqa.lms.service.analytics.AnalyticsRollupService;
+import com.threadqa.lms.service.analytics.AnalyticsRollupService.EnrollmentSnapshot;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
@@ -47,6 +49,7 @@ public class LearningPathService {
     private final CourseEnrollmentRepository courseEnrollmentRepository;
     private final UserRepository userRepository;
     private final LearningPathMapper mapper;
+    private final AnalyticsRollupService analyticsRollupService;
 
     /**
      * Получает все опубликованные образовательные пути с пагинацией
@@ -394,7 +397,8 @@ public class LearningPathService {
                             .isActive(true)
                             .build();
 
-                    courseEnrollmentRepository.save(enrollment);
+                    CourseEnrollment savedEnrollment = courseEnrollmentRepository.save(enrollment);
+                    analyticsRollupService.enrollmentChanged(null, EnrollmentSnapshot.of(savedEnrollment));
                 }
             }
         }
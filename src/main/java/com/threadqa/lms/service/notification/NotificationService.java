@@ -5,6 +5,7 @@ import com.threadqa.lms.exception.ResourceNotFoundException;
 import com.threadqa.lms.model.notification.Notification;
 import com.threadqa.lms.model.user.User;
 import com.threadqa.lms.repository.notification.NotificationRepository;
+import com.threadqa.lms.repository.notification.NotificationRepositoryExtensions.NewNotification;
 import com.threadqa.lms.repository.user.UserRepository;
 import com.threadqa.lms.service.communication.WebSocketService;
 import lombok.RequiredArgsConstructor;
@@ -12,8 +13,12 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
 
 @Service
 @RequiredArgsConstructor
@@ -60,12 +65,64 @@ public class NotificationService {
 
     @Transactional
     public void sendBadgeNotification(User user, String badgeName, String badgeDescription) {
+        NewNotification notification = badgeNotification(user.getId(), badgeName, badgeDescription);
+        createNotification(notification.userId(), notification.title(), notification.message(),
+                notification.type(), notification.link());
+    }
+
+    /**
+     * Уведомление о получении значка
+     */
+    public NewNotification badgeNotification(Long userId, String badgeName, String badgeDescription) {
         String title = "Получен новый значок!";
         String message = "Поздравляем! Вы получили значок \"" + badgeName + "\": " + badgeDescription;
-        String type = "BADGE";
-        String link = "/profile/achievements";
-        
-        createNotification(user.getId(), title, message, type, link);
+        return new NewNotification(userId, title, message, "BADGE", "/profile/achievements");
+    }
+
+    /**
+     * Сохраняет пачку уведомлений одним пакетным запросом.
+     * Через WebSocket уведомления отправляются после фиксации транзакции.
+     */
+    @Transactional
+    public void createNotifications(List<NewNotification> notifications) {
+        if (notifications.isEmpty()) {
+            return;
+        }
+
+        ZonedDateTime now = ZonedDateTime.now();
+        List<Long> ids = notificationRepository.insertNotifications(notifications, now);
+
+        List<NotificationResponse> responses = new ArrayList<>(notifications.size());
+        for (int i = 0; i < notifications.size(); i++) {
+            NewNotification notification = notifications.get(i);
+            responses.add(NotificationResponse.builder()
+                    .id(ids.get(i))
+                    .userId(notification.userId())
+                    .title(notification.title())
+                    .message(notification.message())
+                    .type(notification.type())
+                    .link(notification.link())
+                    .isRead(false)
+                    .createdAt(now)
+                    .build());
+        }
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            sendAll(responses);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                sendAll(responses);
+            }
+        });
+    }
+
+    private void sendAll(List<NotificationResponse> responses) {
+        for (NotificationResponse response : responses) {
+            webSocketService.sendPrivateNotification(response.getUserId(), response);
+        }
     }
 
     @Transactional(readOnly = true)
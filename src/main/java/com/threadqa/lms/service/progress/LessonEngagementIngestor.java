@@ -0,0 +1,296 @@
+package com.threadqa.lms.service.progress;
+
+import com.threadqa.lms.config.SchedulingConfig;
+import com.threadqa.lms.dto.progress.LessonEngagementBatchRequest;
+import com.threadqa.lms.dto.progress.LessonEngagementBatchResponse;
+import com.threadqa.lms.exception.TooManyRequestsException;
+import com.threadqa.lms.repository.progress.LessonEngagementEventRepository;
+import com.threadqa.lms.repository.progress.LessonEngagementEventRepositoryExtensions.EngagementEvent;
+import com.threadqa.lms.repository.progress.LessonEngagementEventRepositoryExtensions.UserTopic;
+import com.threadqa.lms.repository.progress.LessonEngagementStatsRepository;
+import com.threadqa.lms.repository.progress.LessonEngagementStatsRepositoryExtensions.StatsDelta;
+import com.threadqa.lms.util.RingBuffer;
+import com.threadqa.lms.util.TokenBucketLimiter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Прием событий взаимодействия с уроками. Запрос только кладет события в ограниченный
+ * кольцевой буфер без блокировок; отдельный писатель забирает их пакетами и сохраняет
+ * одним многострочным INSERT вместе с приращениями показателей уроков.
+ * Если буфер заполнен, лишние события отклоняются, а пустой прием завершается кодом 429.
+ * Частота приема ограничена для каждого пользователя, чтобы один клиент не занял весь буфер.
+ * События по урокам курсов, на которые пользователь не зачислен, отбрасываются при записи
+ * и не попадают ни в журнал, ни в показатели уроков.
+ * Пакет, который не удалось записать, повторяется с экспоненциальной задержкой и отбрасывается,
+ * только если запись не удается дольше app.engagement.max-retry-ms.
+ */
+@Slf4j
+@Component
+public class LessonEngagementIngestor {
+
+    private final LessonEngagementEventRepository eventRepository;
+    private final LessonEngagementStatsRepository statsRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final RingBuffer<EngagementEvent> buffer;
+    private final TokenBucketLimiter<Long> userBuckets;
+    private final int batchSize;
+    private final int maxBatchesPerRun;
+    private final long retryBackoffNanos;
+    private final long retryMaxBackoffNanos;
+    private final long maxRetryNanos;
+    private final Counter acceptedCounter;
+    private final Counter rejectedCounter;
+    private final Counter throttledCounter;
+    private final Counter writtenCounter;
+    private final Counter droppedCounter;
+    private final Counter discardedCounter;
+
+    /**
+     * Пакет, который не удалось сохранить; повторяется до извлечения новых событий
+     */
+    private List<EngagementEvent> failedBatch;
+    private int failedAttempts;
+    private long firstFailureAt;
+    private long nextRetryAt;
+
+    public LessonEngagementIngestor(LessonEngagementEventRepository eventRepository,
+                                    LessonEngagementStatsRepository statsRepository,
+                                    PlatformTransactionManager transactionManager,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${app.engagement.buffer-capacity:65536}") int bufferCapacity,
+                                    @Value("${app.engagement.batch-size:1000}") int batchSize,
+                                    @Value("${app.engagement.max-batches-per-run:50}") int maxBatchesPerRun,
+                                    @Value("${app.engagement.retry-backoff-ms:500}") long retryBackoffMs,
+                                    @Value("${app.engagement.retry-max-backoff-ms:30000}") long retryMaxBackoffMs,
+                                    @Value("${app.engagement.max-retry-ms:600000}") long maxRetryMs,
+                                    @Value("${app.engagement.rate-limit.capacity:30}") int rateLimitCapacity,
+                                    @Value("${app.engagement.rate-limit.refill-per-minute:60}") int rateLimitRefillPerMinute,
+                                    @Value("${app.engagement.rate-limit.max-keys:100000}") int rateLimitMaxKeys) {
+        this.eventRepository = eventRepository;
+        this.statsRepository = statsRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.buffer = new RingBuffer<>(bufferCapacity);
+        this.userBuckets = new TokenBucketLimiter<>(rateLimitCapacity, rateLimitRefillPerMinute, rateLimitMaxKeys);
+        this.batchSize = batchSize;
+        this.maxBatchesPerRun = maxBatchesPerRun;
+        this.retryBackoffNanos = TimeUnit.MILLISECONDS.toNanos(retryBackoffMs);
+        this.retryMaxBackoffNanos = TimeUnit.MILLISECONDS.toNanos(retryMaxBackoffMs);
+        this.maxRetryNanos = TimeUnit.MILLISECONDS.toNanos(maxRetryMs);
+        this.acceptedCounter = Counter.builder("lms.engagement.events.accepted")
+                .description("Количество событий взаимодействия с уроками, принятых в буфер")
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("lms.engagement.events.rejected")
+                .description("Количество событий, отклоненных из-за переполнения буфера")
+                .register(meterRegistry);
+        this.throttledCounter = Counter.builder("lms.engagement.throttled")
+                .description("Количество пакетов событий, отклоненных ограничителем частоты пользователя")
+                .register(meterRegistry);
+        this.writtenCounter = Counter.builder("lms.engagement.events.written")
+                .description("Количество событий, сохраненных в БД")
+                .register(meterRegistry);
+        this.droppedCounter = Counter.builder("lms.engagement.events.dropped")
+                .description("Количество событий, отброшенных после неудачных попыток записи в течение max-retry-ms")
+                .register(meterRegistry);
+        this.discardedCounter = Counter.builder("lms.engagement.events.discarded")
+                .description("Количество событий по урокам курсов, на которые пользователь не зачислен")
+                .register(meterRegistry);
+        Gauge.builder("lms.engagement.buffer.size", buffer, RingBuffer::size)
+                .description("Количество событий, ожидающих записи")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Принимает пакет событий пользователя. События кладутся в буфер по порядку до первого отказа,
+     * поэтому отклоненные всегда составляют конец пакета.
+     */
+    public LessonEngagementBatchResponse submit(Long userId, List<LessonEngagementBatchRequest.Event> events) {
+        if (!userBuckets.tryConsume(userId)) {
+            throttledCounter.increment();
+            throw new TooManyRequestsException("Слишком много событий. Повторите попытку позже.");
+        }
+
+        LocalDateTime receivedAt = LocalDateTime.now();
+        int accepted = 0;
+        for (LessonEngagementBatchRequest.Event event : events) {
+            if (!buffer.offer(toEngagementEvent(userId, event, receivedAt))) {
+                break;
+            }
+            accepted++;
+        }
+
+        int rejected = events.size() - accepted;
+        acceptedCounter.increment(accepted);
+        if (rejected > 0) {
+            rejectedCounter.increment(rejected);
+            if (accepted == 0) {
+                throw new TooManyRequestsException("Очередь событий переполнена. Повторите попытку позже.");
+            }
+        }
+
+        return LessonEngagementBatchResponse.builder()
+                .accepted(accepted)
+                .rejected(rejected)
+                .build();
+    }
+
+    @Scheduled(fixedDelayString = "${app.engagement.flush-interval-ms:200}",
+            scheduler = SchedulingConfig.DRAIN_SCHEDULER)
+    public void flush() {
+        drain(maxBatchesPerRun, false);
+    }
+
+    /**
+     * Удаляет полностью восстановившиеся бакеты ограничителя частоты
+     */
+    @Scheduled(fixedDelay = 60000)
+    public void evictIdleBuckets() {
+        userBuckets.evictFull();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        drain(Integer.MAX_VALUE, true);
+    }
+
+    /**
+     * Забирает события из буфера пакетами и сохраняет их. Вызовы сериализованы,
+     * поэтому у буфера всегда один потребитель.
+     *
+     * @param ignoreBackoff повторить неудавшийся пакет, не дожидаясь окончания задержки
+     */
+    private synchronized void drain(int maxBatches, boolean ignoreBackoff) {
+        if (failedBatch != null && !ignoreBackoff && System.nanoTime() - nextRetryAt < 0) {
+            return;
+        }
+
+        for (int i = 0; i < maxBatches; i++) {
+            List<EngagementEvent> batch = failedBatch != null ? failedBatch : nextBatch();
+            if (batch.isEmpty()) {
+                return;
+            }
+
+            try {
+                Integer written = transactionTemplate.execute(status -> {
+                    List<EngagementEvent> enrolled = retainEnrolled(batch);
+                    statsRepository.applyDeltas(aggregate(enrolled));
+                    return eventRepository.insertEvents(enrolled);
+                });
+                writtenCounter.increment(written != null ? written : 0);
+                failedBatch = null;
+                failedAttempts = 0;
+            } catch (RuntimeException e) {
+                recordFailure(batch, e);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Оставляет только события по урокам курсов, на которые пользователь зачислен
+     */
+    private List<EngagementEvent> retainEnrolled(List<EngagementEvent> batch) {
+        Set<UserTopic> enrolled = eventRepository.findEnrolledTopics(batch);
+        List<EngagementEvent> result = new ArrayList<>(batch.size());
+        for (EngagementEvent event : batch) {
+            if (enrolled.contains(event.userTopic())) {
+                result.add(event);
+            }
+        }
+        if (result.size() < batch.size()) {
+            discardedCounter.increment(batch.size() - result.size());
+        }
+        return result;
+    }
+
+    /**
+     * Назначает повтор пакета с экспоненциальной задержкой. Пока запись не удается,
+     * буфер не разгружается и новые события отклоняются.
+     */
+    private void recordFailure(List<EngagementEvent> batch, RuntimeException error) {
+        long now = System.nanoTime();
+        if (failedBatch == null) {
+            failedBatch = batch;
+            failedAttempts = 0;
+            firstFailureAt = now;
+        }
+        failedAttempts++;
+
+        long failingForNanos = now - firstFailureAt;
+        if (failingForNanos >= maxRetryNanos) {
+            log.error("Не удалось сохранить пакет из {} событий за {} попыток в течение {} мс, пакет отброшен",
+                    batch.size(), failedAttempts, TimeUnit.NANOSECONDS.toMillis(failingForNanos), error);
+            droppedCounter.increment(batch.size());
+            failedBatch = null;
+            failedAttempts = 0;
+            return;
+        }
+
+        long backoff = Math.min(retryMaxBackoffNanos, retryBackoffNanos << Math.min(failedAttempts - 1, 20));
+        nextRetryAt = now + backoff;
+        log.warn("Не удалось сохранить пакет из {} событий (попытка {}), повтор через {} мс: {}",
+                batch.size(), failedAttempts, TimeUnit.NANOSECONDS.toMillis(backoff), error.getMessage());
+    }
+
+    private List<EngagementEvent> nextBatch() {
+        List<EngagementEvent> batch = new ArrayList<>(Math.min(batchSize, buffer.size()));
+        buffer.drainTo(batch, batchSize);
+        return batch;
+    }
+
+    /**
+     * Суммирует приращения показателей по урокам внутри пакета
+     */
+    private static Map<Long, StatsDelta> aggregate(List<EngagementEvent> batch) {
+        Map<Long, StatsDelta> deltas = new HashMap<>();
+        for (EngagementEvent event : batch) {
+            deltas.merge(event.topicId(), toDelta(event), StatsDelta::plus);
+        }
+        return deltas;
+    }
+
+    private static StatsDelta toDelta(EngagementEvent event) {
+        return switch (event.type()) {
+            case VIEW -> new StatsDelta(1, 0, 0, 0, 0, 0, 0);
+            case PLAY -> new StatsDelta(0, 1, 0, 0, 0, 0, 0);
+            case PAUSE -> new StatsDelta(0, 0, 1, 0, 0, 0, 0);
+            case SEEK -> new StatsDelta(0, 0, 0, 1, 0, 0, 0);
+            case COMPLETE -> event.elapsedSeconds() != null
+                    ? new StatsDelta(0, 0, 0, 0, 1, event.elapsedSeconds(), 1)
+                    : new StatsDelta(0, 0, 0, 0, 1, 0, 0);
+        };
+    }
+
+    private static EngagementEvent toEngagementEvent(Long userId, LessonEngagementBatchRequest.Event event,
+                                                     LocalDateTime receivedAt) {
+        // Время клиента принимается, только если оно не в будущем
+        LocalDateTime occurredAt = receivedAt;
+        if (event.getOccurredAt() != null) {
+            LocalDateTime clientTime = event.getOccurredAt()
+                    .withZoneSameInstant(ZoneId.systemDefault())
+                    .toLocalDateTime();
+            if (!clientTime.isAfter(receivedAt)) {
+                occurredAt = clientTime;
+            }
+        }
+        return new EngagementEvent(userId, event.getTopicId(), event.getType(), event.getPositionSeconds(),
+                event.getElapsedSeconds(), occurredAt, receivedAt);
+    }
+}
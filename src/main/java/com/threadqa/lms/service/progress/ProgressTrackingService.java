@@ -15,6 +15,7 @@ import com.threadqa.lms.repository.progress.UserActivityRepository;
 import com.threadqa.lms.repository.progress.UserEngagementRepository;
 import com.threadqa.lms.repository.progress.UserProgressRepository;
 import com.threadqa.lms.repository.user.UserRepository;
+import com.threadqa.lms.service.analytics.ActivitySketchService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -36,6 +37,7 @@ public class ProgressTrackingService {
     private final CourseRepository courseRepository;
     private final TopicRepository topicRepository;
     private final ProgressMapper progressMapper;
+    private final ActivitySketchService activitySketchService;
 
     @Transactional
     public UserProgressResponse trackProgress(UserProgressRequest request, Long currentUserId) {
@@ -48,6 +50,8 @@ public class ProgressTrackingService {
         Topic topic = topicRepository.findById(request.getTopicId())
                 .orElseThrow(() -> new ResourceNotFoundException("Topic not found"));
 
+        activitySketchService.recordCourseVisit(course.getId(), currentUserId);
+
         // Проверка, существует ли уже запись о прогрессе
         Optional<UserProgress> existingProgress = progressRepository.findByUserAndCourseAndTopicAndContentTypeAndContentId(
                 user, course, topic, request.getContentType(), request.getContentId());
@@ -179,6 +183,7 @@ public class ProgressTrackingService {
         if (courseId != null) {
             course = courseRepository.findById(courseId)
                     .orElseThrow(() -> new ResourceNotFoundException("Course not found"));
+            activitySketchService.recordCourseVisit(courseId, currentUserId);
         }
 
         UserEngagement userEngagement = UserEngagement.builder()
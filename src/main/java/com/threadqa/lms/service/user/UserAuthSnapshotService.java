@@ -0,0 +1,76 @@
+package com.threadqa.lms.service.user;
+
+import com.threadqa.lms.event.UserAuthStateChangedEvent;
+import com.threadqa.lms.model.user.UserAuthSnapshot;
+import com.threadqa.lms.repository.user.UserRepository;
+import com.threadqa.lms.util.LruCache;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Кэш снимков пользователей для авторизации запросов.
+ * Снимок сбрасывается по событию {@link UserAuthStateChangedEvent}, а изменения,
+ * сделанные на других узлах, подхватываются по истечении времени жизни записи.
+ */
+@Slf4j
+@Service
+public class UserAuthSnapshotService {
+
+    private final UserRepository userRepository;
+    private final LruCache<Long, UserAuthSnapshot> snapshots;
+    private final AtomicLong generation = new AtomicLong();
+
+    public UserAuthSnapshotService(UserRepository userRepository,
+                                   @Value("${app.user.auth-cache.max-size:50000}") int maxSize,
+                                   @Value("${app.user.auth-cache.ttl-seconds:60}") long ttlSeconds) {
+        this.userRepository = userRepository;
+        this.snapshots = new LruCache<>(maxSize, Duration.ofSeconds(ttlSeconds));
+    }
+
+    /**
+     * Возвращает снимок пользователя или null, если пользователь не найден
+     */
+    public UserAuthSnapshot getSnapshot(Long userId) {
+        UserAuthSnapshot snapshot = snapshots.get(userId);
+        if (snapshot != null) {
+            return snapshot;
+        }
+
+        long readGeneration = generation.get();
+        snapshot = userRepository.findAuthSnapshotById(userId).orElse(null);
+        if (snapshot != null) {
+            snapshots.put(userId, snapshot);
+            // Если пока читали из БД пришла инвалидация, прочитанное значение могло устареть
+            if (generation.get() != readGeneration) {
+                snapshots.remove(userId);
+            }
+        }
+        return snapshot;
+    }
+
+    public void evict(Long userId) {
+        generation.incrementAndGet();
+        snapshots.remove(userId);
+    }
+
+    @EventListener
+    public void onAuthStateChanged(UserAuthStateChangedEvent event) {
+        evict(event.userId());
+    }
+
+    /**
+     * Повторная очистка после коммита: до него параллельный запрос мог прочитать старые данные
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onAuthStateCommitted(UserAuthStateChangedEvent event) {
+        evict(event.userId());
+        log.debug("Снимок авторизации пользователя ID: {} сброшен", event.userId());
+    }
+}
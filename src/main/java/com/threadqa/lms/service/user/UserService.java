@@ -2,6 +2,7 @@ package com.threadqa.lms.service.user;
 
 import com.threadqa.lms.dto.user.UserDTO;
 import com.threadqa.lms.dto.user.UserUpdateRequest;
+import com.threadqa.lms.event.UserAuthStateChangedEvent;
 import com.threadqa.lms.exception.ResourceNotFoundException;
 import com.threadqa.lms.mapper.UserMapper;
 import com.threadqa.lms.model.user.User;
@@ -10,6 +11,7 @@ import com.threadqa.lms.service.auth.SessionService;
 import com.threadqa.lms.service.notification.TelegramNotificationService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
@@ -26,6 +28,7 @@ public class UserService {
     private final UserMapper userMapper;
     private final SessionService sessionService;
     private final TelegramNotificationService telegramNotificationService;
+    private final ApplicationEventPublisher eventPublisher;
 
     /**
      * Получает информацию о пользователе по ID
@@ -95,6 +98,7 @@ public class UserService {
         user.setBlockReason(reason);
         user.setBlockedAt(ZonedDateTime.now());
         userRepository.save(user);
+        eventPublisher.publishEvent(new UserAuthStateChangedEvent(userId));
 
         // Деактивируем все сессии пользователя
         sessionService.deactivateAllSessions(userId);
@@ -1,190 +1,186 @@
 package com.threadqa.lms.util;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
- * Сервис для определения типа устройства, браузера и операционной системы по User-Agent
+ * Сервис для определения типа устройства, браузера и операционной системы по User-Agent.
+ * User-Agent разбирается за один проход автоматом по всем ключевым словам,
+ * результаты хранятся в ограниченном LRU-кэше.
  */
 @Slf4j
 @Service
 public class DeviceDetectionService {
 
-    private final Map<String, String> deviceCache = new HashMap<>();
-    private final Map<String, String> browserCache = new HashMap<>();
-    private final Map<String, String> osCache = new HashMap<>();
+    private static final List<String> TOKENS = List.of(
+            "mobile", "android", "tablet", "iphone", "ipad", "kindle", "ipod",
+            "firefox", "chrome", "safari", "edg", "opera", "opr", "msie", "trident",
+            "windows", "windows nt 10", "windows nt 6.3", "windows nt 6.2", "windows nt 6.1",
+            "macintosh", "mac os x", "linux");
+
+    private static final long MOBILE = bit("mobile");
+    private static final long ANDROID = bit("android");
+    private static final long TABLET = bit("tablet");
+    private static final long IPHONE = bit("iphone");
+    private static final long IPAD = bit("ipad");
+    private static final long KINDLE = bit("kindle");
+    private static final long IPOD = bit("ipod");
+    private static final long FIREFOX = bit("firefox");
+    private static final long CHROME = bit("chrome");
+    private static final long SAFARI = bit("safari");
+    private static final long EDGE = bit("edg");
+    private static final long OPERA = bit("opera");
+    private static final long OPR = bit("opr");
+    private static final long MSIE = bit("msie");
+    private static final long TRIDENT = bit("trident");
+    private static final long WINDOWS = bit("windows");
+    private static final long WINDOWS_10 = bit("windows nt 10");
+    private static final long WINDOWS_8_1 = bit("windows nt 6.3");
+    private static final long WINDOWS_8 = bit("windows nt 6.2");
+    private static final long WINDOWS_7 = bit("windows nt 6.1");
+    private static final long MACINTOSH = bit("macintosh");
+    private static final long MAC_OS_X = bit("mac os x");
+    private static final long LINUX = bit("linux");
+
+    private static final MultiPatternMatcher MATCHER = new MultiPatternMatcher(TOKENS);
+
+    private static final Pattern CHROME_VERSION = Pattern.compile("Chrome/(\\d+\\.\\d+)");
+    private static final Pattern FIREFOX_VERSION = Pattern.compile("Firefox/(\\d+\\.\\d+)");
+    private static final Pattern SAFARI_VERSION = Pattern.compile("Version/(\\d+\\.\\d+)");
+    private static final Pattern EDGE_VERSION = Pattern.compile("Edg/(\\d+\\.\\d+)");
+    private static final Pattern OPR_VERSION = Pattern.compile("OPR/(\\d+\\.\\d+)");
+    private static final Pattern OPERA_VERSION = Pattern.compile("Opera/(\\d+\\.\\d+)");
+    private static final Pattern MSIE_VERSION = Pattern.compile("MSIE (\\d+\\.\\d+)");
+    private static final Pattern RV_VERSION = Pattern.compile("rv:(\\d+\\.\\d+)");
+
+    private final LruCache<String, DeviceInfo> cache;
+
+    public DeviceDetectionService(@Value("${app.device-detection.cache-size:10000}") int cacheSize) {
+        this.cache = new LruCache<>(cacheSize);
+    }
 
     /**
-     * Получает тип устройства по User-Agent
+     * Определяет тип устройства, браузер и операционную систему за один разбор User-Agent
      */
-    public String getDeviceType(String userAgent) {
+    public DeviceInfo detect(String userAgent) {
         if (userAgent == null || userAgent.isEmpty()) {
-            return "Unknown";
-        }
-
-        // Проверяем кэш
-        if (deviceCache.containsKey(userAgent)) {
-            return deviceCache.get(userAgent);
-        }
-
-        String deviceType;
-        String userAgentLower = userAgent.toLowerCase();
-
-        if (userAgentLower.contains("mobile") || 
-            userAgentLower.contains("android") && !userAgentLower.contains("tablet") ||
-            userAgentLower.contains("iphone")) {
-            deviceType = "Mobile";
-        } else if (userAgentLower.contains("tablet") || 
-                  userAgentLower.contains("ipad") || 
-                  userAgentLower.contains("kindle")) {
-            deviceType = "Tablet";
-        } else {
-            deviceType = "Desktop";
+            return DeviceInfo.UNKNOWN;
         }
+        return cache.computeIfAbsent(userAgent, this::parse);
+    }
 
-        // Сохраняем в кэш
-        deviceCache.put(userAgent, deviceType);
-        return deviceType;
+    /**
+     * Получает тип устройства по User-Agent
+     */
+    public String getDeviceType(String userAgent) {
+        return detect(userAgent).deviceType();
     }
 
     /**
      * Получает название браузера по User-Agent
      */
     public String getBrowser(String userAgent) {
-        if (userAgent == null || userAgent.isEmpty()) {
-            return "Unknown";
-        }
+        return detect(userAgent).browser();
+    }
+
+    /**
+     * Получает название операционной системы по User-Agent
+     */
+    public String getOperatingSystem(String userAgent) {
+        return detect(userAgent).operatingSystem();
+    }
 
-        // Проверяем кэш
-        if (browserCache.containsKey(userAgent)) {
-            return browserCache.get(userAgent);
+    private DeviceInfo parse(String userAgent) {
+        long tokens = MATCHER.match(userAgent);
+        return new DeviceInfo(deviceType(tokens), browser(userAgent, tokens), operatingSystem(tokens));
+    }
+
+    private String deviceType(long tokens) {
+        if (has(tokens, MOBILE) || has(tokens, ANDROID) && !has(tokens, TABLET) || has(tokens, IPHONE)) {
+            return "Mobile";
+        } else if (has(tokens, TABLET) || has(tokens, IPAD) || has(tokens, KINDLE)) {
+            return "Tablet";
         }
+        return "Desktop";
+    }
 
+    private String browser(String userAgent, long tokens) {
         String browser;
-        String userAgentLower = userAgent.toLowerCase();
+        String version;
 
-        if (userAgentLower.contains("firefox")) {
+        if (has(tokens, FIREFOX)) {
             browser = "Firefox";
-        } else if (userAgentLower.contains("chrome") && !userAgentLower.contains("edg")) {
+            version = find(userAgent, FIREFOX_VERSION);
+        } else if (has(tokens, CHROME) && !has(tokens, EDGE)) {
             browser = "Chrome";
-        } else if (userAgentLower.contains("safari") && !userAgentLower.contains("chrome")) {
+            version = find(userAgent, CHROME_VERSION);
+        } else if (has(tokens, SAFARI) && !has(tokens, CHROME)) {
             browser = "Safari";
-        } else if (userAgentLower.contains("edg")) {
+            version = find(userAgent, SAFARI_VERSION);
+        } else if (has(tokens, EDGE)) {
             browser = "Edge";
-        } else if (userAgentLower.contains("opera") || userAgentLower.contains("opr")) {
+            version = find(userAgent, EDGE_VERSION);
+        } else if (has(tokens, OPERA) || has(tokens, OPR)) {
             browser = "Opera";
-        } else if (userAgentLower.contains("msie") || userAgentLower.contains("trident")) {
+            version = find(userAgent, OPR_VERSION);
+            if (version.isEmpty()) {
+                version = find(userAgent, OPERA_VERSION);
+            }
+        } else if (has(tokens, MSIE) || has(tokens, TRIDENT)) {
             browser = "Internet Explorer";
+            version = find(userAgent, MSIE_VERSION);
+            if (version.isEmpty()) {
+                version = find(userAgent, RV_VERSION);
+            }
         } else {
-            browser = "Unknown";
-        }
-
-        // Получаем версию браузера
-        String version = getBrowserVersion(userAgent, browser);
-        if (!version.isEmpty()) {
-            browser += " " + version;
+            return "Unknown";
         }
 
-        // Сохраняем в кэш
-        browserCache.put(userAgent, browser);
-        return browser;
+        return version.isEmpty() ? browser : browser + " " + version;
     }
 
-    /**
-     * Получает версию браузера
-     */
-    private String getBrowserVersion(String userAgent, String browser) {
-        try {
-            Pattern pattern = null;
-            
-            switch (browser) {
-                case "Chrome":
-                    pattern = Pattern.compile("Chrome/(\\d+\\.\\d+)");
-                    break;
-                case "Firefox":
-                    pattern = Pattern.compile("Firefox/(\\d+\\.\\d+)");
-                    break;
-                case "Safari":
-                    pattern = Pattern.compile("Version/(\\d+\\.\\d+)");
-                    break;
-                case "Edge":
-                    pattern = Pattern.compile("Edg/(\\d+\\.\\d+)");
-                    break;
-                case "Opera":
-                    pattern = Pattern.compile("OPR/(\\d+\\.\\d+)");
-                    if (pattern.matcher(userAgent).find()) {
-                        break;
-                    }
-                    pattern = Pattern.compile("Opera/(\\d+\\.\\d+)");
-                    break;
-                case "Internet Explorer":
-                    pattern = Pattern.compile("MSIE (\\d+\\.\\d+)");
-                    if (pattern.matcher(userAgent).find()) {
-                        break;
-                    }
-                    pattern = Pattern.compile("rv:(\\d+\\.\\d+)");
-                    break;
-            }
-            
-            if (pattern != null) {
-                Matcher matcher = pattern.matcher(userAgent);
-                if (matcher.find()) {
-                    return matcher.group(1);
-                }
+    private String operatingSystem(long tokens) {
+        if (has(tokens, WINDOWS)) {
+            if (has(tokens, WINDOWS_10)) {
+                return "Windows 10";
+            } else if (has(tokens, WINDOWS_8_1)) {
+                return "Windows 8.1";
+            } else if (has(tokens, WINDOWS_8)) {
+                return "Windows 8";
+            } else if (has(tokens, WINDOWS_7)) {
+                return "Windows 7";
             }
-        } catch (Exception e) {
-            log.error("Ошибка при определении версии браузера: {}", userAgent, e);
+            return "Windows";
+        } else if (has(tokens, MACINTOSH) || has(tokens, MAC_OS_X)) {
+            return "macOS";
+        } else if (has(tokens, LINUX) && !has(tokens, ANDROID)) {
+            return "Linux";
+        } else if (has(tokens, ANDROID)) {
+            return "Android";
+        } else if (has(tokens, IPHONE) || has(tokens, IPAD) || has(tokens, IPOD)) {
+            return "iOS";
         }
-        
-        return "";
+        return "Unknown";
     }
 
     /**
-     * Получает название операционной системы по User-Agent
+     * Получает версию браузера
      */
-    public String getOperatingSystem(String userAgent) {
-        if (userAgent == null || userAgent.isEmpty()) {
-            return "Unknown";
-        }
-
-        // Проверяем кэш
-        if (osCache.containsKey(userAgent)) {
-            return osCache.get(userAgent);
-        }
+    private String find(String userAgent, Pattern pattern) {
+        Matcher matcher = pattern.matcher(userAgent);
+        return matcher.find() ? matcher.group(1) : "";
+    }
 
-        String os;
-        String userAgentLower = userAgent.toLowerCase();
-
-        if (userAgentLower.contains("windows")) {
-            os = "Windows";
-            if (userAgentLower.contains("windows nt 10")) {
-                os = "Windows 10";
-            } else if (userAgentLower.contains("windows nt 6.3")) {
-                os = "Windows 8.1";
-            } else if (userAgentLower.contains("windows nt 6.2")) {
-                os = "Windows 8";
-            } else if (userAgentLower.contains("windows nt 6.1")) {
-                os = "Windows 7";
-            }
-        } else if (userAgentLower.contains("macintosh") || userAgentLower.contains("mac os x")) {
-            os = "macOS";
-        } else if (userAgentLower.contains("linux") && !userAgentLower.contains("android")) {
-            os = "Linux";
-        } else if (userAgentLower.contains("android")) {
-            os = "Android";
-        } else if (userAgentLower.contains("iphone") || userAgentLower.contains("ipad") || userAgentLower.contains("ipod")) {
-            os = "iOS";
-        } else {
-            os = "Unknown";
-        }
+    private static boolean has(long tokens, long token) {
+        return (tokens & token) != 0;
+    }
 
-        // Сохраняем в кэш
-        osCache.put(userAgent, os);
-        return os;
+    private static long bit(String token) {
+        return 1L << TOKENS.indexOf(token);
     }
 }
@@ -0,0 +1,9 @@
+package com.threadqa.lms.util;
+
+/**
+ * Результат разбора User-Agent: тип устройства, браузер с версией и операционная система
+ */
+public record DeviceInfo(String deviceType, String browser, String operatingSystem) {
+
+    public static final DeviceInfo UNKNOWN = new DeviceInfo("Unknown", "Unknown", "Unknown");
+}
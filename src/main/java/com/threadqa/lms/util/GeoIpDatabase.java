@@ -0,0 +1,179 @@
+package com.threadqa.lms.util;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Неизменяемая база диапазонов IPv4-адресов.
+ * Диапазоны хранятся в отсортированных примитивных массивах, поиск выполняется бинарным поиском.
+ * <p>
+ * Формат CSV: {@code start_ip,end_ip,country,city}, адреса задаются в виде {@code 1.2.3.4} или числом.
+ * Пустые строки, строки-комментарии ({@code #}) и заголовок пропускаются.
+ */
+public final class GeoIpDatabase {
+
+    public static final GeoIpDatabase EMPTY = new GeoIpDatabase(new long[0], new long[0], new int[0],
+            new String[0], new String[0]);
+
+    private final long[] rangeStarts;
+    private final long[] rangeEnds;
+    private final int[] locationIds;
+    private final String[] cities;
+    private final String[] countries;
+
+    private GeoIpDatabase(long[] rangeStarts, long[] rangeEnds, int[] locationIds,
+                          String[] cities, String[] countries) {
+        this.rangeStarts = rangeStarts;
+        this.rangeEnds = rangeEnds;
+        this.locationIds = locationIds;
+        this.cities = cities;
+        this.countries = countries;
+    }
+
+    /**
+     * Загружает базу из CSV-файла
+     */
+    public static GeoIpDatabase loadCsv(Path path) throws IOException {
+        List<long[]> ranges = new ArrayList<>();
+        List<String> cities = new ArrayList<>();
+        List<String> countries = new ArrayList<>();
+        Map<String, Integer> locationIndex = new HashMap<>();
+
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#") || !Character.isDigit(line.charAt(0))) {
+                    continue;
+                }
+
+                String[] parts = line.split(",", 4);
+                if (parts.length < 4) {
+                    continue;
+                }
+
+                long start = parseIp(parts[0].trim());
+                long end = parseIp(parts[1].trim());
+                if (start < 0 || end < start) {
+                    continue;
+                }
+
+                String country = unquote(parts[2]);
+                String city = unquote(parts[3]);
+                int locationId = locationIndex.computeIfAbsent(country + '\u0000' + city, key -> {
+                    countries.add(country);
+                    cities.add(city);
+                    return cities.size() - 1;
+                });
+
+                ranges.add(new long[]{start, end, locationId});
+            }
+        }
+
+        ranges.sort((a, b) -> Long.compare(a[0], b[0]));
+
+        long[] starts = new long[ranges.size()];
+        long[] ends = new long[ranges.size()];
+        int[] ids = new int[ranges.size()];
+        for (int i = 0; i < ranges.size(); i++) {
+            long[] range = ranges.get(i);
+            starts[i] = range[0];
+            ends[i] = range[1];
+            ids[i] = (int) range[2];
+        }
+
+        return new GeoIpDatabase(starts, ends, ids,
+                cities.toArray(new String[0]), countries.toArray(new String[0]));
+    }
+
+    /**
+     * Возвращает индекс местоположения для IP-адреса или -1, если адрес не найден
+     */
+    public int findLocation(String ipAddress) {
+        long ip = parseIp(ipAddress);
+        if (ip < 0) {
+            return -1;
+        }
+
+        // Ищем последний диапазон, начинающийся не позже адреса
+        int index = Arrays.binarySearch(rangeStarts, ip);
+        if (index < 0) {
+            index = -index - 2;
+        }
+        if (index < 0 || ip > rangeEnds[index]) {
+            return -1;
+        }
+        return locationIds[index];
+    }
+
+    public String getCity(int locationId) {
+        return cities[locationId];
+    }
+
+    public String getCountry(int locationId) {
+        return countries[locationId];
+    }
+
+    public int size() {
+        return rangeStarts.length;
+    }
+
+    /**
+     * Преобразует IPv4-адрес в число. Для некорректных адресов и IPv6 возвращает -1.
+     */
+    static long parseIp(String ipAddress) {
+        if (ipAddress == null || ipAddress.isEmpty()) {
+            return -1;
+        }
+
+        if (ipAddress.indexOf('.') < 0) {
+            try {
+                long value = Long.parseLong(ipAddress);
+                return value >= 0 && value <= 0xFFFFFFFFL ? value : -1;
+            } catch (NumberFormatException e) {
+                return -1;
+            }
+        }
+
+        long result = 0;
+        int octet = 0;
+        int digits = 0;
+        int dots = 0;
+        for (int i = 0; i < ipAddress.length(); i++) {
+            char c = ipAddress.charAt(i);
+            if (c >= '0' && c <= '9') {
+                octet = octet * 10 + (c - '0');
+                if (++digits > 3 || octet > 255) {
+                    return -1;
+                }
+            } else if (c == '.' && digits > 0 && dots < 3) {
+                result = (result << 8) | octet;
+                octet = 0;
+                digits = 0;
+                dots++;
+            } else {
+                return -1;
+            }
+        }
+        if (dots != 3 || digits == 0) {
+            return -1;
+        }
+        return (result << 8) | octet;
+    }
+
+    private static String unquote(String value) {
+        String trimmed = value.trim();
+        if (trimmed.length() >= 2 && trimmed.startsWith("\"") && trimmed.endsWith("\"")) {
+            return trimmed.substring(1, trimmed.length() - 1);
+        }
+        return trimmed;
+    }
+}
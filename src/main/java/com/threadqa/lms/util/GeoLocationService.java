@@ -1,91 +1,103 @@
 package com.threadqa.lms.util;
 
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 
 /**
- * Сервис для определения географического местоположения по IP-адресу
+ * Сервис для определения географического местоположения по IP-адресу.
+ * Использует локальную базу диапазонов IP-адресов, без обращения к внешним API.
  */
 @Slf4j
 @Service
 public class GeoLocationService {
 
-    private final RestTemplate restTemplate;
-    private final Map<String, GeoLocation> cache = new HashMap<>();
+    private static final GeoLocation UNKNOWN = new GeoLocation("Unknown", "Unknown");
+    private static final GeoLocation LOCAL = new GeoLocation("Local", "Local");
 
-    public GeoLocationService() {
-        this.restTemplate = new RestTemplate();
+    private final String databasePath;
+    private final LruCache<String, GeoLocation> cache;
+    private volatile GeoIpDatabase database = GeoIpDatabase.EMPTY;
+
+    public GeoLocationService(@Value("${app.geoip.database-path:}") String databasePath,
+                              @Value("${app.geoip.cache-size:10000}") int cacheSize) {
+        this.databasePath = databasePath;
+        this.cache = new LruCache<>(cacheSize);
+    }
+
+    @PostConstruct
+    public void loadDatabase() {
+        if (databasePath == null || databasePath.isBlank()) {
+            log.warn("База геолокации не задана (app.geoip.database-path), местоположение не будет определяться");
+            return;
+        }
+
+        Path path = Paths.get(databasePath);
+        if (!Files.isReadable(path)) {
+            log.warn("Файл базы геолокации недоступен: {}", path);
+            return;
+        }
+
+        try {
+            database = GeoIpDatabase.loadCsv(path);
+            cache.clear();
+            log.info("Загружена база геолокации: {} диапазонов из {}", database.size(), path);
+        } catch (Exception e) {
+            log.error("Ошибка при загрузке базы геолокации: {}", path, e);
+        }
     }
 
     /**
      * Получает город по IP-адресу
      */
     public String getCity(String ipAddress) {
-        try {
-            GeoLocation location = getGeoLocation(ipAddress);
-            return location != null ? location.getCity() : "Unknown";
-        } catch (Exception e) {
-            log.error("Ошибка при определении города по IP: {}", ipAddress, e);
-            return "Unknown";
-        }
+        return getGeoLocation(ipAddress).getCity();
     }
 
     /**
      * Получает страну по IP-адресу
      */
     public String getCountry(String ipAddress) {
-        try {
-            GeoLocation location = getGeoLocation(ipAddress);
-            return location != null ? location.getCountry() : "Unknown";
-        } catch (Exception e) {
-            log.error("Ошибка при определении страны по IP: {}", ipAddress, e);
-            return "Unknown";
-        }
+        return getGeoLocation(ipAddress).getCountry();
     }
 
     /**
      * Получает полную информацию о местоположении по IP-адресу
      */
     private GeoLocation getGeoLocation(String ipAddress) {
-        // Проверяем кэш
-        if (cache.containsKey(ipAddress)) {
-            return cache.get(ipAddress);
+        if (ipAddress == null || ipAddress.isEmpty()) {
+            return UNKNOWN;
         }
 
         // Для локальных IP-адресов возвращаем заглушку
         if (isLocalIpAddress(ipAddress)) {
-            GeoLocation localLocation = new GeoLocation("Local", "Local");
-            cache.put(ipAddress, localLocation);
-            return localLocation;
+            return LOCAL;
         }
 
-        try {
-            // В реальном приложении здесь был бы запрос к API геолокации
-            // Например: ipstack, ipinfo.io, MaxMind GeoIP и т.д.
-            // String url = "https://api.ipstack.com/" + ipAddress + "?access_key=YOUR_API_KEY";
-            // GeoLocationResponse response = restTemplate.getForObject(url, GeoLocationResponse.class);
-            
-            // Для примера используем заглушку
-            GeoLocation location = new GeoLocation("Moscow", "Russia");
-            cache.put(ipAddress, location);
-            return location;
-        } catch (Exception e) {
-            log.error("Ошибка при запросе геолокации для IP: {}", ipAddress, e);
-            return null;
+        return cache.computeIfAbsent(ipAddress, this::lookup);
+    }
+
+    private GeoLocation lookup(String ipAddress) {
+        GeoIpDatabase current = database;
+        int locationId = current.findLocation(ipAddress);
+        if (locationId < 0) {
+            return UNKNOWN;
         }
+        return new GeoLocation(current.getCity(locationId), current.getCountry(locationId));
     }
 
     /**
      * Проверяет, является ли IP-адрес локальным
      */
     private boolean isLocalIpAddress(String ipAddress) {
-        return ipAddress.startsWith("127.") || 
-               ipAddress.startsWith("192.168.") || 
-               ipAddress.startsWith("10.") || 
+        return ipAddress.startsWith("127.") ||
+               ipAddress.startsWith("192.168.") ||
+               ipAddress.startsWith("10.") ||
                ipAddress.equals("0:0:0:0:0:0:0:1") ||
                ipAddress.equals("localhost");
     }
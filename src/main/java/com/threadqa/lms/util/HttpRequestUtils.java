@@ -0,0 +1,21 @@
+package com.threadqa.lms.util;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * Вспомогательные методы для работы с HTTP-запросами
+ */
+public final class HttpRequestUtils {
+
+    private HttpRequestUtils() {
+    }
+
+    /**
+     * Получает IP-адрес клиента из запроса. Заголовок X-Forwarded-For напрямую не читается:
+     * его разбирает контейнер (server.forward-headers-strategy=native) и учитывает только
+     * от доверенных прокси из server.tomcat.remoteip.internal-proxies.
+     */
+    public static String getClientIp(HttpServletRequest request) {
+        return request.getRemoteAddr();
+    }
+}
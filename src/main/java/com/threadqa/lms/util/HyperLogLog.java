@@ -0,0 +1,135 @@
+package com.threadqa.lms.util;
+
+import java.util.Arrays;
+
+/**
+ * Приближенный подсчет количества различных значений (HyperLogLog).
+ * Память фиксирована: 2^precision однобайтовых регистров, относительная ошибка
+ * около 1.04 / sqrt(2^precision). Скетчи с одинаковой точностью объединяются
+ * поэлементным максимумом, поэтому объединение идемпотентно и не зависит от порядка.
+ * Повторное добавление уже учтенного значения не берет блокировку.
+ */
+public final class HyperLogLog {
+
+    public static final int MIN_PRECISION = 4;
+    public static final int MAX_PRECISION = 16;
+
+    private final int precision;
+    private final byte[] registers;
+
+    public HyperLogLog(int precision) {
+        if (precision < MIN_PRECISION || precision > MAX_PRECISION) {
+            throw new IllegalArgumentException("Precision must be between " + MIN_PRECISION + " and " + MAX_PRECISION);
+        }
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+    }
+
+    private HyperLogLog(int precision, byte[] registers) {
+        this.precision = precision;
+        this.registers = registers;
+    }
+
+    /**
+     * Восстанавливает скетч из регистров; точность определяется длиной массива
+     */
+    public static HyperLogLog fromBytes(byte[] bytes) {
+        int precision = Integer.numberOfTrailingZeros(bytes.length);
+        if (bytes.length != 1 << precision || precision < MIN_PRECISION || precision > MAX_PRECISION) {
+            throw new IllegalArgumentException("Invalid sketch size: " + bytes.length);
+        }
+        return new HyperLogLog(precision, bytes.clone());
+    }
+
+    public int getPrecision() {
+        return precision;
+    }
+
+    /**
+     * Добавляет значение
+     *
+     * @return true, если скетч изменился
+     */
+    public boolean add(long value) {
+        long hash = mix(value);
+        int index = (int) (hash >>> (64 - precision));
+        // Ограничивающий бит не дает рангу выйти за пределы оставшихся 64 - precision бит
+        byte rank = (byte) (Long.numberOfLeadingZeros((hash << precision) | (1L << (precision - 1))) + 1);
+        if (registers[index] >= rank) {
+            return false;
+        }
+        synchronized (this) {
+            if (registers[index] >= rank) {
+                return false;
+            }
+            registers[index] = rank;
+            return true;
+        }
+    }
+
+    /**
+     * Объединяет с другим скетчем той же точности
+     */
+    public synchronized void merge(HyperLogLog other) {
+        if (other.precision != precision) {
+            throw new IllegalArgumentException("Cannot merge sketches with different precision");
+        }
+        byte[] source = other.toBytes();
+        for (int i = 0; i < registers.length; i++) {
+            if (source[i] > registers[i]) {
+                registers[i] = source[i];
+            }
+        }
+    }
+
+    /**
+     * Оценка количества различных значений
+     */
+    public synchronized long estimate() {
+        int m = registers.length;
+        double sum = 0;
+        int zeros = 0;
+        for (byte register : registers) {
+            sum += 1.0 / (1L << register);
+            if (register == 0) {
+                zeros++;
+            }
+        }
+
+        double estimate = alpha(m) * m * m / sum;
+        if (estimate <= 2.5 * m && zeros > 0) {
+            // Для малых значений точнее линейный подсчет по пустым регистрам
+            estimate = m * Math.log((double) m / zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    /**
+     * Копия регистров для сохранения
+     */
+    public synchronized byte[] toBytes() {
+        return Arrays.copyOf(registers, registers.length);
+    }
+
+    private static double alpha(int m) {
+        return switch (m) {
+            case 16 -> 0.673;
+            case 32 -> 0.697;
+            case 64 -> 0.709;
+            default -> 0.7213 / (1 + 1.079 / m);
+        };
+    }
+
+    /**
+     * Финализатор MurmurHash3: равномерно распределяет биты последовательных идентификаторов
+     */
+    private static long mix(long value) {
+        long hash = value;
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb93fe53c1a4fL;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,135 @@
+package com.threadqa.lms.util;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+
+/**
+ * Потокобезопасный LRU-кэш ограниченного размера с необязательным временем жизни записей.
+ * При переполнении вытесняется запись, к которой дольше всего не обращались.
+ */
+public class LruCache<K, V> {
+
+    private final int maxSize;
+    private final long ttlNanos;
+    private final BiConsumer<K, V> evictionListener;
+    private final LinkedHashMap<K, Entry<V>> entries;
+
+    public LruCache(int maxSize) {
+        this(maxSize, Duration.ZERO, null);
+    }
+
+    public LruCache(int maxSize, Duration ttl) {
+        this(maxSize, ttl, null);
+    }
+
+    /**
+     * @param maxSize максимальное количество записей
+     * @param ttl время жизни записи, {@link Duration#ZERO} - без ограничения
+     * @param evictionListener вызывается при вытеснении или истечении записи (может быть null)
+     */
+    public LruCache(int maxSize, Duration ttl, BiConsumer<K, V> evictionListener) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Размер кэша должен быть положительным");
+        }
+        this.maxSize = maxSize;
+        this.ttlNanos = ttl.toNanos();
+        this.evictionListener = evictionListener;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                if (size() > LruCache.this.maxSize) {
+                    notifyEviction(eldest.getKey(), eldest.getValue().value);
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Возвращает значение по ключу или null, если записи нет или она устарела
+     */
+    public synchronized V get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (isExpired(entry)) {
+            entries.remove(key);
+            notifyEviction(key, entry.value);
+            return null;
+        }
+        return entry.value;
+    }
+
+    public synchronized void put(K key, V value) {
+        entries.put(key, new Entry<>(value, System.nanoTime()));
+    }
+
+    /**
+     * Возвращает значение из кэша или вычисляет его. Загрузка выполняется вне блокировки,
+     * поэтому при гонке значение может быть вычислено несколько раз.
+     */
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> loader) {
+        V value = get(key);
+        if (value != null) {
+            return value;
+        }
+        value = loader.apply(key);
+        if (value != null) {
+            put(key, value);
+        }
+        return value;
+    }
+
+    public synchronized V remove(K key) {
+        Entry<V> entry = entries.remove(key);
+        return entry != null ? entry.value : null;
+    }
+
+    /**
+     * Удаляет все записи, удовлетворяющие условию
+     */
+    public synchronized void removeIf(BiPredicate<? super K, ? super V> predicate) {
+        Iterator<Map.Entry<K, Entry<V>>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<K, Entry<V>> entry = iterator.next();
+            if (predicate.test(entry.getKey(), entry.getValue().value)) {
+                iterator.remove();
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private boolean isExpired(Entry<V> entry) {
+        return ttlNanos > 0 && System.nanoTime() - entry.createdAt > ttlNanos;
+    }
+
+    private void notifyEviction(K key, V value) {
+        if (evictionListener != null) {
+            evictionListener.accept(key, value);
+        }
+    }
+
+    private static final class Entry<V> {
+        private final V value;
+        private final long createdAt;
+
+        private Entry(V value, long createdAt) {
+            this.value = value;
+            this.createdAt = createdAt;
+        }
+    }
+}
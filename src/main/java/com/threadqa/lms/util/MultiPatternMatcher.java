@@ -0,0 +1,110 @@
+package com.threadqa.lms.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+
+/**
+ * Поиск набора подстрок за один проход по тексту (автомат Ахо-Корасик).
+ * Сравнение регистронезависимое для ASCII, поддерживается до 64 шаблонов:
+ * результатом поиска является битовая маска найденных шаблонов.
+ */
+public final class MultiPatternMatcher {
+
+    private static final int ALPHABET = 128;
+
+    private final int[][] transitions;
+    private final long[] outputs;
+
+    public MultiPatternMatcher(List<String> patterns) {
+        if (patterns.size() > Long.SIZE) {
+            throw new IllegalArgumentException("Поддерживается не более 64 шаблонов");
+        }
+
+        // Строим бор
+        List<int[]> trie = new ArrayList<>();
+        List<Long> out = new ArrayList<>();
+        trie.add(newState());
+        out.add(0L);
+        for (int i = 0; i < patterns.size(); i++) {
+            int state = 0;
+            for (char c : patterns.get(i).toCharArray()) {
+                int symbol = symbol(c);
+                if (symbol < 0) {
+                    throw new IllegalArgumentException("Шаблон должен состоять из ASCII-символов: " + patterns.get(i));
+                }
+                if (trie.get(state)[symbol] < 0) {
+                    trie.get(state)[symbol] = trie.size();
+                    trie.add(newState());
+                    out.add(0L);
+                }
+                state = trie.get(state)[symbol];
+            }
+            out.set(state, out.get(state) | (1L << i));
+        }
+
+        int[][] delta = trie.toArray(new int[0][]);
+        long[] output = new long[delta.length];
+        for (int i = 0; i < output.length; i++) {
+            output[i] = out.get(i);
+        }
+
+        // Достраиваем переходы по суффиксным ссылкам, превращая бор в детерминированный автомат
+        int[] fail = new int[delta.length];
+        Queue<Integer> queue = new ArrayDeque<>();
+        for (int symbol = 0; symbol < ALPHABET; symbol++) {
+            int next = delta[0][symbol];
+            if (next < 0) {
+                delta[0][symbol] = 0;
+            } else {
+                fail[next] = 0;
+                queue.add(next);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            output[state] |= output[fail[state]];
+            for (int symbol = 0; symbol < ALPHABET; symbol++) {
+                int next = delta[state][symbol];
+                if (next < 0) {
+                    delta[state][symbol] = delta[fail[state]][symbol];
+                } else {
+                    fail[next] = delta[fail[state]][symbol];
+                    queue.add(next);
+                }
+            }
+        }
+
+        this.transitions = delta;
+        this.outputs = output;
+    }
+
+    /**
+     * Возвращает битовую маску шаблонов, встречающихся в тексте (бит i - шаблон с индексом i)
+     */
+    public long match(CharSequence text) {
+        long found = 0;
+        int state = 0;
+        for (int i = 0; i < text.length(); i++) {
+            int symbol = symbol(text.charAt(i));
+            state = symbol < 0 ? 0 : transitions[state][symbol];
+            found |= outputs[state];
+        }
+        return found;
+    }
+
+    private static int[] newState() {
+        int[] state = new int[ALPHABET];
+        Arrays.fill(state, -1);
+        return state;
+    }
+
+    private static int symbol(char c) {
+        if (c >= ALPHABET) {
+            return -1;
+        }
+        return c >= 'A' && c <= 'Z' ? c + ('a' - 'A') : c;
+    }
+}
@@ -0,0 +1,227 @@
+package com.threadqa.lms.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Потокобезопасный индекс очков с порядковой статистикой (декартово дерево с размерами поддеревьев).
+ * Записи упорядочены по убыванию очков, при равенстве - по возрастанию идентификатора.
+ * Изменение очков, получение места и страницы лидеров выполняются за O(log n).
+ * Место считается как в RANK(): количество записей с большим числом очков плюс один.
+ */
+public class RankedScoreIndex {
+
+    private final Map<Long, Integer> scores = new HashMap<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private Node root;
+
+    public record Entry(long id, int score, int rank) {
+    }
+
+    /**
+     * Прибавляет delta к очкам записи, создавая ее при необходимости
+     */
+    public void add(long id, int delta) {
+        lock.writeLock().lock();
+        try {
+            Integer current = scores.get(id);
+            put(id, current, current != null ? current + delta : delta);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Устанавливает очки записи
+     */
+    public void set(long id, int score) {
+        lock.writeLock().lock();
+        try {
+            put(id, scores.get(id), score);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            scores.clear();
+            root = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return scores.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Возвращает запись с местом или null, если записи нет
+     */
+    public Entry get(long id) {
+        lock.readLock().lock();
+        try {
+            Integer score = scores.get(id);
+            return score != null ? new Entry(id, score, countGreater(score) + 1) : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Возвращает не больше limit записей, начиная с позиции offset (с нуля)
+     */
+    public List<Entry> page(int offset, int limit) {
+        lock.readLock().lock();
+        try {
+            int end = (int) Math.min((long) offset + limit, size(root));
+            List<Entry> result = new ArrayList<>(Math.max(end - offset, 0));
+            int rank = 0;
+            for (int position = offset; position < end; position++) {
+                Node node = select(position);
+                if (result.isEmpty()) {
+                    rank = countGreater(node.score) + 1;
+                } else if (node.score != result.get(result.size() - 1).score()) {
+                    rank = position + 1;
+                }
+                result.add(new Entry(node.id, node.score, rank));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void put(long id, Integer oldScore, int newScore) {
+        if (oldScore != null) {
+            Node[] split = splitBefore(root, oldScore, id);
+            Node[] rest = splitBySize(split[1], 1);
+            root = merge(split[0], rest[1]);
+        }
+        Node node = new Node(id, newScore, ThreadLocalRandom.current().nextInt());
+        Node[] split = splitBefore(root, newScore, id);
+        root = merge(merge(split[0], node), split[1]);
+        scores.put(id, newScore);
+    }
+
+    private int countGreater(int score) {
+        int count = 0;
+        Node node = root;
+        while (node != null) {
+            if (node.score > score) {
+                count += size(node.left) + 1;
+                node = node.right;
+            } else {
+                node = node.left;
+            }
+        }
+        return count;
+    }
+
+    private Node select(int position) {
+        Node node = root;
+        while (node != null) {
+            int leftSize = size(node.left);
+            if (position < leftSize) {
+                node = node.left;
+            } else if (position == leftSize) {
+                return node;
+            } else {
+                position -= leftSize + 1;
+                node = node.right;
+            }
+        }
+        throw new IndexOutOfBoundsException();
+    }
+
+    /**
+     * Делит дерево на записи, стоящие раньше (score, id), и все остальные
+     */
+    private static Node[] splitBefore(Node node, int score, long id) {
+        if (node == null) {
+            return new Node[]{null, null};
+        }
+        if (node.score > score || node.score == score && node.id < id) {
+            Node[] split = splitBefore(node.right, score, id);
+            node.right = split[0];
+            node.update();
+            return new Node[]{node, split[1]};
+        }
+        Node[] split = splitBefore(node.left, score, id);
+        node.left = split[1];
+        node.update();
+        return new Node[]{split[0], node};
+    }
+
+    /**
+     * Делит дерево на первые count записей и остальные
+     */
+    private static Node[] splitBySize(Node node, int count) {
+        if (node == null) {
+            return new Node[]{null, null};
+        }
+        int leftSize = size(node.left);
+        if (count <= leftSize) {
+            Node[] split = splitBySize(node.left, count);
+            node.left = split[1];
+            node.update();
+            return new Node[]{split[0], node};
+        }
+        Node[] split = splitBySize(node.right, count - leftSize - 1);
+        node.right = split[0];
+        node.update();
+        return new Node[]{node, split[1]};
+    }
+
+    private static Node merge(Node left, Node right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            left.update();
+            return left;
+        }
+        right.left = merge(left, right.left);
+        right.update();
+        return right;
+    }
+
+    private static int size(Node node) {
+        return node != null ? node.size : 0;
+    }
+
+    private static final class Node {
+
+        private final long id;
+        private final int score;
+        private final int priority;
+        private int size = 1;
+        private Node left;
+        private Node right;
+
+        private Node(long id, int score, int priority) {
+            this.id = id;
+            this.score = score;
+            this.priority = priority;
+        }
+
+        private void update() {
+            size = size(left) + size(right) + 1;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.threadqa.lms.util;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Ограниченная очередь без блокировок на кольцевом буфере (алгоритм Д. Вьюкова).
+ * У каждой ячейки есть номер последовательности, по которому производители и потребители
+ * через CAS определяют, свободна ли ячейка для записи или готова для чтения.
+ * Вместимость округляется вверх до степени двойки. Если буфер заполнен, offer сразу возвращает false.
+ */
+public final class RingBuffer<E> {
+
+    private final int mask;
+    private final AtomicReferenceArray<E> items;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong head = new AtomicLong();
+
+    public RingBuffer(int capacity) {
+        if (capacity < 2 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Capacity must be between 2 and 2^30");
+        }
+        int size = Integer.highestOneBit(capacity - 1) << 1;
+        this.mask = size - 1;
+        this.items = new AtomicReferenceArray<>(size);
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * Добавляет элемент в конец очереди
+     *
+     * @return false, если буфер заполнен
+     */
+    public boolean offer(E item) {
+        if (item == null) {
+            throw new NullPointerException();
+        }
+        long position = tail.get();
+        while (true) {
+            int index = (int) (position & mask);
+            long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    items.set(index, item);
+                    // Публикуем элемент для потребителя
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    /**
+     * Извлекает элемент из начала очереди
+     *
+     * @return null, если очередь пуста
+     */
+    public E poll() {
+        long position = head.get();
+        while (true) {
+            int index = (int) (position & mask);
+            long difference = sequences.get(index) - (position + 1);
+            if (difference == 0) {
+                if (head.compareAndSet(position, position + 1)) {
+                    E item = items.get(index);
+                    items.set(index, null);
+                    // Освобождаем ячейку для следующего круга производителей
+                    sequences.set(index, position + mask + 1);
+                    return item;
+                }
+                position = head.get();
+            } else if (difference < 0) {
+                return null;
+            } else {
+                position = head.get();
+            }
+        }
+    }
+
+    /**
+     * Извлекает до maxItems элементов в переданную коллекцию
+     *
+     * @return количество извлеченных элементов
+     */
+    public int drainTo(Collection<? super E> target, int maxItems) {
+        int drained = 0;
+        E item;
+        while (drained < maxItems && (item = poll()) != null) {
+            target.add(item);
+            drained++;
+        }
+        return drained;
+    }
+
+    /**
+     * Приблизительное количество элементов в очереди
+     */
+    public int size() {
+        long size = tail.get() - head.get();
+        return (int) Math.max(0, Math.min(size, capacity()));
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+}
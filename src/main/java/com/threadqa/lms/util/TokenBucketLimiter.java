@@ -0,0 +1,101 @@
+package com.threadqa.lms.util;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Ограничение частоты по ключу (алгоритм token bucket): у каждого ключа свой бакет
+ * емкостью capacity, который пополняется на refillPerMinute токенов в минуту.
+ * Состояние каждого бакета обновляется через CAS, без блокировок.
+ * Восстановившиеся бакеты нужно периодически удалять через {@link #evictFull()}.
+ * Количество бакетов ограничено maxKeys: если места нет и после удаления восстановившихся,
+ * запросы по новым ключам отклоняются.
+ */
+public final class TokenBucketLimiter<K> {
+
+    private final double capacity;
+    private final double tokensPerNano;
+    private final int maxKeys;
+    private final Map<K, TokenBucket> buckets = new ConcurrentHashMap<>();
+    private final AtomicLong lastEvictionAt = new AtomicLong(System.nanoTime());
+
+    public TokenBucketLimiter(int capacity, int refillPerMinute, int maxKeys) {
+        this.capacity = capacity;
+        this.tokensPerNano = refillPerMinute / (double) TimeUnit.MINUTES.toNanos(1);
+        this.maxKeys = maxKeys;
+    }
+
+    /**
+     * Забирает токен из бакета ключа
+     *
+     * @return false, если токенов не осталось
+     */
+    public boolean tryConsume(K key) {
+        TokenBucket bucket = buckets.get(key);
+        if (bucket == null) {
+            if (buckets.size() >= maxKeys && !makeRoom()) {
+                return false;
+            }
+            bucket = buckets.computeIfAbsent(key, k -> new TokenBucket(capacity));
+        }
+        return bucket.tryConsume(capacity, tokensPerNano);
+    }
+
+    /**
+     * Удаляет полностью восстановившиеся бакеты, чтобы карта не росла бесконечно
+     */
+    public void evictFull() {
+        long now = System.nanoTime();
+        buckets.values().removeIf(bucket -> bucket.available(now, capacity, tokensPerNano) >= capacity);
+    }
+
+    /**
+     * Удаляет восстановившиеся бакеты, когда карта заполнена. Полный обход выполняется
+     * не чаще раза в секунду, чтобы поток новых ключей не превращал каждый запрос в обход карты.
+     */
+    private boolean makeRoom() {
+        long now = System.nanoTime();
+        long last = lastEvictionAt.get();
+        if (now - last >= TimeUnit.SECONDS.toNanos(1) && lastEvictionAt.compareAndSet(last, now)) {
+            evictFull();
+        }
+        return buckets.size() < maxKeys;
+    }
+
+    private static final class TokenBucket {
+
+        private final AtomicReference<State> state;
+
+        private TokenBucket(double capacity) {
+            this.state = new AtomicReference<>(new State(capacity, System.nanoTime()));
+        }
+
+        private boolean tryConsume(double capacity, double tokensPerNano) {
+            while (true) {
+                State current = state.get();
+                long now = System.nanoTime();
+                double tokens = refill(current, now, capacity, tokensPerNano);
+                if (tokens < 1) {
+                    return false;
+                }
+                if (state.compareAndSet(current, new State(tokens - 1, now))) {
+                    return true;
+                }
+            }
+        }
+
+        private double available(long now, double capacity, double tokensPerNano) {
+            return refill(state.get(), now, capacity, tokensPerNano);
+        }
+
+        private static double refill(State state, long now, double capacity, double tokensPerNano) {
+            return Math.min(capacity, state.tokens() + Math.max(0, now - state.updatedAt()) * tokensPerNano);
+        }
+
+        private record State(double tokens, long updatedAt) {
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.threadqa.lms.util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+
+/**
+ * Хэширование токенов для использования в качестве ключей кэшей, чтобы не держать сами токены в памяти
+ */
+public final class TokenHashUtils {
+
+    private TokenHashUtils() {
+    }
+
+    /**
+     * SHA-256 хэш токена в Base64
+     */
+    public static String sha256(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] bytes = digest.digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(bytes);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 недоступен", e);
+        }
+    }
+}
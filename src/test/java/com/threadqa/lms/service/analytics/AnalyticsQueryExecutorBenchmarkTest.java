@@ -0,0 +1,185 @@
+package com.threadqa.lms.service.analytics;
+
+import com.threadqa.lms.dto.analytics.CourseAnalyticsResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.telegram.telegrambots.meta.TelegramBotsApi;
+
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Сравнивает getCourseAnalytics с параллельным выполнением запросов и с пулом из одного потока
+ * на 1 млн зачислений. Нужна отдельная БД PostgreSQL:
+ * LMS_BENCHMARK_JDBC_URL, LMS_BENCHMARK_USERNAME, LMS_BENCHMARK_PASSWORD.
+ * Данные создаются в таблицах приложения и переиспользуются между запусками.
+ * Время только выводится в лог: на общем стенде сравнение не годится для проверки.
+ */
+@Slf4j
+@Tag("benchmark")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@EnabledIfEnvironmentVariable(named = "LMS_BENCHMARK_JDBC_URL", matches = ".+")
+@SpringBootTest(properties = {
+        "spring.jpa.hibernate.ddl-auto=update",
+        "spring.datasource.hikari.maximum-pool-size=16",
+        "app.analytics.query.pool-size=" + AnalyticsQueryExecutorBenchmarkTest.POOL_SIZE,
+        "app.analytics.query.timeout-ms=" + AnalyticsQueryExecutorBenchmarkTest.TIMEOUT_MS
+})
+class AnalyticsQueryExecutorBenchmarkTest {
+
+    static final int POOL_SIZE = 8;
+    static final long TIMEOUT_MS = 60_000;
+
+    private static final int STUDENTS = 50_000;
+    private static final int COURSES = 20;
+    private static final String INSTRUCTOR_EMAIL = "benchmark-instructor@lms.local";
+    private static final int WARMUP_RUNS = 3;
+    private static final int MEASURED_RUNS = 7;
+
+    @MockBean
+    private TelegramBotsApi telegramBotsApi;
+
+    @Autowired
+    private AnalyticsService analyticsService;
+
+    @Autowired
+    private AnalyticsQueryExecutor queryExecutor;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private ThreadPoolTaskExecutor singleThread;
+    private AnalyticsQueryExecutor sequentialExecutor;
+    private long instructorId;
+    private long courseId;
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> System.getenv("LMS_BENCHMARK_JDBC_URL"));
+        registry.add("spring.datasource.username", () -> System.getenv("LMS_BENCHMARK_USERNAME"));
+        registry.add("spring.datasource.password", () -> System.getenv("LMS_BENCHMARK_PASSWORD"));
+    }
+
+    @BeforeAll
+    void setUp() {
+        seed();
+        instructorId = jdbcTemplate.queryForObject("SELECT id FROM users WHERE email = ?", Long.class, INSTRUCTOR_EMAIL);
+        courseId = jdbcTemplate.queryForObject("SELECT MIN(id) FROM courses WHERE instructor_id = ?", Long.class,
+                instructorId);
+
+        // Тот же исполнитель, но запросы идут по одному: так getCourseAnalytics работал до распараллеливания
+        singleThread = new ThreadPoolTaskExecutor();
+        singleThread.setCorePoolSize(1);
+        singleThread.setMaxPoolSize(1);
+        singleThread.setQueueCapacity(100);
+        singleThread.setThreadNamePrefix("LmsAnalyticsBenchmark-");
+        singleThread.initialize();
+        sequentialExecutor = new AnalyticsQueryExecutor(singleThread, transactionManager,
+                new SimpleMeterRegistry(), TIMEOUT_MS);
+    }
+
+    @AfterAll
+    void tearDown() {
+        if (singleThread != null) {
+            singleThread.shutdown();
+        }
+    }
+
+    @Test
+    void courseAnalyticsSequentialVsParallel() {
+        for (int i = 0; i < WARMUP_RUNS; i++) {
+            run(sequentialExecutor);
+            run(queryExecutor);
+        }
+
+        long[] sequential = new long[MEASURED_RUNS];
+        long[] parallel = new long[MEASURED_RUNS];
+        CourseAnalyticsResponse sequentialResult = null;
+        CourseAnalyticsResponse parallelResult = null;
+        for (int i = 0; i < MEASURED_RUNS; i++) {
+            long start = System.nanoTime();
+            sequentialResult = run(sequentialExecutor);
+            sequential[i] = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            parallelResult = run(queryExecutor);
+            parallel[i] = System.nanoTime() - start;
+        }
+
+        log.info("getCourseAnalytics на {} зачислениях курса из {}, пул {}: последовательно {} мс, параллельно {} мс",
+                sequentialResult.getEnrollmentCount(), STUDENTS * COURSES, POOL_SIZE,
+                median(sequential) / 1_000_000, median(parallel) / 1_000_000);
+
+        assertThat(sequentialResult.getPartial()).as("последовательный расчет не уложился в бюджет").isFalse();
+        assertThat(parallelResult.getPartial()).as("параллельный расчет не уложился в бюджет").isFalse();
+        assertThat(parallelResult).as("результаты расчетов различаются").isEqualTo(sequentialResult);
+    }
+
+    private CourseAnalyticsResponse run(AnalyticsQueryExecutor executor) {
+        Object target = AopTestUtils.getTargetObject(analyticsService);
+        ReflectionTestUtils.setField(target, "queryExecutor", executor);
+        try {
+            return analyticsService.getCourseAnalytics(courseId, instructorId);
+        } finally {
+            ReflectionTestUtils.setField(target, "queryExecutor", queryExecutor);
+        }
+    }
+
+    private void seed() {
+        Long existing = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM course_enrollments e JOIN courses c ON c.id = e.course_id " +
+                "JOIN users u ON u.id = c.instructor_id WHERE u.email = ?", Long.class, INSTRUCTOR_EMAIL);
+        if (existing != null && existing == (long) STUDENTS * COURSES) {
+            return;
+        }
+
+        jdbcTemplate.update("DELETE FROM course_enrollments WHERE course_id IN " +
+                "(SELECT c.id FROM courses c JOIN users u ON u.id = c.instructor_id WHERE u.email = ?)", INSTRUCTOR_EMAIL);
+        jdbcTemplate.update("DELETE FROM courses WHERE instructor_id IN (SELECT id FROM users WHERE email = ?)",
+                INSTRUCTOR_EMAIL);
+        jdbcTemplate.update("DELETE FROM users WHERE email LIKE 'benchmark-%@lms.local'");
+
+        jdbcTemplate.update("INSERT INTO users (email, password, first_name, last_name, is_active, is_email_verified, " +
+                "created_at, updated_at) SELECT CASE WHEN g = 0 THEN ? ELSE 'benchmark-student-' || g || '@lms.local' END, " +
+                "'benchmark', 'Benchmark', 'User ' || g, true, true, now(), now() FROM generate_series(0, ?) g",
+                INSTRUCTOR_EMAIL, STUDENTS);
+        jdbcTemplate.update("INSERT INTO courses (title, is_published, is_featured, created_at, updated_at, " +
+                "instructor_id, level, language) SELECT 'Benchmark course ' || g, true, false, now(), now(), u.id, " +
+                "'BEGINNER', 'ru' FROM generate_series(1, ?) g CROSS JOIN users u WHERE u.email = ?",
+                COURSES, INSTRUCTOR_EMAIL);
+        jdbcTemplate.update("INSERT INTO course_enrollments (user_id, course_id, enrolled_at, completed_at, progress, " +
+                "is_active) SELECT s.id, c.id, now() - ((s.id + c.id) % 730) * interval '1 day', " +
+                "CASE WHEN s.id % 3 = 0 THEN now() - ((s.id + c.id) % 365) * interval '1 day' END, s.id % 101, true " +
+                "FROM users s CROSS JOIN courses c JOIN users i ON i.id = c.instructor_id " +
+                "WHERE s.email LIKE 'benchmark-student-%@lms.local' AND i.email = ?", INSTRUCTOR_EMAIL);
+        jdbcTemplate.execute("ANALYZE users");
+        jdbcTemplate.execute("ANALYZE courses");
+        jdbcTemplate.execute("ANALYZE course_enrollments");
+    }
+
+    private static long median(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+}
@@ -0,0 +1,85 @@
+package com.threadqa.lms.util;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.List;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Сравнивает разбор User-Agent одним проходом автомата с прежней цепочкой contains и регулярных выражений.
+ * Каждая строка уникальна, поэтому оба варианта действительно разбирают ее, а не берут из кэша.
+ * Запуск: mvn test -Dtest=DeviceDetectionBenchmarkTest -Dlms.benchmark=true
+ */
+@Slf4j
+@Tag("benchmark")
+@EnabledIfSystemProperty(named = "lms.benchmark", matches = "true")
+class DeviceDetectionBenchmarkTest {
+
+    private static final List<String> USER_AGENTS = List.of(
+            "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/122.0.0.0 Safari/537.36",
+            "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/122.0.0.0 Safari/537.36 Edg/122.0.2365.66",
+            "Mozilla/5.0 (Windows NT 6.1; Win64; x64; rv:109.0) Gecko/20100101 Firefox/115.0",
+            "Mozilla/5.0 (Macintosh; Intel Mac OS X 10_15_7) AppleWebKit/605.1.15 (KHTML, like Gecko) Version/17.3 Safari/605.1.15",
+            "Mozilla/5.0 (iPhone; CPU iPhone OS 17_3 like Mac OS X) AppleWebKit/605.1.15 (KHTML, like Gecko) Version/17.3 Mobile/15E148 Safari/604.1",
+            "Mozilla/5.0 (Linux; Android 14; Pixel 8) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/122.0.6261.64 Mobile Safari/537.36",
+            "Mozilla/5.0 (Linux; Android 10; Tablet) AppleWebKit/537.36 Chrome/100.0 Safari/537.36",
+            "Mozilla/5.0 (Windows NT 6.3; Trident/7.0; rv:11.0) like Gecko",
+            "Opera/9.80 (Windows NT 6.1; U; en) Presto/2.12.388 Version/12.18",
+            "Mozilla/5.0 (X11; Ubuntu; Linux x86_64; rv:123.0) Gecko/20100101 Firefox/123.0"
+    );
+
+    private static final int DISTINCT_USER_AGENTS = 200_000;
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int MEASURED_ROUNDS = 10;
+
+    @Test
+    void singlePassMatcherAgainstRegexChain() {
+        String[] userAgents = new String[DISTINCT_USER_AGENTS];
+        for (int i = 0; i < userAgents.length; i++) {
+            userAgents[i] = USER_AGENTS.get(i % USER_AGENTS.size()) + " build/" + i;
+        }
+
+        LegacyDeviceDetection legacy = new LegacyDeviceDetection();
+        DeviceDetectionService service = new DeviceDetectionService(1);
+
+        for (String userAgent : USER_AGENTS) {
+            assertThat(service.detect(userAgent)).as(userAgent).isEqualTo(legacy.detect(userAgent));
+        }
+
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            run(userAgents, legacy::detect);
+            run(userAgents, service::detect);
+        }
+
+        long legacyNanos = Long.MAX_VALUE;
+        long singlePassNanos = Long.MAX_VALUE;
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            legacyNanos = Math.min(legacyNanos, run(userAgents, legacy::detect));
+            singlePassNanos = Math.min(singlePassNanos, run(userAgents, service::detect));
+        }
+
+        log.info("Разбор User-Agent, лучший из {} проходов по {} строк: цепочка regex {} нс/строка, один проход {} нс/строка",
+                MEASURED_ROUNDS, userAgents.length,
+                legacyNanos / userAgents.length, singlePassNanos / userAgents.length);
+    }
+
+    /**
+     * @return время прохода в наносекундах
+     */
+    private static long run(String[] userAgents, Function<String, DeviceInfo> detector) {
+        int checksum = 0;
+        long start = System.nanoTime();
+        for (String userAgent : userAgents) {
+            checksum += detector.apply(userAgent).browser().length();
+        }
+        long elapsed = System.nanoTime() - start;
+        // Результат используется, чтобы JIT не выбросил вызовы
+        assertThat(checksum).isPositive();
+        return elapsed;
+    }
+}
@@ -0,0 +1,70 @@
+package com.threadqa.lms.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Ожидаемые значения получены прежней реализацией на подстроках (до разбора за один проход),
+ * включая ее особенности: например, iPhone и iPad определяются как macOS по "like Mac OS X".
+ */
+class DeviceDetectionServiceTest {
+
+    private final DeviceDetectionService service = new DeviceDetectionService(100);
+
+    @ParameterizedTest
+    @CsvSource(delimiter = '|', value = {
+            "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/122.0.0.0 Safari/537.36" +
+                    " | Desktop | Chrome 122.0 | Windows 10",
+            "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/122.0.0.0 Safari/537.36 Edg/122.0.2365.66" +
+                    " | Desktop | Edge 122.0 | Windows 10",
+            "Mozilla/5.0 (Windows NT 6.1; Win64; x64; rv:109.0) Gecko/20100101 Firefox/115.0" +
+                    " | Desktop | Firefox 115.0 | Windows 7",
+            "Mozilla/5.0 (Macintosh; Intel Mac OS X 10_15_7) AppleWebKit/605.1.15 (KHTML, like Gecko) Version/17.3 Safari/605.1.15" +
+                    " | Desktop | Safari 17.3 | macOS",
+            "Mozilla/5.0 (X11; Linux x86_64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/121.0.0.0 Safari/537.36 OPR/107.0.0.0" +
+                    " | Desktop | Chrome 121.0 | Linux",
+            "Mozilla/5.0 (iPhone; CPU iPhone OS 17_3 like Mac OS X) AppleWebKit/605.1.15 (KHTML, like Gecko) Version/17.3 Mobile/15E148 Safari/604.1" +
+                    " | Mobile | Safari 17.3 | macOS",
+            "Mozilla/5.0 (iPad; CPU OS 16_6 like Mac OS X) AppleWebKit/605.1.15 (KHTML, like Gecko) Version/16.6 Mobile/15E148 Safari/604.1" +
+                    " | Mobile | Safari 16.6 | macOS",
+            "Mozilla/5.0 (Linux; Android 14; Pixel 8) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/122.0.6261.64 Mobile Safari/537.36" +
+                    " | Mobile | Chrome 122.0 | Android",
+            "Mozilla/5.0 (Linux; Android 9; KFTRWI) AppleWebKit/537.36 (KHTML, like Gecko) Silk/120.4.1 like Chrome/120.0.6099.230 Safari/537.36" +
+                    " | Mobile | Chrome 120.0 | Android",
+            "Mozilla/5.0 (Linux; Android 10; Tablet) AppleWebKit/537.36 Chrome/100.0 Safari/537.36" +
+                    " | Tablet | Chrome 100.0 | Android",
+            "Mozilla/5.0 (Windows NT 6.3; Trident/7.0; rv:11.0) like Gecko" +
+                    " | Desktop | Internet Explorer 11.0 | Windows 8.1",
+            "Mozilla/4.0 (compatible; MSIE 8.0; Windows NT 6.2; Trident/4.0)" +
+                    " | Desktop | Internet Explorer 8.0 | Windows 8",
+            "Opera/9.80 (Windows NT 6.1; U; en) Presto/2.12.388 Version/12.18" +
+                    " | Desktop | Opera 9.80 | Windows 7",
+            "Mozilla/5.0 (X11; Ubuntu; Linux x86_64; rv:123.0) Gecko/20100101 Firefox/123.0" +
+                    " | Desktop | Firefox 123.0 | Linux",
+            "curl/8.4.0 | Desktop | Unknown | Unknown"
+    })
+    void detectsSameValuesAsSubstringClassifier(String userAgent, String deviceType, String browser,
+                                                 String operatingSystem) {
+        DeviceInfo info = service.detect(userAgent);
+
+        assertThat(info).isEqualTo(new DeviceInfo(deviceType, browser, operatingSystem));
+        assertThat(service.getDeviceType(userAgent)).isEqualTo(deviceType);
+        assertThat(service.getBrowser(userAgent)).isEqualTo(browser);
+        assertThat(service.getOperatingSystem(userAgent)).isEqualTo(operatingSystem);
+    }
+
+    @Test
+    void returnsUnknownForMissingUserAgent() {
+        assertThat(service.detect(null)).isEqualTo(DeviceInfo.UNKNOWN);
+        assertThat(service.detect("")).isEqualTo(DeviceInfo.UNKNOWN);
+    }
+
+    @Test
+    void matchesTokensCaseInsensitively() {
+        assertThat(service.detect("MOZILLA/5.0 (WINDOWS NT 10.0) FIREFOX/120.0"))
+                .isEqualTo(new DeviceInfo("Desktop", "Firefox", "Windows 10"));
+    }
+}
@@ -0,0 +1,128 @@
+package com.threadqa.lms.util;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Прежний классификатор User-Agent (цепочка contains и Pattern.compile на каждый вызов)
+ * для сравнения в {@link DeviceDetectionBenchmarkTest}. Кэши исходной версии убраны:
+ * сравнивается стоимость разбора, а не попадания в кэш.
+ */
+final class LegacyDeviceDetection {
+
+    String getDeviceType(String userAgent) {
+        String userAgentLower = userAgent.toLowerCase();
+
+        if (userAgentLower.contains("mobile") ||
+            userAgentLower.contains("android") && !userAgentLower.contains("tablet") ||
+            userAgentLower.contains("iphone")) {
+            return "Mobile";
+        } else if (userAgentLower.contains("tablet") ||
+                  userAgentLower.contains("ipad") ||
+                  userAgentLower.contains("kindle")) {
+            return "Tablet";
+        }
+        return "Desktop";
+    }
+
+    String getBrowser(String userAgent) {
+        String browser;
+        String userAgentLower = userAgent.toLowerCase();
+
+        if (userAgentLower.contains("firefox")) {
+            browser = "Firefox";
+        } else if (userAgentLower.contains("chrome") && !userAgentLower.contains("edg")) {
+            browser = "Chrome";
+        } else if (userAgentLower.contains("safari") && !userAgentLower.contains("chrome")) {
+            browser = "Safari";
+        } else if (userAgentLower.contains("edg")) {
+            browser = "Edge";
+        } else if (userAgentLower.contains("opera") || userAgentLower.contains("opr")) {
+            browser = "Opera";
+        } else if (userAgentLower.contains("msie") || userAgentLower.contains("trident")) {
+            browser = "Internet Explorer";
+        } else {
+            browser = "Unknown";
+        }
+
+        String version = getBrowserVersion(userAgent, browser);
+        if (!version.isEmpty()) {
+            browser += " " + version;
+        }
+        return browser;
+    }
+
+    private String getBrowserVersion(String userAgent, String browser) {
+        Pattern pattern = null;
+
+        switch (browser) {
+            case "Chrome":
+                pattern = Pattern.compile("Chrome/(\\d+\\.\\d+)");
+                break;
+            case "Firefox":
+                pattern = Pattern.compile("Firefox/(\\d+\\.\\d+)");
+                break;
+            case "Safari":
+                pattern = Pattern.compile("Version/(\\d+\\.\\d+)");
+                break;
+            case "Edge":
+                pattern = Pattern.compile("Edg/(\\d+\\.\\d+)");
+                break;
+            case "Opera":
+                pattern = Pattern.compile("OPR/(\\d+\\.\\d+)");
+                if (pattern.matcher(userAgent).find()) {
+                    break;
+                }
+                pattern = Pattern.compile("Opera/(\\d+\\.\\d+)");
+                break;
+            case "Internet Explorer":
+                pattern = Pattern.compile("MSIE (\\d+\\.\\d+)");
+                if (pattern.matcher(userAgent).find()) {
+                    break;
+                }
+                pattern = Pattern.compile("rv:(\\d+\\.\\d+)");
+                break;
+        }
+
+        if (pattern != null) {
+            Matcher matcher = pattern.matcher(userAgent);
+            if (matcher.find()) {
+                return matcher.group(1);
+            }
+        }
+        return "";
+    }
+
+    String getOperatingSystem(String userAgent) {
+        String os;
+        String userAgentLower = userAgent.toLowerCase();
+
+        if (userAgentLower.contains("windows")) {
+            os = "Windows";
+            if (userAgentLower.contains("windows nt 10")) {
+                os = "Windows 10";
+            } else if (userAgentLower.contains("windows nt 6.3")) {
+                os = "Windows 8.1";
+            } else if (userAgentLower.contains("windows nt 6.2")) {
+                os = "Windows 8";
+            } else if (userAgentLower.contains("windows nt 6.1")) {
+                os = "Windows 7";
+            }
+        } else if (userAgentLower.contains("macintosh") || userAgentLower.contains("mac os x")) {
+            os = "macOS";
+        } else if (userAgentLower.contains("linux") && !userAgentLower.contains("android")) {
+            os = "Linux";
+        } else if (userAgentLower.contains("android")) {
+            os = "Android";
+        } else if (userAgentLower.contains("iphone") || userAgentLower.contains("ipad") || userAgentLower.contains("ipod")) {
+            os = "iOS";
+        } else {
+            os = "Unknown";
+        }
+        return os;
+    }
+
+    DeviceInfo detect(String userAgent) {
+        return new DeviceInfo(getDeviceType(userAgent), getBrowser(userAgent), getOperatingSystem(userAgent));
+    }
+}